@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Makes and calls closures that capture values, compiled with the default closures, which bind the captured
+ * values to method handles, and with closure classes, which hold them in fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClosureClassesBenchmark {
+
+  private static final String SOURCE = "module bench.Closures\n\n" +
+      "function adders = |n| {\n" +
+      "  var sum = 0\n" +
+      "  for (var i = 0, i < n, i = i + 1) {\n" +
+      "    let offset = i\n" +
+      "    let add = |x| -> x + offset\n" +
+      "    sum = sum + add(1)\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n\n" +
+      "function mapped = |values, factor| -> values: map(|x| -> x * factor)\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(ClosureClassesBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(List<CodeGenerationResult> results) {
+      Class<?> moduleClass = null;
+      for (CodeGenerationResult result : results) {
+        byte[] bytecode = result.getBytecode();
+        moduleClass = defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+      }
+      return moduleClass;
+    }
+  }
+
+  @Param({"false", "true"})
+  boolean closureClasses;
+
+  @Param({"10000"})
+  int iterations;
+
+  MethodHandle adders;
+  MethodHandle mapped;
+  List<Integer> values;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setClosureClasses(closureClasses);
+    List<CodeGenerationResult> results = compiler.compile("Closures.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    Class<?> moduleClass = new ModuleLoader().define(results);
+    adders = publicLookup().findStatic(moduleClass, "adders", genericMethodType(1));
+    mapped = publicLookup().findStatic(moduleClass, "mapped", genericMethodType(2));
+    values = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      values.add(i);
+    }
+  }
+
+  @Benchmark
+  public Object closure_per_iteration() throws Throwable {
+    return adders.invokeExact((Object) iterations);
+  }
+
+  @Benchmark
+  public Object captured_mapper() throws Throwable {
+    return mapped.invokeExact((Object) values, (Object) 3);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.benchmarks.MegamorphicDispatchBenchmark.*;
+import fr.insalyon.citi.golo.runtime.MethodInvocationSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import static fr.insalyon.citi.golo.benchmarks.MegamorphicDispatchBenchmark.VALUE;
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Method invocation call sites shared by all the benchmark threads, as when many workers run the same
+ * module. Scale the thread count to the machine:
+ *
+ *   java -jar target/golo-benchmarks.jar ContendedDispatchBenchmark -t 64
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ContendedDispatchBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SharedSites {
+
+    Object[] receivers;
+    MethodHandle megamorphic;
+    MethodHandle polymorphic;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Throwable {
+      receivers = new Object[]{
+          new Receiver0(), new Receiver1(), new Receiver2(), new Receiver3(), new Receiver4(),
+          new Receiver5(), new Receiver6(), new Receiver7(), new Receiver8(), new Receiver9()
+      };
+      megamorphic = MethodInvocationSupport.bootstrap(lookup(), "value", genericMethodType(2), 0).dynamicInvoker();
+      polymorphic = MethodInvocationSupport.bootstrap(lookup(), "value", genericMethodType(2), 0).dynamicInvoker();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int index;
+  }
+
+  @Benchmark
+  public Object megamorphic_site(SharedSites sites, Cursor cursor) throws Throwable {
+    Object receiver = sites.receivers[cursor.index];
+    cursor.index = (cursor.index + 1) % sites.receivers.length;
+    return sites.megamorphic.invokeExact(receiver, VALUE);
+  }
+
+  @Benchmark
+  public Object polymorphic_site(SharedSites sites, Cursor cursor) throws Throwable {
+    Object receiver = sites.receivers[cursor.index];
+    cursor.index = (cursor.index + 1) % 3;
+    return sites.polymorphic.invokeExact(receiver, VALUE);
+  }
+}
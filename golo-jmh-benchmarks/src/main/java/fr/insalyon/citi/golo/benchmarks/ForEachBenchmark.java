@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import gololang.Predefined;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Sums ranges, arrays and array lists with a foreach loop, which walks them by index, and with the iterator
+ * protocol spelled out, which is how every foreach loop used to be compiled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ForEachBenchmark {
+
+  private static final String SOURCE = "module bench.ForEach\n\n" +
+      "function foreach_sum = |values| {\n" +
+      "  var sum = 0\n" +
+      "  foreach value in values {\n" +
+      "    sum = sum + value\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n\n" +
+      "function iterator_sum = |values| {\n" +
+      "  var sum = 0\n" +
+      "  let iterator = values: iterator()\n" +
+      "  while iterator: hasNext() {\n" +
+      "    sum = sum + iterator: next()\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(ForEachBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(CodeGenerationResult result) {
+      byte[] bytecode = result.getBytecode();
+      return defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+    }
+  }
+
+  @Param({"range", "array", "arraylist"})
+  String kind;
+
+  @Param({"10000"})
+  int size;
+
+  Object values;
+  MethodHandle foreachSum;
+  MethodHandle iteratorSum;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    switch (kind) {
+      case "range":
+        values = Predefined.range(0, size);
+        break;
+      case "array":
+        Integer[] array = new Integer[size];
+        for (int i = 0; i < size; i++) {
+          array[i] = i;
+        }
+        values = array;
+        break;
+      default:
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+          list.add(i);
+        }
+        values = list;
+    }
+    List<CodeGenerationResult> results = new GoloCompiler().compile("ForEach.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    Class<?> moduleClass = new ModuleLoader().define(results.get(0));
+    foreachSum = publicLookup().findStatic(moduleClass, "foreach_sum", genericMethodType(1));
+    iteratorSum = publicLookup().findStatic(moduleClass, "iterator_sum", genericMethodType(1));
+  }
+
+  @Benchmark
+  public Object foreach_loop() throws Throwable {
+    return foreachSum.invokeExact(values);
+  }
+
+  @Benchmark
+  public Object iterator_loop() throws Throwable {
+    return iteratorSum.invokeExact(values);
+  }
+}
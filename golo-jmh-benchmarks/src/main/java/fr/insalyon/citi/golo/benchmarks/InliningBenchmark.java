@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Runs loops that call small helper functions and an applied closure, compiled with the default
+ * optimizations where each call goes through INVOKESTATIC, and with inlining where the loop bodies hold
+ * the helper expressions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InliningBenchmark {
+
+  private static final String SOURCE = "module bench.Helpers\n\n" +
+      "local function square = |x| -> x * x\n\n" +
+      "local function norm = |x, y| -> square(x) + square(y)\n\n" +
+      "function norms = |n| {\n" +
+      "  var sum = 0_L\n" +
+      "  for (var i = 0, i < n, i = i + 1) {\n" +
+      "    sum = sum + norm(i, i + 1)\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n\n" +
+      "function scaled = |n| {\n" +
+      "  var sum = 0_L\n" +
+      "  for (var i = 0, i < n, i = i + 1) {\n" +
+      "    sum = sum + (|x| -> x * 3 + 1)(i)\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(InliningBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(CodeGenerationResult result) {
+      byte[] bytecode = result.getBytecode();
+      return defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+    }
+  }
+
+  @Param({"1", "2"})
+  int optimizationLevel;
+
+  @Param({"10000"})
+  int iterations;
+
+  MethodHandle norms;
+  MethodHandle scaled;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setOptimizationLevel(optimizationLevel);
+    List<CodeGenerationResult> results = compiler.compile("Helpers.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    Class<?> moduleClass = new ModuleLoader().define(results.get(0));
+    norms = publicLookup().findStatic(moduleClass, "norms", genericMethodType(1));
+    scaled = publicLookup().findStatic(moduleClass, "scaled", genericMethodType(1));
+  }
+
+  @Benchmark
+  public Object helper_functions() throws Throwable {
+    return norms.invokeExact((Object) iterations);
+  }
+
+  @Benchmark
+  public Object applied_closure() throws Throwable {
+    return scaled.invokeExact((Object) iterations);
+  }
+}
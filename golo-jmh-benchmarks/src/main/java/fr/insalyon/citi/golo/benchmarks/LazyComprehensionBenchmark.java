@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Takes the first elements of a filtered and mapped source with eager and lazy comprehensions, and walks the
+ * whole source with both. Run with -prof gc to compare the allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyComprehensionBenchmark {
+
+  private static final String SOURCE = "module bench.LazyComprehension\n\n" +
+      "local function sum_of_first = |values, count| {\n" +
+      "  var sum = 0\n" +
+      "  var taken = 0\n" +
+      "  foreach value in values {\n" +
+      "    if taken == count {\n" +
+      "      break\n" +
+      "    }\n" +
+      "    sum = sum + value\n" +
+      "    taken = taken + 1\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n\n" +
+      "function eager = |n, count| -> sum_of_first(list[ x * x foreach x in range(0, n) when x % 3 == 0 ], count)\n\n" +
+      "function lazy = |n, count| -> sum_of_first(lazy[ x * x foreach x in range(0, n) when x % 3 == 0 ], count)\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(LazyComprehensionBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(List<CodeGenerationResult> results) {
+      Class<?> moduleClass = null;
+      for (CodeGenerationResult result : results) {
+        byte[] bytecode = result.getBytecode();
+        moduleClass = defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+      }
+      return moduleClass;
+    }
+  }
+
+  @Param({"100000"})
+  int size;
+
+  MethodHandle eager;
+  MethodHandle lazy;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    List<CodeGenerationResult> results = new GoloCompiler().compile("LazyComprehension.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    Class<?> moduleClass = new ModuleLoader().define(results);
+    eager = publicLookup().findStatic(moduleClass, "eager", genericMethodType(2));
+    lazy = publicLookup().findStatic(moduleClass, "lazy", genericMethodType(2));
+  }
+
+  @Benchmark
+  public Object eager_first_ten() throws Throwable {
+    return eager.invokeExact((Object) size, (Object) 10);
+  }
+
+  @Benchmark
+  public Object lazy_first_ten() throws Throwable {
+    return lazy.invokeExact((Object) size, (Object) 10);
+  }
+
+  @Benchmark
+  public Object eager_all() throws Throwable {
+    return eager.invokeExact((Object) size, (Object) size);
+  }
+
+  @Benchmark
+  public Object lazy_all() throws Throwable {
+    return lazy.invokeExact((Object) size, (Object) size);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Builds lists with comprehensions and literals, then reads them by index, with the array lists of the
+ * default compilation and with the linked lists of the compatibility mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListComprehensionBenchmark {
+
+  private static final String SOURCE = "module bench.ListComprehension\n\n" +
+      "function squares = |n| -> list[ x * x foreach x in range(0, n) ]\n\n" +
+      "function indexed_sum = |values| {\n" +
+      "  var sum = 0\n" +
+      "  let size = values: size()\n" +
+      "  for (var i = 0, i < size, i = i + 1) {\n" +
+      "    sum = sum + values: get(i)\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n\n" +
+      "function literals = |n| {\n" +
+      "  var count = 0\n" +
+      "  for (var i = 0, i < n, i = i + 1) {\n" +
+      "    count = count + list[i, i, i, i]: size()\n" +
+      "  }\n" +
+      "  return count\n" +
+      "}\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(ListComprehensionBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(List<CodeGenerationResult> results) {
+      Class<?> moduleClass = null;
+      for (CodeGenerationResult result : results) {
+        byte[] bytecode = result.getBytecode();
+        moduleClass = defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+      }
+      return moduleClass;
+    }
+  }
+
+  @Param({"false", "true"})
+  boolean linkedLists;
+
+  @Param({"10000"})
+  int size;
+
+  MethodHandle squares;
+  MethodHandle indexedSum;
+  MethodHandle literals;
+  Object values;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setLinkedLists(linkedLists);
+    List<CodeGenerationResult> results = compiler.compile("ListComprehension.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    Class<?> moduleClass = new ModuleLoader().define(results);
+    squares = publicLookup().findStatic(moduleClass, "squares", genericMethodType(1));
+    indexedSum = publicLookup().findStatic(moduleClass, "indexed_sum", genericMethodType(1));
+    literals = publicLookup().findStatic(moduleClass, "literals", genericMethodType(1));
+    values = squares.invokeExact((Object) 1000);
+  }
+
+  @Benchmark
+  public Object comprehension() throws Throwable {
+    return squares.invokeExact((Object) size);
+  }
+
+  @Benchmark
+  public Object indexed_access() throws Throwable {
+    return indexedSum.invokeExact(values);
+  }
+
+  @Benchmark
+  public Object small_literals() throws Throwable {
+    return literals.invokeExact((Object) size);
+  }
+}
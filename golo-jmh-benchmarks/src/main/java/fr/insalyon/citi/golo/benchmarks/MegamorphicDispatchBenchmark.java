@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.runtime.MethodInvocationSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Dispatches on a method invocation call site that sees 10 receiver classes, hence goes megamorphic.
+ *
+ * Run with the GC profiler to check the allocation rate per operation:
+ *
+ *   java -jar target/golo-benchmarks.jar MegamorphicDispatchBenchmark -prof gc
+ *
+ * Escape analysis can remove an argument array when the whole dispatch gets inlined in such a small
+ * benchmark, so add "-jvmArgsAppend -XX:-DoEscapeAnalysis" to see what a call costs when it does not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class MegamorphicDispatchBenchmark {
+
+  public static final Object VALUE = new Object();
+
+  public static class Receiver0 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver1 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver2 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver3 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver4 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver5 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver6 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver7 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver8 { public Object value(Object arg) { return VALUE; } }
+  public static class Receiver9 { public Object value(Object arg) { return VALUE; } }
+
+  Object[] receivers;
+  MethodHandle megamorphic;
+  MethodHandle monomorphic;
+  int index;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    receivers = new Object[]{
+        new Receiver0(), new Receiver1(), new Receiver2(), new Receiver3(), new Receiver4(),
+        new Receiver5(), new Receiver6(), new Receiver7(), new Receiver8(), new Receiver9()
+    };
+    megamorphic = MethodInvocationSupport.bootstrap(lookup(), "value", genericMethodType(2), 0).dynamicInvoker();
+    monomorphic = MethodInvocationSupport.bootstrap(lookup(), "value", genericMethodType(2), 0).dynamicInvoker();
+    for (Object receiver : receivers) {
+      Object result = megamorphic.invokeExact(receiver, VALUE);
+    }
+  }
+
+  @Benchmark
+  public Object megamorphic_site() throws Throwable {
+    Object receiver = receivers[index];
+    index = (index + 1) % receivers.length;
+    return megamorphic.invokeExact(receiver, VALUE);
+  }
+
+  @Benchmark
+  public Object monomorphic_site() throws Throwable {
+    return monomorphic.invokeExact(receivers[0], VALUE);
+  }
+}
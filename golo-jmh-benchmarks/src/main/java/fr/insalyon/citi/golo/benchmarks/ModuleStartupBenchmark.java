@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Loads and runs a freshly defined module with thousands of call sites to a handful of functions, so
+ * that each operation pays for linking all of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModuleStartupBenchmark {
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(ModuleStartupBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(CodeGenerationResult result) {
+      byte[] bytecode = result.getBytecode();
+      return defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+    }
+  }
+
+  @Param({"2000"})
+  int callSites;
+
+  List<CodeGenerationResult> module;
+
+  @Setup(Level.Trial)
+  public void prepare() {
+    StringBuilder source = new StringBuilder()
+        .append("module bench.Startup\n\n")
+        .append("import java.util.Objects\n")
+        .append("import java.util.Collections\n\n")
+        .append("function id = |x| -> x\n\n")
+        .append("function add = |a, b| -> a + b\n\n");
+    int functions = 0;
+    for (int i = 0; i < callSites; i++) {
+      if (i % 250 == 0) {
+        if (i > 0) {
+          source.append("  return acc\n}\n\n");
+        }
+        source.append("function part").append(functions).append(" = {\n  var acc = 0\n");
+        functions = functions + 1;
+      }
+      switch (i % 4) {
+        case 0:
+          source.append("  acc = add(acc, id(").append(i).append("))\n");
+          break;
+        case 1:
+          source.append("  acc = add(acc, java.lang.Math.abs(").append(i).append("))\n");
+          break;
+        case 2:
+          source.append("  acc = add(acc, requireNonNull(").append(i).append("))\n");
+          break;
+        default:
+          source.append("  acc = add(acc, emptyList(): size())\n");
+      }
+    }
+    source.append("  return acc\n}\n\n").append("function run = {\n  var acc = 0\n");
+    for (int i = 0; i < functions; i++) {
+      source.append("  acc = acc + part").append(i).append("()\n");
+    }
+    source.append("  return acc\n}\n");
+    module = new GoloCompiler().compile("Startup.golo",
+        new ByteArrayInputStream(source.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Benchmark
+  public Object load_and_run() throws Throwable {
+    ModuleLoader loader = new ModuleLoader();
+    Class<?> moduleClass = null;
+    for (CodeGenerationResult result : module) {
+      Class<?> type = loader.define(result);
+      if (moduleClass == null) {
+        moduleClass = type;
+      }
+    }
+    return moduleClass.getMethod("run").invoke(null);
+  }
+}
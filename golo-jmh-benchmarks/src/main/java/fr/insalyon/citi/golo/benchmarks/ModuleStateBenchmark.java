@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Reads a module constant and updates a module variable in a loop. The module function accesses the static
+ * fields directly, while the same loop in an augmentation goes through the invokedynamic accessors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModuleStateBenchmark {
+
+  private static final String LOOP = "  for (var i = 0, i < n, i = i + 1) {\n" +
+      "    hits = hits + step\n" +
+      "  }\n" +
+      "  return hits\n";
+
+  private static final String SOURCE = "module bench.ModuleState\n\n" +
+      "let step = 2\n\n" +
+      "var hits = 0\n\n" +
+      "function fields = |n| {\n" + LOOP + "}\n\n" +
+      "augment java.lang.Integer {\n" +
+      "  function accessors = |n| {\n" + LOOP + "  }\n" +
+      "}\n\n" +
+      "function accessors = |n| -> n: accessors()\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(ModuleStateBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(CodeGenerationResult result) {
+      byte[] bytecode = result.getBytecode();
+      return defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+    }
+  }
+
+  @Param({"10000"})
+  int iterations;
+
+  MethodHandle fields;
+  MethodHandle accessors;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    List<CodeGenerationResult> results = new GoloCompiler().compile("ModuleState.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    ModuleLoader loader = new ModuleLoader();
+    Class<?> moduleClass = null;
+    for (CodeGenerationResult result : results) {
+      Class<?> type = loader.define(result);
+      if (result.getPackageAndClass().toString().equals("bench.ModuleState")) {
+        moduleClass = type;
+      }
+    }
+    fields = publicLookup().findStatic(moduleClass, "fields", genericMethodType(1));
+    accessors = publicLookup().findStatic(moduleClass, "accessors", genericMethodType(1));
+  }
+
+  @Benchmark
+  public Object static_fields() throws Throwable {
+    return fields.invokeExact((Object) iterations);
+  }
+
+  @Benchmark
+  public Object invokedynamic_accessors() throws Throwable {
+    return accessors.invokeExact((Object) iterations);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Runs counting loops in the style of samples/fibonacci.golo, compiled without optimizations where every
+ * local is a boxed object, and with them where the loop locals live in primitive slots.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrimitiveLocalsBenchmark {
+
+  private static final String SOURCE = "module bench.Loops\n\n" +
+      "function fib = |n| {\n" +
+      "  var a = 0_L\n" +
+      "  var b = 1_L\n" +
+      "  for (var i = 0, i < n, i = i + 1) {\n" +
+      "    let next = a + b\n" +
+      "    a = b\n" +
+      "    b = next\n" +
+      "  }\n" +
+      "  return a\n" +
+      "}\n\n" +
+      "function sum_of_squares = |n| {\n" +
+      "  var sum = 0_L\n" +
+      "  var i = 0\n" +
+      "  while i < n {\n" +
+      "    sum = sum + i * i\n" +
+      "    i = i + 1\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n\n" +
+      "function harmonic = |n| {\n" +
+      "  var sum = 0.0\n" +
+      "  for (var i = 1, i <= n, i = i + 1) {\n" +
+      "    sum = sum + 1.0 / i\n" +
+      "  }\n" +
+      "  return sum\n" +
+      "}\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(PrimitiveLocalsBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(CodeGenerationResult result) {
+      byte[] bytecode = result.getBytecode();
+      return defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+    }
+  }
+
+  @Param({"0", "1"})
+  int optimizationLevel;
+
+  @Param({"10000"})
+  int iterations;
+
+  MethodHandle fib;
+  MethodHandle sumOfSquares;
+  MethodHandle harmonic;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setOptimizationLevel(optimizationLevel);
+    List<CodeGenerationResult> results = compiler.compile("Loops.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    Class<?> moduleClass = new ModuleLoader().define(results.get(0));
+    fib = publicLookup().findStatic(moduleClass, "fib", genericMethodType(1));
+    sumOfSquares = publicLookup().findStatic(moduleClass, "sum_of_squares", genericMethodType(1));
+    harmonic = publicLookup().findStatic(moduleClass, "harmonic", genericMethodType(1));
+  }
+
+  @Benchmark
+  public Object fibonacci_loop() throws Throwable {
+    return fib.invokeExact((Object) iterations);
+  }
+
+  @Benchmark
+  public Object long_accumulation() throws Throwable {
+    return sumOfSquares.invokeExact((Object) iterations);
+  }
+
+  @Benchmark
+  public Object double_accumulation() throws Throwable {
+    return harmonic.invokeExact((Object) iterations);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.benchmarks;
+
+import fr.insalyon.citi.golo.compiler.CodeGenerationResult;
+import fr.insalyon.citi.golo.compiler.GoloCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Builds log-like messages with chains of additions starting with a string literal, and compares them with
+ * the same message built with a StringBuilder in Java.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringConcatenationBenchmark {
+
+  private static final String SOURCE = "module bench.StringConcatenation\n\n" +
+      "function message = |user, count, elapsed| ->\n" +
+      "  \"user=\" + user + \", count=\" + count + \", elapsed=\" + elapsed + \"ms\"\n\n" +
+      "function joined = |n| {\n" +
+      "  var result = \"\"\n" +
+      "  for (var i = 0, i < n, i = i + 1) {\n" +
+      "    result = result + i + \",\"\n" +
+      "  }\n" +
+      "  return result\n" +
+      "}\n";
+
+  static final class ModuleLoader extends ClassLoader {
+
+    ModuleLoader() {
+      super(StringConcatenationBenchmark.class.getClassLoader());
+    }
+
+    Class<?> define(List<CodeGenerationResult> results) {
+      Class<?> moduleClass = null;
+      for (CodeGenerationResult result : results) {
+        byte[] bytecode = result.getBytecode();
+        moduleClass = defineClass(result.getPackageAndClass().toString(), bytecode, 0, bytecode.length);
+      }
+      return moduleClass;
+    }
+  }
+
+  MethodHandle message;
+  MethodHandle joined;
+  String user = "golo";
+  Object count = 42;
+  Object elapsed = 3.5;
+
+  @Setup(Level.Trial)
+  public void prepare() throws Throwable {
+    List<CodeGenerationResult> results = new GoloCompiler().compile("StringConcatenation.golo",
+        new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)));
+    Class<?> moduleClass = new ModuleLoader().define(results);
+    message = publicLookup().findStatic(moduleClass, "message", genericMethodType(3));
+    joined = publicLookup().findStatic(moduleClass, "joined", genericMethodType(1));
+  }
+
+  @Benchmark
+  public Object golo_message() throws Throwable {
+    return message.invokeExact((Object) user, count, elapsed);
+  }
+
+  @Benchmark
+  public Object java_message() {
+    return new StringBuilder().append("user=").append(user).append(", count=").append(count)
+        .append(", elapsed=").append(elapsed).append("ms").toString();
+  }
+
+  @Benchmark
+  public Object golo_joined() throws Throwable {
+    return joined.invokeExact((Object) 20);
+  }
+}
@@ -27,12 +27,29 @@ public class CompilerCommand implements CliCommand {
   @Parameter(names = "--output", description = "The compiled classes output directory")
   String output = ".";
 
+  @Parameter(names = "--opt-level", description = "The optimization level: 0 disables optimizations, 1 folds constant expressions and unboxes numeric locals, 2 also inlines small functions; self tail calls become loops at every level, 0 included")
+  int optimizationLevel = 1;
+
+  @Parameter(names = "--closure-classes", description = "Compiles the closures that capture values to classes holding them in fields")
+  boolean closureClasses = false;
+
+  @Parameter(names = "--linked-lists", description = "Builds list literals and list comprehensions as java.util.LinkedList instances rather than java.util.ArrayList ones")
+  boolean linkedLists = false;
+
   @Parameter(description = "Golo source files (*.golo)")
   List<String> sources = new LinkedList<>();
 
   @Override
   public void execute() throws Throwable {
     GoloCompiler compiler = new GoloCompiler();
+    try {
+      compiler.setOptimizationLevel(this.optimizationLevel);
+      compiler.setClosureClasses(this.closureClasses);
+      compiler.setLinkedLists(this.linkedLists);
+    } catch (IllegalArgumentException e) {
+      System.out.println("[error] " + e.getMessage());
+      return;
+    }
     File outputDir = new File(this.output);
     for (String source : this.sources) {
       File file = new File(source);
@@ -30,9 +30,12 @@ import java.util.List;
 @Parameters(commandNames = {"diagnose"}, commandDescription = "Diagnosis for the Golo compiler internals")
 public class DiagnoseCommand implements CliCommand {
 
-  @Parameter(names = "--tool", description = "The diagnosis tool to use: {ast, ir}", validateWith = DiagnoseModeValidator.class)
+  @Parameter(names = "--tool", description = "The diagnosis tool to use: {ast, ir, opt}", validateWith = DiagnoseModeValidator.class)
   String mode = "ir";
 
+  @Parameter(names = "--opt-level", description = "The optimization level used by the opt tool, from 0 to 2; self tail calls become loops at every level, 0 included")
+  int optimizationLevel = 1;
+
   @Parameter(description = "Golo source files (*.golo and directories)")
   List<String> files = new LinkedList<>();
 
@@ -45,7 +48,10 @@ public class DiagnoseCommand implements CliCommand {
           dumpASTs(this.files);
           break;
         case "ir":
-          dumpIRs(this.files);
+          dumpIRs(this.files, false);
+          break;
+        case "opt":
+          dumpIRs(this.files, true);
           break;
         default:
           throw new AssertionError("WTF?");
@@ -84,21 +90,27 @@ public class DiagnoseCommand implements CliCommand {
     }
   }
 
-  private void dumpIRs(List<String> files) {
+  private void dumpIRs(List<String> files, boolean optimized) {
     GoloCompiler compiler = new GoloCompiler();
+    try {
+      compiler.setOptimizationLevel(this.optimizationLevel);
+    } catch (IllegalArgumentException e) {
+      System.out.println("[error] " + e.getMessage());
+      return;
+    }
     IrTreeDumper dumper = new IrTreeDumper();
     for (String file : files) {
-      dumpIR(file, compiler, dumper);
+      dumpIR(file, compiler, dumper, optimized);
     }
   }
 
-  private void dumpIR(String goloFile, GoloCompiler compiler, IrTreeDumper dumper) {
+  private void dumpIR(String goloFile, GoloCompiler compiler, IrTreeDumper dumper, boolean optimized) {
     File file = new File(goloFile);
     if (file.isDirectory()) {
       File[] directoryFiles = file.listFiles();
       if (directoryFiles != null) {
         for (File directoryFile : directoryFiles) {
-          dumpIR(directoryFile.getAbsolutePath(), compiler, dumper);
+          dumpIR(directoryFile.getAbsolutePath(), compiler, dumper, optimized);
         }
       }
     } else if (file.getName().endsWith(".golo")) {
@@ -108,6 +120,12 @@ public class DiagnoseCommand implements CliCommand {
         GoloModule module = compiler.check(ast);
         dumper.visitModule(module);
         System.out.println();
+        if (optimized) {
+          System.out.println(">>> Optimized IR for: " + file);
+          compiler.optimize(module);
+          dumper.visitModule(module);
+          System.out.println();
+        }
       } catch (IOException e) {
         System.out.println("[error] " + goloFile + " does not exist or could not be opened.");
       }
@@ -121,9 +139,10 @@ public class DiagnoseCommand implements CliCommand {
       switch (value) {
         case "ast":
         case "ir":
+        case "opt":
           return;
         default:
-          throw new ParameterException("Diagnosis tool must be in: {ast, ir}");
+          throw new ParameterException("Diagnosis tool must be in: {ast, ir, opt}");
       }
     }
   }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.BinaryOperation;
+import fr.insalyon.citi.golo.compiler.ir.ExpressionStatement;
+import fr.insalyon.citi.golo.compiler.ir.UnaryOperation;
+import fr.insalyon.citi.golo.runtime.OperatorType;
+
+import static fr.insalyon.citi.golo.runtime.OperatorType.*;
+
+/*
+ * Removes negations that an operator can absorb: (not (a == b)) is (a != b), (not (a is b)) is (a isnt b),
+ * and a double negation of a boolean is the boolean itself. Orderings are not inverted, as they do not
+ * hold for NaN. Arithmetic identities are not applied either, as the operand types are only known at
+ * runtime, and (x * 1) fails when x is not a number.
+ */
+final class AlgebraicSimplificationGoloIrVisitor extends RewritingGoloIrVisitor {
+
+  @Override
+  protected ExpressionStatement rewriteUnaryOperation(UnaryOperation operation) {
+    if (operation.getType() != NOT) {
+      return operation;
+    }
+    ExpressionStatement operand = operation.getExpressionStatement();
+    if (operand instanceof UnaryOperation) {
+      UnaryOperation negation = (UnaryOperation) operand;
+      if (negation.getType() == NOT && isBoolean(negation.getExpressionStatement())) {
+        return negation.getExpressionStatement();
+      }
+    } else if (operand instanceof BinaryOperation) {
+      BinaryOperation comparison = (BinaryOperation) operand;
+      OperatorType negated = negation(comparison.getType());
+      if (negated != null) {
+        BinaryOperation replacement = new BinaryOperation(negated, comparison.getLeftExpression(), comparison.getRightExpression());
+        if (operation.hasASTNode()) {
+          replacement.setASTNode(operation.getASTNode());
+        }
+        return replacement;
+      }
+    }
+    return operation;
+  }
+
+  private static OperatorType negation(OperatorType type) {
+    switch (type) {
+      case EQUALS:
+        return NOTEQUALS;
+      case NOTEQUALS:
+        return EQUALS;
+      case IS:
+        return ISNT;
+      case ISNT:
+        return IS;
+      default:
+        return null;
+    }
+  }
+}
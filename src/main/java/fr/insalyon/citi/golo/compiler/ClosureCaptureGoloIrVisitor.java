@@ -254,6 +254,13 @@ class ClosureCaptureGoloIrVisitor implements GoloIrVisitor {
 
   @Override
   public void visitLoopStatement(LoopStatement loopStatement) {
+    if (loopStatement instanceof ForEachLoopStatement) {
+      ForEachLoopStatement forEachLoop = (ForEachLoopStatement) loopStatement;
+      for (String name : Arrays.asList(forEachLoop.getIndexName(), forEachLoop.getSizeName())) {
+        locallyDeclared(name);
+        accessed(name);
+      }
+    }
     if (loopStatement.hasInitStatement()) {
       loopStatement.getInitStatement().accept(this);
     }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.*;
+import fr.insalyon.citi.golo.runtime.OperatorSupport;
+import fr.insalyon.citi.golo.runtime.OperatorType;
+
+import java.lang.invoke.MethodHandle;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static fr.insalyon.citi.golo.runtime.OperatorType.*;
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodType.genericMethodType;
+
+/*
+ * Evaluates the operators whose operands are literals. The evaluation goes through the operator runtime
+ * support, so that the folded values are exactly the ones the program would have computed. Operations that
+ * fail are left as they are, to fail at runtime. Short-circuiting operators with a literal operand are
+ * simplified as long as the result stays a boolean.
+ */
+final class ConstantFoldingGoloIrVisitor extends RewritingGoloIrVisitor {
+
+  private static final EnumSet<OperatorType> FOLDABLE = EnumSet.of(
+      PLUS, MINUS, TIMES, DIVIDE, MODULO,
+      EQUALS, NOTEQUALS, LESS, LESSOREQUALS, MORE, MOREOREQUALS,
+      NOT);
+
+  /* Strings are emitted as constant pool entries, whose size is bounded */
+  private static final int MAX_STRING_LENGTH = 0xFFFF / 3;
+
+  private final Map<String, MethodHandle> operators = new HashMap<>();
+
+  @Override
+  protected ExpressionStatement rewriteBinaryOperation(BinaryOperation operation) {
+    ExpressionStatement left = operation.getLeftExpression();
+    ExpressionStatement right = operation.getRightExpression();
+    switch (operation.getType()) {
+      case AND:
+        if (isConstant(left, false)) {
+          return constant(false, operation);
+        }
+        if (isConstant(left, true) && isBoolean(right)) {
+          return right;
+        }
+        if (isConstant(right, true) && isBoolean(left)) {
+          return left;
+        }
+        return operation;
+      case OR:
+        if (isConstant(left, true)) {
+          return constant(true, operation);
+        }
+        if (isConstant(left, false) && isBoolean(right)) {
+          return right;
+        }
+        if (isConstant(right, false) && isBoolean(left)) {
+          return left;
+        }
+        return operation;
+      case ORIFNULL:
+        if (isFoldable(left) && isFoldable(right)) {
+          return (((ConstantStatement) left).getValue() != null) ? left : right;
+        }
+        return operation;
+      default:
+        if (isFoldable(left) && isFoldable(right)) {
+          return fold(operation, ((ConstantStatement) left).getValue(), ((ConstantStatement) right).getValue());
+        }
+        return operation;
+    }
+  }
+
+  @Override
+  protected ExpressionStatement rewriteUnaryOperation(UnaryOperation operation) {
+    if (isFoldable(operation.getExpressionStatement())) {
+      return fold(operation, ((ConstantStatement) operation.getExpressionStatement()).getValue());
+    }
+    return operation;
+  }
+
+  private ExpressionStatement fold(ExpressionStatement operation, Object... operands) {
+    OperatorType type = (operation instanceof BinaryOperation) ?
+        ((BinaryOperation) operation).getType() :
+        ((UnaryOperation) operation).getType();
+    if (!FOLDABLE.contains(type)) {
+      return operation;
+    }
+    Object value;
+    try {
+      value = operator(type.name().toLowerCase(), operands.length).invokeWithArguments(operands);
+    } catch (Throwable ignored) {
+      return operation;
+    }
+    if (!isFoldableValue(value)) {
+      return operation;
+    }
+    return constant(value, operation);
+  }
+
+  private MethodHandle operator(String name, int arity) throws ReflectiveOperationException {
+    String key = name + "/" + arity;
+    MethodHandle handle = operators.get(key);
+    if (handle == null) {
+      handle = OperatorSupport.bootstrap(lookup(), name, genericMethodType(arity), arity).dynamicInvoker();
+      operators.put(key, handle);
+    }
+    return handle;
+  }
+
+  private static boolean isFoldable(ExpressionStatement expression) {
+    return (expression instanceof ConstantStatement) && isFoldableValue(((ConstantStatement) expression).getValue());
+  }
+
+  private static boolean isFoldableValue(Object value) {
+    if (value instanceof String) {
+      return ((String) value).length() <= MAX_STRING_LENGTH;
+    }
+    return value == null
+        || value instanceof Integer
+        || value instanceof Long
+        || value instanceof Double
+        || value instanceof Float
+        || value instanceof Character
+        || value instanceof Boolean;
+  }
+}
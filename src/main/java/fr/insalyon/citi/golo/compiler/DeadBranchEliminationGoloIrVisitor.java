@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Removes the branches that literal conditions rule out. A branching on true is replaced by its first block,
+ * a branching on false by what its else clause holds, and a loop on false by its initialization. Selected
+ * blocks remain nested blocks, so that their references keep their scopes. The statements following a
+ * block that returns on every path are dropped, as they cannot be reached.
+ */
+final class DeadBranchEliminationGoloIrVisitor extends RewritingGoloIrVisitor {
+
+  @Override
+  protected GoloStatement rewriteConditionalBranching(ConditionalBranching branching) {
+    if (isConstant(branching.getCondition(), true)) {
+      return branching.getTrueBlock();
+    }
+    if (isConstant(branching.getCondition(), false)) {
+      if (branching.hasFalseBlock()) {
+        return branching.getFalseBlock();
+      }
+      if (branching.hasElseConditionalBranching()) {
+        return branching.getElseConditionalBranching();
+      }
+      return null;
+    }
+    return branching;
+  }
+
+  @Override
+  protected GoloStatement rewriteLoopStatement(LoopStatement loop) {
+    if (isConstant(loop.getConditionStatement(), false)) {
+      return loop.getInitStatement();
+    }
+    return loop;
+  }
+
+  @Override
+  protected void rewriteBlock(Block block) {
+    List<GoloStatement> unreachable = new ArrayList<>();
+    boolean returned = false;
+    for (GoloStatement statement : block.getStatements()) {
+      if (returned) {
+        unreachable.add(statement);
+      } else if (statement instanceof Block) {
+        returned = ((Block) statement).hasReturn();
+      }
+    }
+    for (GoloStatement statement : unreachable) {
+      block.removeStatement(statement);
+    }
+  }
+}
@@ -9,6 +9,8 @@
 
 package fr.insalyon.citi.golo.compiler;
 
+import fr.insalyon.citi.golo.runtime.ClassLoading;
+
 import java.io.InputStream;
 import java.util.List;
 
@@ -56,6 +58,7 @@ public class GoloClassLoader extends ClassLoader {
       byte[] bytecode = result.getBytecode();
       lastClassIsModule = defineClass(null, bytecode, 0, bytecode.length);
     }
+    ClassLoading.forgetMissingClasses(this);
     return lastClassIsModule;
   }
 }
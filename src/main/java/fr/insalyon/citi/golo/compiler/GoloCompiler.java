@@ -35,6 +35,9 @@ public class GoloCompiler {
 
   private GoloParser parser;
   private GoloCompilationException.Builder exceptionBuilder = null;
+  private GoloIrOptimizer optimizer = new GoloIrOptimizer(GoloIrOptimizer.DEFAULT);
+  private boolean closureClasses = false;
+  private boolean linkedLists = false;
 
 
   /**
@@ -101,7 +104,11 @@ public class GoloCompiler {
     throwIfErrorEncountered();
     GoloModule goloModule = check(compilationUnit);
     throwIfErrorEncountered();
+    optimize(goloModule);
+    new TailCallGoloIrVisitor().optimize(goloModule);
     JavaBytecodeGenerationGoloIrVisitor bytecodeGenerator = new JavaBytecodeGenerationGoloIrVisitor();
+    bytecodeGenerator.setClosureClasses(closureClasses);
+    bytecodeGenerator.setLinkedLists(linkedLists);
     return bytecodeGenerator.generateBytecode(goloModule, goloSourceFilename);
   }
 
@@ -190,6 +197,54 @@ public class GoloCompiler {
     return goloModule;
   }
 
+  /**
+   * Sets the optimization level of the compilations: <code>0</code> disables the optimizations of the intermediate
+   * representation, <code>1</code>, the default, folds constant expressions, removes the branches that they rule
+   * out, and keeps the numeric locals in primitive slots, and <code>2</code> also inlines the small functions of a
+   * module and the closures that are applied where they are defined.
+   * <p>
+   * The self tail calls of functions are compiled into loops at every level, <code>0</code> included, since
+   * programs may depend on them running in constant stack space.
+   *
+   * @param optimizationLevel the optimization level.
+   * @throws IllegalArgumentException if the level is not supported.
+   */
+  public final void setOptimizationLevel(int optimizationLevel) {
+    this.optimizer = new GoloIrOptimizer(optimizationLevel);
+  }
+
+  /**
+   * Sets whether the closures that capture values are compiled to classes of their own, holding the captured values
+   * in fields. This makes each closure a single allocation instead of a chain of bound method handles, at the cost
+   * of one class per capturing closure. This is disabled by default.
+   *
+   * @param closureClasses whether to generate closure classes.
+   */
+  public final void setClosureClasses(boolean closureClasses) {
+    this.closureClasses = closureClasses;
+  }
+
+  /**
+   * Sets whether <code>list[...]</code> literals and list comprehensions build <code>java.util.LinkedList</code>
+   * instances, as they used to, instead of presized <code>java.util.ArrayList</code> instances. This keeps working
+   * the code that relies on the methods specific to linked lists. This is disabled by default.
+   *
+   * @param linkedLists whether lists are linked lists.
+   */
+  public final void setLinkedLists(boolean linkedLists) {
+    this.linkedLists = linkedLists;
+  }
+
+  /**
+   * Optimizes the intermediate representation of a checked source according to the optimization level. This is
+   * mostly useful to diagnosis tools, as compiling optimizes modules already.
+   *
+   * @param goloModule the intermediate representation to optimize in place.
+   */
+  public final void optimize(GoloModule goloModule) {
+    optimizer.optimize(goloModule);
+  }
+
   /**
    * Makes a Golo parser from a reader.
    *
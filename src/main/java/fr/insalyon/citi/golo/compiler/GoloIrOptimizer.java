@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.GoloModule;
+
+/*
+ * Runs the optimization passes enabled by an optimization level over a checked module: level 0 leaves the
+ * intermediate representation untouched, level 1 folds constants, simplifies negations, removes dead
+ * branches and types the numeric locals, and level 2 also inlines small functions and applied closures.
+ * Inlining runs first so that the other passes see the inlined expressions, folding runs next as the other
+ * passes act on the literals it produces, and typing runs last over the simplified code.
+ */
+final class GoloIrOptimizer {
+
+  static final int NONE = 0;
+  static final int DEFAULT = 1;
+  static final int INLINING = 2;
+  static final int MAX = 2;
+
+  private final int level;
+
+  GoloIrOptimizer(int level) {
+    if (level < NONE || level > MAX) {
+      throw new IllegalArgumentException("Optimization levels range from " + NONE + " to " + MAX + ": " + level);
+    }
+    this.level = level;
+  }
+
+  void optimize(GoloModule module) {
+    if (level >= INLINING) {
+      new InliningGoloIrVisitor().optimize(module);
+    }
+    if (level >= DEFAULT) {
+      new ConstantFoldingGoloIrVisitor().optimize(module);
+      new AlgebraicSimplificationGoloIrVisitor().optimize(module);
+      new DeadBranchEliminationGoloIrVisitor().optimize(module);
+      new LocalTypeInferenceGoloIrVisitor().optimize(module);
+    }
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.*;
+
+import java.util.*;
+
+import static fr.insalyon.citi.golo.compiler.JavaBytecodeGenerationGoloIrVisitor.directCallTargets;
+import static fr.insalyon.citi.golo.runtime.OperatorType.ANON_CALL;
+
+/*
+ * Replaces the calls to small functions of the module, and the closures applied right where they are
+ * defined, by a copy of the expression that they return. A function qualifies when its body is a single
+ * return of an expression made of operators, invocations and literals, and when a call to it from the module
+ * class resolves to it, as for the calls that the bytecode generation emits with INVOKESTATIC. Augmentations
+ * are not rewritten since their own methods take precedence over the module functions.
+ *
+ * Arguments that are literals or local references are substituted for the parameters. Other arguments must
+ * be used exactly once, in the order of the parameters, and before the inlined expression does anything
+ * else, so that the side effects happen in the same order as with the call. Each copy is bounded in size,
+ * and so is the growth of each function.
+ */
+final class InliningGoloIrVisitor extends RewritingGoloIrVisitor {
+
+  static final int MAX_INLINED_SIZE = 24;
+  static final int MAX_FUNCTION_GROWTH = 256;
+
+  private static final String EFFECT = "";
+
+  private final Deque<ReferenceTable> tables = new LinkedList<>();
+  private Map<String, GoloFunction> targets;
+  private GoloFunction current;
+  private int growth;
+
+  @Override
+  public void visitModule(GoloModule module) {
+    targets = directCallTargets(module.getFunctions());
+    for (GoloFunction function : module.getFunctions()) {
+      function.accept(this);
+    }
+  }
+
+  @Override
+  public void visitFunction(GoloFunction function) {
+    current = function;
+    growth = 0;
+    super.visitFunction(function);
+  }
+
+  @Override
+  public void visitBlock(Block block) {
+    tables.push(block.getReferenceTable());
+    super.visitBlock(block);
+    tables.pop();
+  }
+
+  @Override
+  protected ExpressionStatement rewriteFunctionInvocation(FunctionInvocation invocation) {
+    if (invocation.isOnReference() || invocation.isOnModuleState() || invocation.isAnonymous()
+        || invocation.isConstant() || invocation.usesNamedArguments()
+        || !invocation.getAnonymousFunctionInvocations().isEmpty()) {
+      return invocation;
+    }
+    GoloFunction target = targets.get(invocation.getName() + "/" + invocation.getArity());
+    if (target == null || target == current || target.isSynthetic()) {
+      return invocation;
+    }
+    ExpressionStatement inlined = inline(target, Collections.<ExpressionStatement>emptyList(), invocation.getArguments(), invocation);
+    return (inlined != null) ? inlined : invocation;
+  }
+
+  @Override
+  protected ExpressionStatement rewriteBinaryOperation(BinaryOperation operation) {
+    if (operation.getType() != ANON_CALL || !(operation.getLeftExpression() instanceof ClosureReference)) {
+      return operation;
+    }
+    ClosureReference closure = (ClosureReference) operation.getLeftExpression();
+    FunctionInvocation invocation = (FunctionInvocation) operation.getRightExpression();
+    GoloFunction target = closure.getTarget();
+    if (target.isVarargs() || target.getSyntheticSelfName() != null || invocation.usesNamedArguments()
+        || !invocation.getAnonymousFunctionInvocations().isEmpty()
+        || target.getParameterNames().size() != closure.getCapturedReferenceNames().size() + invocation.getArity()) {
+      return operation;
+    }
+    List<ExpressionStatement> captured = new ArrayList<>();
+    for (String name : closure.getCapturedReferenceNames()) {
+      captured.add(new ReferenceLookup(name));
+    }
+    ExpressionStatement inlined = inline(target, captured, invocation.getArguments(), operation);
+    return (inlined != null) ? inlined : operation;
+  }
+
+  private ExpressionStatement inline(GoloFunction target, List<ExpressionStatement> captured, List<ExpressionStatement> arguments, GoloElement origin) {
+    ExpressionStatement body = returnedExpression(target);
+    if (body == null) {
+      return null;
+    }
+    int size = size(body);
+    if (size < 0 || size > MAX_INLINED_SIZE || growth + size > MAX_FUNCTION_GROWTH) {
+      return null;
+    }
+    List<ExpressionStatement> values = new ArrayList<>(captured);
+    values.addAll(arguments);
+    Map<String, ExpressionStatement> substitutions = new HashMap<>();
+    List<String> evaluated = new ArrayList<>();
+    List<String> parameters = target.getParameterNames();
+    for (int i = 0; i < parameters.size(); i++) {
+      ExpressionStatement value = values.get(i);
+      if (!isTrivial(value)) {
+        evaluated.add(parameters.get(i));
+      }
+      substitutions.put(parameters.get(i), value);
+    }
+    if (!preservesEvaluationOrder(body, parameters, evaluated)) {
+      return null;
+    }
+    ExpressionStatement copy = copy(body, target.getBlock().getReferenceTable(), substitutions, origin);
+    if (copy != null) {
+      growth = growth + size;
+    }
+    return copy;
+  }
+
+  private static ExpressionStatement returnedExpression(GoloFunction function) {
+    List<GoloStatement> statements = function.getBlock().getStatements();
+    if (statements.size() != 1 || !(statements.get(0) instanceof ReturnStatement)) {
+      return null;
+    }
+    GoloStatement returned = ((ReturnStatement) statements.get(0)).getExpressionStatement();
+    return (returned instanceof ExpressionStatement) ? (ExpressionStatement) returned : null;
+  }
+
+  private boolean isTrivial(ExpressionStatement expression) {
+    if (expression instanceof ConstantStatement) {
+      return true;
+    }
+    if (expression instanceof ReferenceLookup) {
+      LocalReference reference = ((ReferenceLookup) expression).resolveIn(tables.peek());
+      return reference != null && !reference.isModuleState();
+    }
+    return false;
+  }
+
+  /* Returns -1 when the expression holds something that cannot be copied */
+  private static int size(ExpressionStatement expression) {
+    if (expression instanceof ConstantStatement || expression instanceof ReferenceLookup) {
+      return 1;
+    }
+    if (expression instanceof BinaryOperation) {
+      BinaryOperation operation = (BinaryOperation) expression;
+      if (operation.getType() == ANON_CALL) {
+        return -1;
+      }
+      return sum(1, operation.getLeftExpression(), operation.getRightExpression());
+    }
+    if (expression instanceof UnaryOperation) {
+      return sum(1, ((UnaryOperation) expression).getExpressionStatement());
+    }
+    if (expression instanceof FunctionInvocation) {
+      FunctionInvocation invocation = (FunctionInvocation) expression;
+      if (invocation.isOnReference() || invocation.isAnonymous() || invocation.usesNamedArguments()
+          || !invocation.getAnonymousFunctionInvocations().isEmpty()) {
+        return -1;
+      }
+      return sum(1, invocation.getArguments());
+    }
+    if (expression instanceof MethodInvocation) {
+      MethodInvocation invocation = (MethodInvocation) expression;
+      if (invocation.usesNamedArguments() || !invocation.getAnonymousFunctionInvocations().isEmpty()) {
+        return -1;
+      }
+      return sum(1, invocation.getArguments());
+    }
+    if (expression instanceof CollectionLiteral) {
+      return sum(1, ((CollectionLiteral) expression).getExpressions());
+    }
+    return -1;
+  }
+
+  private static int sum(int size, ExpressionStatement... expressions) {
+    return sum(size, Arrays.asList(expressions));
+  }
+
+  private static int sum(int size, List<ExpressionStatement> expressions) {
+    for (ExpressionStatement expression : expressions) {
+      int expressionSize = size(expression);
+      if (expressionSize < 0) {
+        return -1;
+      }
+      size = size + expressionSize;
+    }
+    return size;
+  }
+
+  private static boolean preservesEvaluationOrder(ExpressionStatement body, List<String> parameters, List<String> evaluated) {
+    if (evaluated.isEmpty()) {
+      return true;
+    }
+    List<String> events = new ArrayList<>();
+    if (!collectEvents(body, new HashSet<>(parameters), new HashSet<>(evaluated), events, false)) {
+      return false;
+    }
+    List<String> uses = new ArrayList<>();
+    for (String event : events) {
+      if (event.equals(EFFECT)) {
+        if (uses.size() < evaluated.size()) {
+          return false;
+        }
+      } else {
+        uses.add(event);
+      }
+    }
+    return uses.equals(evaluated);
+  }
+
+  /*
+   * Records in evaluation order the uses of the parameters and the operations that may have side effects or
+   * observe them, such as the reads of module state.
+   */
+  private static boolean collectEvents(ExpressionStatement expression, Set<String> parameters, Set<String> evaluated, List<String> events, boolean conditional) {
+    if (expression instanceof ReferenceLookup) {
+      String name = ((ReferenceLookup) expression).getName();
+      if (evaluated.contains(name)) {
+        if (conditional) {
+          return false;
+        }
+        events.add(name);
+      } else if (!parameters.contains(name)) {
+        events.add(EFFECT);
+      }
+      return true;
+    }
+    if (expression instanceof BinaryOperation) {
+      BinaryOperation operation = (BinaryOperation) expression;
+      boolean shortCircuit;
+      switch (operation.getType()) {
+        case AND:
+        case OR:
+        case ORIFNULL:
+        case ELVIS_METHOD_CALL:
+          shortCircuit = true;
+          break;
+        default:
+          shortCircuit = false;
+      }
+      boolean collected = collectEvents(operation.getLeftExpression(), parameters, evaluated, events, conditional)
+          && collectEvents(operation.getRightExpression(), parameters, evaluated, events, conditional || shortCircuit);
+      events.add(EFFECT);
+      return collected;
+    }
+    List<ExpressionStatement> operands;
+    if (expression instanceof UnaryOperation) {
+      operands = Collections.singletonList(((UnaryOperation) expression).getExpressionStatement());
+    } else if (expression instanceof AbstractInvocation) {
+      operands = ((AbstractInvocation) expression).getArguments();
+    } else if (expression instanceof CollectionLiteral) {
+      operands = ((CollectionLiteral) expression).getExpressions();
+    } else {
+      return true;
+    }
+    for (ExpressionStatement operand : operands) {
+      if (!collectEvents(operand, parameters, evaluated, events, conditional)) {
+        return false;
+      }
+    }
+    events.add(EFFECT);
+    return true;
+  }
+
+  /* Returns null when a reference of the inlined function does not resolve the same way in the caller */
+  private ExpressionStatement copy(ExpressionStatement expression, ReferenceTable targetTable, Map<String, ExpressionStatement> substitutions, GoloElement origin) {
+    ExpressionStatement copy;
+    if (expression instanceof ConstantStatement) {
+      copy = new ConstantStatement(((ConstantStatement) expression).getValue());
+    } else if (expression instanceof ReferenceLookup) {
+      String name = ((ReferenceLookup) expression).getName();
+      ExpressionStatement substitution = substitutions.get(name);
+      if (substitution instanceof ConstantStatement) {
+        copy = new ConstantStatement(((ConstantStatement) substitution).getValue());
+      } else if (substitution instanceof ReferenceLookup) {
+        copy = new ReferenceLookup(((ReferenceLookup) substitution).getName());
+      } else if (substitution != null) {
+        return substitution;
+      } else if (isModuleState(name, targetTable)) {
+        copy = new ReferenceLookup(name);
+      } else {
+        return null;
+      }
+    } else if (expression instanceof BinaryOperation) {
+      BinaryOperation operation = (BinaryOperation) expression;
+      ExpressionStatement left = copy(operation.getLeftExpression(), targetTable, substitutions, origin);
+      ExpressionStatement right = copy(operation.getRightExpression(), targetTable, substitutions, origin);
+      if (left == null || right == null) {
+        return null;
+      }
+      copy = new BinaryOperation(operation.getType(), left, right);
+    } else if (expression instanceof UnaryOperation) {
+      UnaryOperation operation = (UnaryOperation) expression;
+      ExpressionStatement operand = copy(operation.getExpressionStatement(), targetTable, substitutions, origin);
+      if (operand == null) {
+        return null;
+      }
+      copy = new UnaryOperation(operation.getType(), operand);
+    } else if (expression instanceof FunctionInvocation) {
+      FunctionInvocation invocation = (FunctionInvocation) expression;
+      if (invocation.isOnModuleState() && !isModuleState(invocation.getName(), targetTable)) {
+        return null;
+      }
+      FunctionInvocation invocationCopy = new FunctionInvocation(invocation.getName());
+      invocationCopy.setOnModuleState(invocation.isOnModuleState());
+      invocationCopy.setConstant(invocation.isConstant());
+      if (!copyArguments(invocation, invocationCopy, targetTable, substitutions, origin)) {
+        return null;
+      }
+      copy = invocationCopy;
+    } else if (expression instanceof MethodInvocation) {
+      MethodInvocation invocation = (MethodInvocation) expression;
+      MethodInvocation invocationCopy = new MethodInvocation(invocation.getName());
+      invocationCopy.setNullSafeGuarded(invocation.isNullSafeGuarded());
+      if (!copyArguments(invocation, invocationCopy, targetTable, substitutions, origin)) {
+        return null;
+      }
+      copy = invocationCopy;
+    } else if (expression instanceof CollectionLiteral) {
+      CollectionLiteral literal = (CollectionLiteral) expression;
+      List<ExpressionStatement> expressions = new LinkedList<>();
+      for (ExpressionStatement element : literal.getExpressions()) {
+        ExpressionStatement elementCopy = copy(element, targetTable, substitutions, origin);
+        if (elementCopy == null) {
+          return null;
+        }
+        expressions.add(elementCopy);
+      }
+      copy = new CollectionLiteral(literal.getType(), expressions);
+    } else {
+      return null;
+    }
+    if (origin.hasASTNode()) {
+      copy.setASTNode(origin.getASTNode());
+    }
+    return copy;
+  }
+
+  private boolean isModuleState(String name, ReferenceTable targetTable) {
+    LocalReference reference = targetTable.get(name);
+    LocalReference callerReference = tables.peek().get(name);
+    return reference != null && reference.isModuleState() && callerReference != null && callerReference.isModuleState();
+  }
+
+  private boolean copyArguments(AbstractInvocation invocation, AbstractInvocation invocationCopy, ReferenceTable targetTable, Map<String, ExpressionStatement> substitutions, GoloElement origin) {
+    for (ExpressionStatement argument : invocation.getArguments()) {
+      ExpressionStatement argumentCopy = copy(argument, targetTable, substitutions, origin);
+      if (argumentCopy == null) {
+        return false;
+      }
+      invocationCopy.addArgument(argumentCopy);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.List;
+
+import static fr.insalyon.citi.golo.compiler.JavaBytecodeUtils.loadInteger;
+import static org.objectweb.asm.ClassWriter.COMPUTE_FRAMES;
+import static org.objectweb.asm.ClassWriter.COMPUTE_MAXS;
+import static org.objectweb.asm.Opcodes.*;
+
+/*
+ * Generates the classes of the closures that capture values when compiling in closure classes mode: each
+ * class extends FunctionReference with one final field per captured value, so that making a closure is a
+ * single allocation. The reference to the closure function is passed to the constructor, and calls go
+ * through it with the values read from the fields.
+ */
+class JavaBytecodeClosureGenerator {
+
+  private static final String FUNCTION_REFERENCE = "gololang/FunctionReference";
+  private static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+
+  public CodeGenerationResult compile(PackageAndClass packageAndClass, List<String> capturedNames, String sourceFilename) {
+    ClassWriter classWriter = new ClassWriter(COMPUTE_FRAMES | COMPUTE_MAXS);
+    classWriter.visit(V1_8, ACC_SUPER | ACC_FINAL | ACC_SYNTHETIC,
+        packageAndClass.toJVMType(), null, FUNCTION_REFERENCE, null);
+    classWriter.visitSource(sourceFilename, null);
+    for (String name : capturedNames) {
+      classWriter.visitField(ACC_PRIVATE | ACC_FINAL, name, OBJECT_DESCRIPTOR, null, null).visitEnd();
+    }
+    makeConstructor(classWriter, packageAndClass, capturedNames);
+    makeCapturedValue(classWriter, packageAndClass, capturedNames);
+    classWriter.visitEnd();
+    return new CodeGenerationResult(classWriter.toByteArray(), packageAndClass);
+  }
+
+  static String constructorDescriptor(int capturedCount) {
+    StringBuilder descriptor = new StringBuilder("(L").append(FUNCTION_REFERENCE).append(";");
+    for (int i = 0; i < capturedCount; i++) {
+      descriptor.append(OBJECT_DESCRIPTOR);
+    }
+    return descriptor.append(")V").toString();
+  }
+
+  private void makeConstructor(ClassWriter classWriter, PackageAndClass packageAndClass, List<String> capturedNames) {
+    String owner = packageAndClass.toJVMType();
+    MethodVisitor visitor = classWriter.visitMethod(0, "<init>", constructorDescriptor(capturedNames.size()), null, null);
+    visitor.visitCode();
+    visitor.visitVarInsn(ALOAD, 0);
+    visitor.visitVarInsn(ALOAD, 1);
+    loadInteger(visitor, capturedNames.size());
+    visitor.visitMethodInsn(INVOKESPECIAL, FUNCTION_REFERENCE, "<init>", "(L" + FUNCTION_REFERENCE + ";I)V", false);
+    for (int i = 0; i < capturedNames.size(); i++) {
+      visitor.visitVarInsn(ALOAD, 0);
+      visitor.visitVarInsn(ALOAD, i + 2);
+      visitor.visitFieldInsn(PUTFIELD, owner, capturedNames.get(i), OBJECT_DESCRIPTOR);
+    }
+    visitor.visitInsn(RETURN);
+    visitor.visitMaxs(0, 0);
+    visitor.visitEnd();
+  }
+
+  private void makeCapturedValue(ClassWriter classWriter, PackageAndClass packageAndClass, List<String> capturedNames) {
+    String owner = packageAndClass.toJVMType();
+    MethodVisitor visitor = classWriter.visitMethod(ACC_PUBLIC, "capturedValue", "(I)Ljava/lang/Object;", null, null);
+    visitor.visitCode();
+    Label outOfBounds = new Label();
+    Label[] cases = new Label[capturedNames.size()];
+    for (int i = 0; i < cases.length; i++) {
+      cases[i] = new Label();
+    }
+    visitor.visitVarInsn(ILOAD, 1);
+    visitor.visitTableSwitchInsn(0, cases.length - 1, outOfBounds, cases);
+    for (int i = 0; i < cases.length; i++) {
+      visitor.visitLabel(cases[i]);
+      visitor.visitVarInsn(ALOAD, 0);
+      visitor.visitFieldInsn(GETFIELD, owner, capturedNames.get(i), OBJECT_DESCRIPTOR);
+      visitor.visitInsn(ARETURN);
+    }
+    visitor.visitLabel(outOfBounds);
+    visitor.visitTypeInsn(NEW, "java/lang/IndexOutOfBoundsException");
+    visitor.visitInsn(DUP);
+    visitor.visitVarInsn(ILOAD, 1);
+    visitor.visitMethodInsn(INVOKESTATIC, "java/lang/String", "valueOf", "(I)Ljava/lang/String;", false);
+    visitor.visitMethodInsn(INVOKESPECIAL, "java/lang/IndexOutOfBoundsException", "<init>", "(Ljava/lang/String;)V", false);
+    visitor.visitInsn(ATHROW);
+    visitor.visitMaxs(0, 0);
+    visitor.visitEnd();
+  }
+}
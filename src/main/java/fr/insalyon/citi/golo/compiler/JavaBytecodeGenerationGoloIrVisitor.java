@@ -20,6 +20,9 @@ import java.lang.invoke.MethodType;
 import java.util.*;
 
 import static fr.insalyon.citi.golo.compiler.JavaBytecodeUtils.*;
+import static fr.insalyon.citi.golo.compiler.LocalTypeInferenceGoloIrVisitor.isArithmetic;
+import static fr.insalyon.citi.golo.compiler.LocalTypeInferenceGoloIrVisitor.promote;
+import static fr.insalyon.citi.golo.compiler.LocalTypeInferenceGoloIrVisitor.typeOf;
 import static fr.insalyon.citi.golo.compiler.ir.GoloFunction.Visibility.PUBLIC;
 import static fr.insalyon.citi.golo.runtime.OperatorType.*;
 import static java.lang.invoke.MethodType.genericMethodType;
@@ -31,7 +34,7 @@ import static org.objectweb.asm.Opcodes.*;
 class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
 
   private static final String JOBJECT = "java/lang/Object";
-  private static final String TOBJECT = "Ljava/lang/Object;";
+  private static final String FOREACH_SUPPORT = "fr/insalyon/citi/golo/runtime/ForEachSupport";
   private static final Handle FUNCTION_INVOCATION_HANDLE;
   private static final Handle OPERATOR_HANDLE;
   private static final Handle METHOD_INVOCATION_HANDLE;
@@ -78,11 +81,27 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
   private List<CodeGenerationResult> generationResults;
   private String sourceFilename;
   private Context context;
+  private boolean closureClasses = false;
+  private boolean linkedLists = false;
 
   private static class Context {
     private final Deque<ReferenceTable> referenceTableStack = new LinkedList<>();
     private final Map<LoopStatement, Label> loopStartMap = new HashMap<>();
     private final Map<LoopStatement, Label> loopEndMap = new HashMap<>();
+    private final Map<BinaryOperation, ForEachLoopStatement> forEachElements = new IdentityHashMap<>();
+    private final Map<String, GoloFunction> directCallTargets = new HashMap<>();
+    private boolean inModuleClass = false;
+    private GoloFunction function;
+    private Label functionStart;
+    private final Set<String> closureClasses = new HashSet<>();
+  }
+
+  void setClosureClasses(boolean closureClasses) {
+    this.closureClasses = closureClasses;
+  }
+
+  void setLinkedLists(boolean linkedLists) {
+    this.linkedLists = linkedLists;
   }
 
   public List<CodeGenerationResult> generateBytecode(GoloModule module, String sourceFilename) {
@@ -99,12 +118,16 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
   public void visitModule(GoloModule module) {
     classWriter.visit(V1_8, ACC_PUBLIC | ACC_SUPER, module.getPackageAndClass().toJVMType(), null, JOBJECT, null);
     classWriter.visitSource(sourceFilename, null);
+    writeModuleMetadataAnnotation(module.getImports(), module.getAugmentations().keySet(), module.getAugmentationApplications());
     writeImportMetaData(module.getImports());
     klass = module.getPackageAndClass().toString();
     jvmKlass = module.getPackageAndClass().toJVMType();
+    context.directCallTargets.putAll(directCallTargets(module.getFunctions()));
+    context.inModuleClass = true;
     for (GoloFunction function : module.getFunctions()) {
       function.accept(this);
     }
+    context.inModuleClass = false;
     generateAugmentationsBytecode(module, module.getAugmentations());
     generateAugmentationsBytecode(module, module.getNamedAugmentations());
     if (module.getStructs().size() > 0) {
@@ -127,9 +150,44 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     classWriter.visitEnd();
   }
 
+  /*
+   * A call from the module class to one of its functions resolves to that function at runtime, unless a
+   * decorated or variable-arity function of the same name may match too. Such calls are emitted as plain
+   * INVOKESTATIC instructions. Augmentation classes are left out since their own methods are looked up
+   * first.
+   */
+  static Map<String, GoloFunction> directCallTargets(Collection<GoloFunction> functions) {
+    Map<String, GoloFunction> targets = new HashMap<>();
+    Set<String> ambiguous = new HashSet<>();
+    for (GoloFunction function : functions) {
+      if (function.isDecorated() || function.isVarargs() || function.isMain() || function.isModuleInit()) {
+        ambiguous.add(function.getName());
+      } else {
+        targets.put(function.getName() + "/" + function.getArity(), function);
+      }
+    }
+    targets.values().removeIf(function -> ambiguous.contains(function.getName()));
+    return targets;
+  }
+
+  private GoloFunction directCallTarget(FunctionInvocation functionInvocation) {
+    if (!context.inModuleClass || functionInvocation.isOnReference() || functionInvocation.isOnModuleState() || functionInvocation.isAnonymous()
+        || functionInvocation.isConstant() || functionInvocation.usesNamedArguments()) {
+      return null;
+    }
+    return context.directCallTargets.get(functionInvocation.getName() + "/" + functionInvocation.getArity());
+  }
+
+  /*
+   * The module class reads and writes its state fields directly, and module constants are final fields that
+   * only the module initializer assigns. The accessor methods serve the augmentation classes, which cannot
+   * reach the private fields and go through invokedynamic instead.
+   */
   private void writeModuleState(LocalReference moduleState) {
     String name = moduleState.getName();
-    classWriter.visitField(ACC_PRIVATE | ACC_STATIC, name, "Ljava/lang/Object;", null, null).visitEnd();
+    boolean constant = moduleState.getKind() == LocalReference.Kind.MODULE_CONSTANT;
+    int fieldAccess = constant ? ACC_PRIVATE | ACC_STATIC | ACC_FINAL : ACC_PRIVATE | ACC_STATIC;
+    classWriter.visitField(fieldAccess, name, "Ljava/lang/Object;", null, null).visitEnd();
 
     MethodVisitor mv = classWriter.visitMethod(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC, name, "()Ljava/lang/Object;", null, null);
     mv.visitCode();
@@ -138,6 +196,9 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     mv.visitMaxs(0, 0);
     mv.visitEnd();
 
+    if (constant) {
+      return;
+    }
     mv = classWriter.visitMethod(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC, name, "(Ljava/lang/Object;)V", null, null);
     mv.visitCode();
     mv.visitVarInsn(ALOAD, 0);
@@ -224,13 +285,40 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
   }
 
   private void writeImportMetaData(Set<ModuleImport> imports) {
+    writeMetaData("imports", importNames(imports));
+  }
+
+  private static String[] importNames(Set<ModuleImport> imports) {
     String[] importsArray = new String[imports.size()];
     int i = 0;
     for (ModuleImport imp : imports) {
       importsArray[i] = imp.getPackageAndClass().toString();
       i++;
     }
-    writeMetaData("imports", importsArray);
+    return importsArray;
+  }
+
+  private void writeModuleMetadataAnnotation(Set<ModuleImport> imports, Set<String> augmentations, Map<String, Set<String>> applications) {
+    AnnotationVisitor annotation = classWriter.visitAnnotation("Lgololang/annotations/ModuleMetadata;", true);
+    writeAnnotationArray(annotation, "imports", importNames(imports));
+    writeAnnotationArray(annotation, "augmentations", augmentations.toArray(new String[augmentations.size()]));
+    AnnotationVisitor applicationsArray = annotation.visitArray("augmentationApplications");
+    for (Map.Entry<String, Set<String>> application : applications.entrySet()) {
+      AnnotationVisitor applicationAnnotation = applicationsArray.visitAnnotation(null, "Lgololang/annotations/ModuleMetadata$Application;");
+      applicationAnnotation.visit("target", application.getKey());
+      writeAnnotationArray(applicationAnnotation, "names", application.getValue().toArray(new String[application.getValue().size()]));
+      applicationAnnotation.visitEnd();
+    }
+    applicationsArray.visitEnd();
+    annotation.visitEnd();
+  }
+
+  private static void writeAnnotationArray(AnnotationVisitor annotation, String name, String[] values) {
+    AnnotationVisitor array = annotation.visitArray(name);
+    for (String value : values) {
+      array.visit(null, value);
+    }
+    array.visitEnd();
   }
 
   private void writeAugmentsMetaData(Set<String> augmentations) {
@@ -264,12 +352,14 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     classWriter.visitSource(sourceFilename, null);
     classWriter.visitOuterClass(outerName, null, null);
 
+    Set<ModuleImport> imports = new HashSet<>(module.getImports());
+    imports.add(new ModuleImport(module.getPackageAndClass()));
+    writeModuleMetadataAnnotation(imports, Collections.<String>emptySet(), Collections.<String, Set<String>>emptyMap());
+
     for (GoloFunction function : functions) {
       function.accept(this);
     }
 
-    Set<ModuleImport> imports = new HashSet<>(module.getImports());
-    imports.add(new ModuleImport(module.getPackageAndClass()));
     writeImportMetaData(imports);
 
     classWriter.visitEnd();
@@ -309,6 +399,9 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     }
     methodVisitor.visitCode();
     visitLine(function, methodVisitor);
+    context.function = function;
+    context.functionStart = new Label();
+    methodVisitor.visitLabel(context.functionStart);
     function.getBlock().accept(this);
     if (function.isModuleInit()) {
       methodVisitor.visitInsn(RETURN);
@@ -347,7 +440,7 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
       if (localReference.isModuleState()) {
         continue;
       }
-      methodVisitor.visitLocalVariable(localReference.getName(), TOBJECT, null,
+      methodVisitor.visitLocalVariable(localReference.getName(), Type.getDescriptor(localReference.getType()), null,
           blockStart, blockEnd, localReference.getIndex());
     }
     context.referenceTableStack.pop();
@@ -473,6 +566,19 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
 
   @Override
   public void visitFunctionInvocation(FunctionInvocation functionInvocation) {
+    if (functionInvocation.isTailCall()) {
+      tailCall(functionInvocation);
+      return;
+    }
+    GoloFunction target = directCallTarget(functionInvocation);
+    if (target != null) {
+      visitInvocationArguments(functionInvocation);
+      methodVisitor.visitMethodInsn(INVOKESTATIC, jvmKlass, target.getName(), goloFunctionSignature(target.getArity()), false);
+      for (FunctionInvocation invocation : functionInvocation.getAnonymousFunctionInvocations()) {
+        invocation.accept(this);
+      }
+      return;
+    }
     String name = functionInvocation.getName().replaceAll("\\.", "#");
     String typeDef = goloFunctionSignature(functionInvocation.getArity());
     Handle handle = FUNCTION_INVOCATION_HANDLE;
@@ -480,7 +586,7 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     bootstrapArgs.add(functionInvocation.isConstant() ? 1 : 0);
     if (functionInvocation.isOnReference()) {
       ReferenceTable table = context.referenceTableStack.peek();
-      methodVisitor.visitVarInsn(ALOAD, table.get(functionInvocation.getName()).getIndex());
+      loadReference(table.get(functionInvocation.getName()));
     }
     if (functionInvocation.isOnModuleState()) {
       visitReferenceLookup(new ReferenceLookup(functionInvocation.getName()));
@@ -499,6 +605,20 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     }
   }
 
+  /*
+   * The arguments are all evaluated before the parameters are assigned, as they may read them. The code that
+   * follows the jump and used the returned value is unreachable and gets discarded by ASM.
+   */
+  private void tailCall(FunctionInvocation functionInvocation) {
+    visitInvocationArguments(functionInvocation);
+    ReferenceTable table = context.function.getBlock().getReferenceTable();
+    List<String> parameters = context.function.getParameterNames();
+    for (int i = parameters.size() - 1; i >= 0; i--) {
+      methodVisitor.visitVarInsn(ASTORE, table.get(parameters.get(i)).getIndex());
+    }
+    methodVisitor.visitJumpInsn(GOTO, context.functionStart);
+  }
+
   @Override
   public void visitMethodInvocation(MethodInvocation methodInvocation) {
     List<Object> bootstrapArgs = new ArrayList<>();
@@ -517,9 +637,15 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
 
   @Override
   public void visitAssignmentStatement(AssignmentStatement assignmentStatement) {
-    assignmentStatement.getExpressionStatement().accept(this);
     LocalReference reference = assignmentStatement.getLocalReference();
-    if (reference.isModuleState()) {
+    if (reference.isPrimitive()) {
+      primitiveAssignment(reference, assignmentStatement.getExpressionStatement());
+      return;
+    }
+    assignmentStatement.getExpressionStatement().accept(this);
+    if (reference.isModuleState() && context.inModuleClass) {
+      methodVisitor.visitFieldInsn(PUTSTATIC, jvmKlass, reference.getName(), "Ljava/lang/Object;");
+    } else if (reference.isModuleState()) {
       methodVisitor.visitInvokeDynamicInsn(
           (klass + "." + reference.getName()).replaceAll("\\.", "#"),
           "(Ljava/lang/Object;)V",
@@ -533,14 +659,217 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
   @Override
   public void visitReferenceLookup(ReferenceLookup referenceLookup) {
     LocalReference reference = referenceLookup.resolveIn(context.referenceTableStack.peek());
-    if (reference.isModuleState()) {
+    if (reference.isModuleState() && context.inModuleClass) {
+      methodVisitor.visitFieldInsn(GETSTATIC, jvmKlass, referenceLookup.getName(), "Ljava/lang/Object;");
+    } else if (reference.isModuleState()) {
       methodVisitor.visitInvokeDynamicInsn(
           (klass + "." + referenceLookup.getName()).replaceAll("\\.", "#"),
           "()Ljava/lang/Object;",
           FUNCTION_INVOCATION_HANDLE,
           (Object) 0);
+    } else {
+      loadReference(reference);
+    }
+  }
+
+  private void loadReference(LocalReference reference) {
+    Class<?> type = reference.getType();
+    if (type == int.class) {
+      methodVisitor.visitVarInsn(ILOAD, reference.getIndex());
+    } else if (type == long.class) {
+      methodVisitor.visitVarInsn(LLOAD, reference.getIndex());
+    } else if (type == double.class) {
+      methodVisitor.visitVarInsn(DLOAD, reference.getIndex());
     } else {
       methodVisitor.visitVarInsn(ALOAD, reference.getIndex());
+      return;
+    }
+    box(type);
+  }
+
+  private void primitiveAssignment(LocalReference reference, ExpressionStatement expression) {
+    Class<?> type = reference.getType();
+    int index = reference.getIndex();
+    if (type == int.class && expression instanceof BinaryOperation) {
+      BinaryOperation operation = (BinaryOperation) expression;
+      Integer increment = increment(reference, operation);
+      if (increment != null) {
+        methodVisitor.visitIincInsn(index, increment);
+        return;
+      }
+    }
+    primitiveValue(expression, type);
+    if (type == int.class) {
+      methodVisitor.visitVarInsn(ISTORE, index);
+    } else if (type == long.class) {
+      methodVisitor.visitVarInsn(LSTORE, index);
+    } else {
+      methodVisitor.visitVarInsn(DSTORE, index);
+    }
+  }
+
+  private Integer increment(LocalReference reference, BinaryOperation operation) {
+    OperatorType type = operation.getType();
+    if (type != PLUS && type != MINUS) {
+      return null;
+    }
+    ExpressionStatement left = operation.getLeftExpression();
+    ExpressionStatement right = operation.getRightExpression();
+    if (!(left instanceof ReferenceLookup && right instanceof ConstantStatement)) {
+      return null;
+    }
+    if (((ReferenceLookup) left).resolveIn(context.referenceTableStack.peek()) != reference) {
+      return null;
+    }
+    Object value = ((ConstantStatement) right).getValue();
+    if (!(value instanceof Integer)) {
+      return null;
+    }
+    int increment = (type == PLUS) ? (Integer) value : -((Integer) value);
+    if (increment < Short.MIN_VALUE || increment > Short.MAX_VALUE) {
+      return null;
+    }
+    return increment;
+  }
+
+  /*
+   * Pushes the value of an expression whose static type is primitive, converted to the given type.
+   */
+  private void primitiveValue(ExpressionStatement expression, Class<?> target) {
+    Class<?> type = typeOf(expression, context.referenceTableStack.peek());
+    if (expression instanceof ConstantStatement) {
+      Object value = ((ConstantStatement) expression).getValue();
+      if (type == int.class) {
+        loadInteger(methodVisitor, (Integer) value);
+      } else if (type == long.class) {
+        loadLong(methodVisitor, (Long) value);
+      } else {
+        methodVisitor.visitLdcInsn(value);
+      }
+    } else if (expression instanceof ReferenceLookup) {
+      LocalReference reference = ((ReferenceLookup) expression).resolveIn(context.referenceTableStack.peek());
+      methodVisitor.visitVarInsn(Type.getType(type).getOpcode(ILOAD), reference.getIndex());
+    } else {
+      BinaryOperation operation = (BinaryOperation) expression;
+      primitiveValue(operation.getLeftExpression(), type);
+      primitiveValue(operation.getRightExpression(), type);
+      methodVisitor.visitInsn(Type.getType(type).getOpcode(arithmeticOpcode(operation.getType())));
+    }
+    convert(type, target);
+  }
+
+  private static int arithmeticOpcode(OperatorType type) {
+    switch (type) {
+      case PLUS:
+        return IADD;
+      case MINUS:
+        return ISUB;
+      case TIMES:
+        return IMUL;
+      case DIVIDE:
+        return IDIV;
+      case MODULO:
+        return IREM;
+      default:
+        throw new IllegalArgumentException(type + " is not an arithmetic operator");
+    }
+  }
+
+  private void convert(Class<?> from, Class<?> to) {
+    if (from == to) {
+      return;
+    }
+    if (from == int.class) {
+      methodVisitor.visitInsn((to == long.class) ? I2L : I2D);
+    } else if (from == long.class) {
+      methodVisitor.visitInsn(L2D);
+    } else {
+      throw new IllegalArgumentException("Cannot widen " + from + " to " + to);
+    }
+  }
+
+  private void box(Class<?> type) {
+    if (type == int.class) {
+      methodVisitor.visitMethodInsn(INVOKESTATIC, "java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", false);
+    } else if (type == long.class) {
+      methodVisitor.visitMethodInsn(INVOKESTATIC, "java/lang/Long", "valueOf", "(J)Ljava/lang/Long;", false);
+    } else {
+      methodVisitor.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", false);
+    }
+  }
+
+  private static boolean isComparison(OperatorType type) {
+    switch (type) {
+      case EQUALS:
+      case NOTEQUALS:
+      case LESS:
+      case LESSOREQUALS:
+      case MORE:
+      case MOREOREQUALS:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private boolean isPrimitiveComparison(ExpressionStatement expression) {
+    if (!(expression instanceof BinaryOperation) || !isComparison(((BinaryOperation) expression).getType())) {
+      return false;
+    }
+    BinaryOperation operation = (BinaryOperation) expression;
+    ReferenceTable table = context.referenceTableStack.peek();
+    return typeOf(operation.getLeftExpression(), table).isPrimitive()
+        && typeOf(operation.getRightExpression(), table).isPrimitive();
+  }
+
+  /*
+   * Jumps when a comparison of primitive operands does not hold. Doubles compare like in Java, so that no
+   * ordering holds for NaN.
+   */
+  private void primitiveComparison(BinaryOperation operation, Label falseLabel) {
+    ReferenceTable table = context.referenceTableStack.peek();
+    Class<?> type = promote(typeOf(operation.getLeftExpression(), table), typeOf(operation.getRightExpression(), table));
+    OperatorType operator = operation.getType();
+    primitiveValue(operation.getLeftExpression(), type);
+    primitiveValue(operation.getRightExpression(), type);
+    if (type == int.class) {
+      methodVisitor.visitJumpInsn(negatedIntComparison(operator), falseLabel);
+      return;
+    }
+    if (type == long.class) {
+      methodVisitor.visitInsn(LCMP);
+    } else if (operator == LESS || operator == LESSOREQUALS) {
+      methodVisitor.visitInsn(DCMPG);
+    } else {
+      methodVisitor.visitInsn(DCMPL);
+    }
+    methodVisitor.visitJumpInsn(negatedIntComparison(operator) - (IF_ICMPEQ - IFEQ), falseLabel);
+  }
+
+  private static int negatedIntComparison(OperatorType type) {
+    switch (type) {
+      case EQUALS:
+        return IF_ICMPNE;
+      case NOTEQUALS:
+        return IF_ICMPEQ;
+      case LESS:
+        return IF_ICMPGE;
+      case LESSOREQUALS:
+        return IF_ICMPGT;
+      case MORE:
+        return IF_ICMPLE;
+      default:
+        return IF_ICMPLT;
+    }
+  }
+
+  private void jumpIfFalse(ExpressionStatement condition, Label falseLabel) {
+    if (isPrimitiveComparison(condition)) {
+      primitiveComparison((BinaryOperation) condition, falseLabel);
+    } else {
+      condition.accept(this);
+      asmBooleanValue();
+      methodVisitor.visitJumpInsn(IFEQ, falseLabel);
     }
   }
 
@@ -548,9 +877,7 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
   public void visitConditionalBranching(ConditionalBranching conditionalBranching) {
     Label branchingElseLabel = new Label();
     Label branchingExitLabel = new Label();
-    conditionalBranching.getCondition().accept(this);
-    asmBooleanValue();
-    methodVisitor.visitJumpInsn(IFEQ, branchingElseLabel);
+    jumpIfFalse(conditionalBranching.getCondition(), branchingElseLabel);
     conditionalBranching.getTrueBlock().accept(this);
     if (conditionalBranching.hasFalseBlock()) {
       if (!conditionalBranching.getTrueBlock().hasReturn()) {
@@ -578,13 +905,15 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     Label loopEnd = new Label();
     context.loopStartMap.put(loopStatement, loopStart);
     context.loopEndMap.put(loopStatement, loopEnd);
+    if (loopStatement instanceof ForEachLoopStatement) {
+      forEachLoop((ForEachLoopStatement) loopStatement, loopStart, loopEnd);
+      return;
+    }
     if (loopStatement.hasInitStatement()) {
       loopStatement.getInitStatement().accept(this);
     }
     methodVisitor.visitLabel(loopStart);
-    loopStatement.getConditionStatement().accept(this);
-    asmBooleanValue();
-    methodVisitor.visitJumpInsn(IFEQ, loopEnd);
+    jumpIfFalse(loopStatement.getConditionStatement(), loopEnd);
     loopStatement.getBlock().accept(this);
     if (loopStatement.hasPostStatement()) {
       loopStatement.getPostStatement().accept(this);
@@ -593,6 +922,72 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     methodVisitor.visitLabel(loopEnd);
   }
 
+  /*
+   * The iterated value goes to the iterator slot first. When ForEachSupport knows its size, the loop counts up
+   * to it and fetches the elements by index, otherwise the slot is replaced by the iterator. The loop of a list
+   * comprehension also makes room for that many elements in the list it fills.
+   */
+  private void forEachLoop(ForEachLoopStatement loopStatement, Label loopStart, Label loopEnd) {
+    Label indexedLabel = new Label();
+    Label iteratingLabel = new Label();
+    Label blockLabel = new Label();
+    ReferenceTable table = context.referenceTableStack.peek();
+    int iterator = loopStatement.getInitStatement().getLocalReference().getIndex();
+    int index = table.get(loopStatement.getIndexName()).getIndex();
+    int size = table.get(loopStatement.getSizeName()).getIndex();
+    BinaryOperation init = (BinaryOperation) loopStatement.getInitStatement().getExpressionStatement();
+    context.forEachElements.put(loopStatement.getNextOperation(), loopStatement);
+    init.getLeftExpression().accept(this);
+    methodVisitor.visitInsn(DUP);
+    methodVisitor.visitVarInsn(ASTORE, iterator);
+    methodVisitor.visitMethodInsn(INVOKESTATIC, FOREACH_SUPPORT, "size", "(Ljava/lang/Object;)I", false);
+    methodVisitor.visitInsn(DUP);
+    methodVisitor.visitVarInsn(ISTORE, size);
+    methodVisitor.visitJumpInsn(IFGE, indexedLabel);
+    methodVisitor.visitVarInsn(ALOAD, iterator);
+    init.getRightExpression().accept(this);
+    methodVisitor.visitVarInsn(ASTORE, iterator);
+    methodVisitor.visitLabel(indexedLabel);
+    if (loopStatement.getPresizedName() != null) {
+      methodVisitor.visitVarInsn(ALOAD, table.get(loopStatement.getPresizedName()).getIndex());
+      methodVisitor.visitVarInsn(ILOAD, size);
+      methodVisitor.visitMethodInsn(INVOKESTATIC, FOREACH_SUPPORT, "presize", "(Ljava/lang/Object;I)V", false);
+    }
+    methodVisitor.visitInsn(ICONST_0);
+    methodVisitor.visitVarInsn(ISTORE, index);
+    methodVisitor.visitLabel(loopStart);
+    methodVisitor.visitVarInsn(ILOAD, size);
+    methodVisitor.visitJumpInsn(IFLT, iteratingLabel);
+    methodVisitor.visitVarInsn(ILOAD, index);
+    methodVisitor.visitVarInsn(ILOAD, size);
+    methodVisitor.visitJumpInsn(IF_ICMPGE, loopEnd);
+    methodVisitor.visitJumpInsn(GOTO, blockLabel);
+    methodVisitor.visitLabel(iteratingLabel);
+    jumpIfFalse(loopStatement.getConditionStatement(), loopEnd);
+    methodVisitor.visitLabel(blockLabel);
+    loopStatement.getBlock().accept(this);
+    methodVisitor.visitJumpInsn(GOTO, loopStart);
+    methodVisitor.visitLabel(loopEnd);
+  }
+
+  private void forEachElement(ForEachLoopStatement loopStatement) {
+    Label iteratingLabel = new Label();
+    Label exitLabel = new Label();
+    ReferenceTable table = context.referenceTableStack.peek();
+    int index = table.get(loopStatement.getIndexName()).getIndex();
+    int size = table.get(loopStatement.getSizeName()).getIndex();
+    methodVisitor.visitVarInsn(ILOAD, size);
+    methodVisitor.visitJumpInsn(IFLT, iteratingLabel);
+    methodVisitor.visitVarInsn(ALOAD, loopStatement.getInitStatement().getLocalReference().getIndex());
+    methodVisitor.visitVarInsn(ILOAD, index);
+    methodVisitor.visitMethodInsn(INVOKESTATIC, FOREACH_SUPPORT, "get", "(Ljava/lang/Object;I)Ljava/lang/Object;", false);
+    methodVisitor.visitIincInsn(index, 1);
+    methodVisitor.visitJumpInsn(GOTO, exitLabel);
+    methodVisitor.visitLabel(iteratingLabel);
+    genericBinaryOperator(loopStatement.getNextOperation(), METHOD_CALL);
+    methodVisitor.visitLabel(exitLabel);
+  }
+
   @Override
   public void visitLoopBreakFlowStatement(LoopBreakFlowStatement loopBreakFlowStatement) {
     Label jumpTarget;
@@ -667,8 +1062,12 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
   private void createVector(CollectionLiteral collectionLiteral) {
     methodVisitor.visitTypeInsn(NEW, "java/util/ArrayList");
     methodVisitor.visitInsn(DUP);
-    loadInteger(methodVisitor, collectionLiteral.getExpressions().size());
-    methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "(I)V", false);
+    if (collectionLiteral.getExpressions().isEmpty()) {
+      methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V", false);
+    } else {
+      loadInteger(methodVisitor, collectionLiteral.getExpressions().size());
+      methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/util/ArrayList", "<init>", "(I)V", false);
+    }
     for (ExpressionStatement expression : collectionLiteral.getExpressions()) {
       methodVisitor.visitInsn(DUP);
       expression.accept(this);
@@ -678,6 +1077,10 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
   }
 
   private void createList(CollectionLiteral collectionLiteral) {
+    if (!linkedLists) {
+      createVector(collectionLiteral);
+      return;
+    }
     methodVisitor.visitTypeInsn(NEW, "java/util/LinkedList");
     methodVisitor.visitInsn(DUP);
     methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/util/LinkedList", "<init>", "()V", false);
@@ -768,6 +1171,12 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     final boolean isVarArgs = target.isVarargs();
     final int arity = (isVarArgs) ? target.getArity() - 1 : target.getArity();
     final int syntheticCount = closureReference.getTarget().getSyntheticParameterCount();
+    PackageAndClass closureClass = null;
+    if (closureClasses && syntheticCount > 0) {
+      closureClass = closureClass(closureReference);
+      methodVisitor.visitTypeInsn(NEW, closureClass.toJVMType());
+      methodVisitor.visitInsn(DUP);
+    }
     methodVisitor.visitInvokeDynamicInsn(
         target.getName(),
         methodType(FunctionReference.class).toMethodDescriptorString(),
@@ -775,7 +1184,14 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
         klass,
         (Integer) arity,
         (Boolean) isVarArgs);
-    if (syntheticCount > 0) {
+    if (closureClass != null) {
+      ReferenceTable table = context.referenceTableStack.peek();
+      for (String name : closureReference.getCapturedReferenceNames()) {
+        loadReference(table.get(name));
+      }
+      methodVisitor.visitMethodInsn(INVOKESPECIAL, closureClass.toJVMType(), "<init>",
+          JavaBytecodeClosureGenerator.constructorDescriptor(syntheticCount), false);
+    } else if (syntheticCount > 0) {
       String[] refs = closureReference.getCapturedReferenceNames().toArray(new String[syntheticCount]);
       loadInteger(methodVisitor, 0);
       loadInteger(methodVisitor, syntheticCount);
@@ -784,7 +1200,7 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
       for (int i = 0; i < syntheticCount; i++) {
         methodVisitor.visitInsn(DUP);
         loadInteger(methodVisitor, i);
-        methodVisitor.visitVarInsn(ALOAD, table.get(refs[i]).getIndex());
+        loadReference(table.get(refs[i]));
         methodVisitor.visitInsn(AASTORE);
       }
       methodVisitor.visitMethodInsn(
@@ -803,18 +1219,153 @@ class JavaBytecodeGenerationGoloIrVisitor implements GoloIrVisitor {
     }
   }
 
+  private PackageAndClass closureClass(ClosureReference closureReference) {
+    GoloFunction target = closureReference.getTarget();
+    PackageAndClass closureClass = PackageAndClass.fromString(klass).createInnerClass(target.getName());
+    if (context.closureClasses.add(target.getName())) {
+      generationResults.add(new JavaBytecodeClosureGenerator().compile(
+          closureClass, target.getSyntheticParameterNames(), sourceFilename));
+    }
+    return closureClass;
+  }
+
   @Override
   public void visitBinaryOperation(BinaryOperation binaryOperation) {
     OperatorType operatorType = binaryOperation.getType();
-    if (AND.equals(operatorType)) {
+    if (context.forEachElements.containsKey(binaryOperation)) {
+      forEachElement(context.forEachElements.get(binaryOperation));
+    } else if (isArithmetic(operatorType) && typeOf(binaryOperation, context.referenceTableStack.peek()).isPrimitive()) {
+      Class<?> type = typeOf(binaryOperation, context.referenceTableStack.peek());
+      primitiveValue(binaryOperation, type);
+      box(type);
+    } else if (isPrimitiveComparison(binaryOperation)) {
+      Label exitLabel = new Label();
+      Label falseLabel = new Label();
+      primitiveComparison(binaryOperation, falseLabel);
+      asmTrueObject();
+      methodVisitor.visitJumpInsn(GOTO, exitLabel);
+      methodVisitor.visitLabel(falseLabel);
+      asmFalseObject();
+      methodVisitor.visitLabel(exitLabel);
+    } else if (AND.equals(operatorType)) {
       andOperator(binaryOperation);
     } else if (OR.equals(operatorType)) {
       orOperator(binaryOperation);
+    } else if (PLUS.equals(operatorType) && firstStringConstant(concatenationOperands(binaryOperation)) >= 0) {
+      stringConcatenation(binaryOperation);
     } else {
       genericBinaryOperator(binaryOperation, operatorType);
     }
   }
 
+  /*
+   * Once a string literal is reached in a chain of additions, every following addition is a concatenation,
+   * so the operands from there on are appended to a single StringBuilder. The additions before the literal
+   * may be numeric: when they only add locals or constants to a leading operand, the leading operand is
+   * speculated to be a string and checked at runtime, the generic operator being the fallback. Chains without
+   * string literals keep the generic operator.
+   */
+  private void stringConcatenation(BinaryOperation binaryOperation) {
+    List<ExpressionStatement> operands = concatenationOperands(binaryOperation);
+    int first = firstStringConstant(operands);
+    methodVisitor.visitTypeInsn(NEW, "java/lang/StringBuilder");
+    methodVisitor.visitInsn(DUP);
+    methodVisitor.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V", false);
+    if (first > 1) {
+      ExpressionStatement prefix = binaryOperation;
+      for (int i = operands.size() - 1; i >= first; i--) {
+        prefix = ((BinaryOperation) prefix).getLeftExpression();
+      }
+      appendHead(prefix, operands.subList(0, first));
+    } else {
+      appendOperand(operands.get(0));
+    }
+    for (ExpressionStatement operand : operands.subList(Math.max(first, 1), operands.size())) {
+      appendOperand(operand);
+    }
+    methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+  }
+
+  private void appendHead(ExpressionStatement prefix, List<ExpressionStatement> head) {
+    boolean speculative = !typeOf(prefix, context.referenceTableStack.peek()).isPrimitive();
+    for (ExpressionStatement operand : head.subList(1, head.size())) {
+      speculative = speculative && (operand instanceof ConstantStatement || operand instanceof ReferenceLookup);
+    }
+    if (!speculative) {
+      appendOperand(prefix);
+      return;
+    }
+    Label generic = new Label();
+    Label appended = new Label();
+    head.get(0).accept(this);
+    methodVisitor.visitInsn(DUP);
+    methodVisitor.visitTypeInsn(INSTANCEOF, "java/lang/String");
+    methodVisitor.visitJumpInsn(IFEQ, generic);
+    methodVisitor.visitTypeInsn(CHECKCAST, "java/lang/String");
+    methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+    for (ExpressionStatement operand : head.subList(1, head.size())) {
+      appendOperand(operand);
+    }
+    methodVisitor.visitJumpInsn(GOTO, appended);
+    methodVisitor.visitLabel(generic);
+    for (ExpressionStatement operand : head.subList(1, head.size())) {
+      operand.accept(this);
+      methodVisitor.visitInvokeDynamicInsn("plus", goloFunctionSignature(2), OPERATOR_HANDLE, (Integer) 2);
+    }
+    methodVisitor.visitMethodInsn(INVOKESTATIC, "java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;", false);
+    methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+    methodVisitor.visitLabel(appended);
+  }
+
+  private List<ExpressionStatement> concatenationOperands(BinaryOperation binaryOperation) {
+    LinkedList<ExpressionStatement> operands = new LinkedList<>();
+    ExpressionStatement current = binaryOperation;
+    while (isConcatenationLink(current)) {
+      operands.addFirst(((BinaryOperation) current).getRightExpression());
+      current = ((BinaryOperation) current).getLeftExpression();
+    }
+    operands.addFirst(current);
+    return operands;
+  }
+
+  private static int firstStringConstant(List<ExpressionStatement> operands) {
+    for (int i = 0; i < operands.size(); i++) {
+      if (isStringConstant(operands.get(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isConcatenationLink(ExpressionStatement expression) {
+    return (expression instanceof BinaryOperation)
+        && PLUS.equals(((BinaryOperation) expression).getType())
+        && !context.forEachElements.containsKey(expression);
+  }
+
+  private static boolean isStringConstant(ExpressionStatement expression) {
+    return (expression instanceof ConstantStatement) && (((ConstantStatement) expression).getValue() instanceof String);
+  }
+
+  /* Appends ints and strings, the other values being turned into strings first, as the JIT fuses these appends */
+  private void appendOperand(ExpressionStatement operand) {
+    Class<?> type = typeOf(operand, context.referenceTableStack.peek());
+    String descriptor = "Ljava/lang/String;";
+    if (isStringConstant(operand)) {
+      methodVisitor.visitLdcInsn(((ConstantStatement) operand).getValue());
+    } else if (type == int.class) {
+      primitiveValue(operand, type);
+      descriptor = "I";
+    } else if (type.isPrimitive()) {
+      primitiveValue(operand, type);
+      methodVisitor.visitMethodInsn(INVOKESTATIC, "java/lang/String", "valueOf", "(" + Type.getDescriptor(type) + ")Ljava/lang/String;", false);
+    } else {
+      operand.accept(this);
+      methodVisitor.visitMethodInsn(INVOKESTATIC, "java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;", false);
+    }
+    methodVisitor.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + descriptor + ")Ljava/lang/StringBuilder;", false);
+  }
+
   private void genericBinaryOperator(BinaryOperation binaryOperation, OperatorType operatorType) {
     binaryOperation.getLeftExpression().accept(this);
     binaryOperation.getRightExpression().accept(this);
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.*;
+import fr.insalyon.citi.golo.runtime.OperatorType;
+
+import java.util.*;
+import java.util.function.Function;
+
+/*
+ * Finds the function locals that only ever hold int, long or double values, so that the bytecode generation
+ * keeps them in primitive slots and computes their arithmetic natively. A local qualifies when every value
+ * assigned to it has the same primitive type: a literal, another such local, or arithmetic over them, which
+ * the runtime operators compute with the Java promotion rules. Types are solved optimistically over the
+ * assignments of a function until they are stable, so that loop counters qualify. Long and double locals
+ * move to fresh slot pairs past the slots of the other locals.
+ */
+final class LocalTypeInferenceGoloIrVisitor extends RewritingGoloIrVisitor {
+
+  private static final class Assignment {
+
+    final LocalReference reference;
+    final ExpressionStatement expression;
+    final ReferenceTable table;
+
+    Assignment(LocalReference reference, ExpressionStatement expression, ReferenceTable table) {
+      this.reference = reference;
+      this.expression = expression;
+      this.table = table;
+    }
+  }
+
+  private final Deque<ReferenceTable> tables = new LinkedList<>();
+  private final List<Assignment> assignments = new ArrayList<>();
+  private final Set<LocalReference> references = Collections.newSetFromMap(new IdentityHashMap<LocalReference, Boolean>());
+  private final Set<LocalReference> caughtExceptions = Collections.newSetFromMap(new IdentityHashMap<LocalReference, Boolean>());
+
+  static Class<?> typeOf(ExpressionStatement expression, ReferenceTable table) {
+    return typeOf(expression, table, LocalReference::getType);
+  }
+
+  static boolean isArithmetic(OperatorType type) {
+    switch (type) {
+      case PLUS:
+      case MINUS:
+      case TIMES:
+      case DIVIDE:
+      case MODULO:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  static Class<?> promote(Class<?> left, Class<?> right) {
+    if (left == double.class || right == double.class) {
+      return double.class;
+    }
+    if (left == long.class || right == long.class) {
+      return long.class;
+    }
+    return int.class;
+  }
+
+  /* Returns null when the type depends on locals that are not solved yet */
+  private static Class<?> typeOf(ExpressionStatement expression, ReferenceTable table, Function<LocalReference, Class<?>> types) {
+    if (expression instanceof ConstantStatement) {
+      Object value = ((ConstantStatement) expression).getValue();
+      if (value instanceof Integer) {
+        return int.class;
+      }
+      if (value instanceof Long) {
+        return long.class;
+      }
+      if (value instanceof Double) {
+        return double.class;
+      }
+      return Object.class;
+    }
+    if (expression instanceof ReferenceLookup) {
+      LocalReference reference = ((ReferenceLookup) expression).resolveIn(table);
+      if (reference == null || reference.isModuleState()) {
+        return Object.class;
+      }
+      return types.apply(reference);
+    }
+    if (expression instanceof BinaryOperation) {
+      BinaryOperation operation = (BinaryOperation) expression;
+      if (!isArithmetic(operation.getType())) {
+        return Object.class;
+      }
+      Class<?> left = typeOf(operation.getLeftExpression(), table, types);
+      Class<?> right = typeOf(operation.getRightExpression(), table, types);
+      if (left == Object.class || right == Object.class) {
+        return Object.class;
+      }
+      if (left == null || right == null) {
+        return null;
+      }
+      return promote(left, right);
+    }
+    return Object.class;
+  }
+
+  @Override
+  public void visitFunction(GoloFunction function) {
+    assignments.clear();
+    references.clear();
+    caughtExceptions.clear();
+    super.visitFunction(function);
+    Set<LocalReference> candidates = Collections.newSetFromMap(new IdentityHashMap<LocalReference, Boolean>());
+    for (Assignment assignment : assignments) {
+      candidates.add(assignment.reference);
+    }
+    ReferenceTable functionTable = function.getBlock().getReferenceTable();
+    for (String parameter : function.getParameterNames()) {
+      candidates.remove(functionTable.get(parameter));
+    }
+    candidates.removeAll(caughtExceptions);
+    Map<LocalReference, Class<?>> types = solve(candidates);
+    int nextIndex = 0;
+    for (LocalReference reference : references) {
+      nextIndex = Math.max(nextIndex, reference.getIndex() + 1);
+    }
+    for (Map.Entry<LocalReference, Class<?>> entry : types.entrySet()) {
+      Class<?> type = entry.getValue();
+      if (type.isPrimitive()) {
+        LocalReference reference = entry.getKey();
+        reference.setType(type);
+        if (type != int.class) {
+          reference.setIndex(nextIndex);
+          nextIndex = nextIndex + 2;
+        }
+      }
+    }
+  }
+
+  private Map<LocalReference, Class<?>> solve(Set<LocalReference> candidates) {
+    Map<LocalReference, Class<?>> types = new IdentityHashMap<>();
+    Function<LocalReference, Class<?>> assumptions = reference -> candidates.contains(reference) ? types.get(reference) : Object.class;
+    boolean unsolved = true;
+    while (unsolved) {
+      boolean changed = true;
+      while (changed) {
+        changed = false;
+        for (Assignment assignment : assignments) {
+          if (!candidates.contains(assignment.reference)) {
+            continue;
+          }
+          Class<?> current = types.get(assignment.reference);
+          Class<?> type = typeOf(assignment.expression, assignment.table, assumptions);
+          if (type == null || current == Object.class) {
+            continue;
+          }
+          Class<?> merged = (current == null || current == type) ? type : Object.class;
+          if (merged != current) {
+            types.put(assignment.reference, merged);
+            changed = true;
+          }
+        }
+      }
+      unsolved = false;
+      for (LocalReference candidate : candidates) {
+        if (types.get(candidate) == null) {
+          types.put(candidate, Object.class);
+          unsolved = true;
+        }
+      }
+    }
+    return types;
+  }
+
+  @Override
+  public void visitBlock(Block block) {
+    ReferenceTable table = block.getReferenceTable();
+    for (LocalReference reference : table.ownedReferences()) {
+      if (!reference.isModuleState()) {
+        references.add(reference);
+      }
+    }
+    tables.push(table);
+    super.visitBlock(block);
+    tables.pop();
+  }
+
+  @Override
+  public void visitTryCatchFinally(TryCatchFinally tryCatchFinally) {
+    if (tryCatchFinally.hasCatchBlock()) {
+      caughtExceptions.add(tryCatchFinally.getCatchBlock().getReferenceTable().get(tryCatchFinally.getExceptionId()));
+    }
+    super.visitTryCatchFinally(tryCatchFinally);
+  }
+
+  @Override
+  public void visitAssignmentStatement(AssignmentStatement assignmentStatement) {
+    super.visitAssignmentStatement(assignmentStatement);
+    LocalReference reference = assignmentStatement.getLocalReference();
+    if (!reference.isModuleState()) {
+      assignments.add(new Assignment(reference, assignmentStatement.getExpressionStatement(), tables.peek()));
+    }
+  }
+}
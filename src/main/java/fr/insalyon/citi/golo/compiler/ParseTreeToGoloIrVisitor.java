@@ -39,6 +39,8 @@ class ParseTreeToGoloIrVisitor implements GoloParserVisitor {
 
   private GoloCompilationException.Builder exceptionBuilder;
 
+  private static final String LAZY_COMPREHENSION_SUPPORT = "fr.insalyon.citi.golo.runtime.LazyComprehensionSupport";
+
   private static AtomicLong syntheticNameCounter = new AtomicLong();
 
   private static String syntheticName(String base) {
@@ -456,6 +458,12 @@ class ParseTreeToGoloIrVisitor implements GoloParserVisitor {
   @Override
   public Object visit(ASTCollectionLiteral node, Object data) {
     Context context = (Context) data;
+    if ("lazy".equals(node.getType())) {
+      ExpressionStatement lazyList = node.isComprehension() ? createLazyComprehension(context, node, 1) : createLazyValues(context, node);
+      context.objectStack.push(lazyList);
+      node.setIrElement(lazyList);
+      return data;
+    }
     List<ExpressionStatement> expressions = new LinkedList<>();
     for (int i = 0; i < node.jjtGetNumChildren(); i++) {
       GoloASTNode expressionNode = (GoloASTNode) node.jjtGetChild(i);
@@ -505,6 +513,9 @@ class ParseTreeToGoloIrVisitor implements GoloParserVisitor {
       loopBlock.getReferenceTable().relink(outerTable);
       innerBlock.addStatement(loopBlock);
       LoopStatement loop = (LoopStatement) loopBlock.getStatements().get(0);
+      if (i == 1 && loop instanceof ForEachLoopStatement && !loop.hasWhen() && isArrayBacked(colType)) {
+        ((ForEachLoopStatement) loop).setPresizedName(collectionName);
+      }
       innerBlock = loop.getMainBlock();
       outerTable = loopBlock.getReferenceTable();
     }
@@ -531,6 +542,83 @@ class ParseTreeToGoloIrVisitor implements GoloParserVisitor {
     return block;
   }
 
+  private ExpressionStatement createLazyValues(Context context, ASTCollectionLiteral node) {
+    List<ExpressionStatement> values = new LinkedList<>();
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      node.jjtGetChild(i).jjtAccept(this, context);
+      values.add((ExpressionStatement) context.objectStack.pop());
+    }
+    FunctionInvocation invocation = new FunctionInvocation(LAZY_COMPREHENSION_SUPPORT + ".values");
+    invocation.addArgument(new CollectionLiteral(CollectionLiteral.Type.array, values));
+    return invocation;
+  }
+
+  /*
+   * Each foreach of a lazy comprehension becomes a closure over its element that returns the lazy list of what the
+   * following loops produce for it, or an empty lazy list when the when clause does not hold. The element expression
+   * is evaluated in the closure of the innermost loop.
+   */
+  private ExpressionStatement createLazyComprehension(Context context, ASTCollectionLiteral node, int loopIndex) {
+    if (loopIndex == node.jjtGetNumChildren()) {
+      node.jjtGetChild(0).jjtAccept(this, context);
+      FunctionInvocation single = new FunctionInvocation(LAZY_COMPREHENSION_SUPPORT + ".single");
+      single.addArgument((ExpressionStatement) context.objectStack.pop());
+      return single;
+    }
+    if (!(node.jjtGetChild(loopIndex) instanceof ASTForEachLoop)) {
+      getOrCreateExceptionBuilder(context).report(PARSING, node,
+          "Lazy comprehensions only support `foreach` loops at (line=" + node.getLineInSourceCode() +
+              ", column=" + node.getColumnInSourceCode() + ")");
+      return new ConstantStatement(null);
+    }
+    ASTForEachLoop loop = (ASTForEachLoop) node.jjtGetChild(loopIndex);
+    loop.jjtGetChild(0).jjtAccept(this, context);
+    BinaryOperation iterator = new BinaryOperation(OperatorType.METHOD_CALL,
+        (ExpressionStatement) context.objectStack.pop(),
+        new MethodInvocation("iterator"));
+
+    GoloFunction step = new GoloFunction(syntheticName("closure"), LOCAL, CLOSURE);
+    step.setSynthetic(true);
+    step.setASTNode(loop);
+    context.module.addFunction(step);
+    ReferenceTable table = context.referenceTableStack.peek().fork();
+    Block block = new Block(table);
+    step.setBlock(block);
+    String parameter = (loop.getElementIdentifier() != null) ? loop.getElementIdentifier() : syntheticName("element");
+    step.setParameterNames(Collections.singletonList(parameter));
+    table.add(new LocalReference(CONSTANT, parameter));
+    if (loop.getElementIdentifier() == null) {
+      prependDestructuring(loop, table, block, new ReferenceLookup(parameter));
+    }
+
+    context.referenceTableStack.push(table);
+    ExpressionStatement guard = null;
+    if (loop.jjtGetNumChildren() > 1) {
+      loop.jjtGetChild(1).jjtAccept(this, context);
+      guard = (ExpressionStatement) context.objectStack.pop();
+    }
+    ExpressionStatement produced = createLazyComprehension(context, node, loopIndex + 1);
+    context.referenceTableStack.pop();
+
+    if (guard != null) {
+      Block producing = new Block(table.fork());
+      producing.addStatement(new ReturnStatement(produced));
+      block.addStatement(new ConditionalBranching(guard, producing, (Block) null));
+      block.addStatement(new ReturnStatement(new FunctionInvocation("gololang.LazyList.EMPTY")));
+    } else {
+      block.addStatement(new ReturnStatement(produced));
+    }
+
+    FunctionInvocation comprehension = new FunctionInvocation(LAZY_COMPREHENSION_SUPPORT + ".comprehension");
+    comprehension.addArgument(iterator);
+    comprehension.addArgument(new ClosureReference(step));
+    return comprehension;
+  }
+
+  private static boolean isArrayBacked(CollectionLiteral.Type type) {
+    return type == CollectionLiteral.Type.list || type == CollectionLiteral.Type.vector;
+  }
+
   @Override
   public Object visit(ASTReference node, Object data) {
     Context context = (Context) data;
@@ -958,6 +1046,12 @@ class ParseTreeToGoloIrVisitor implements GoloParserVisitor {
     String iteratorId = syntheticName("iterator");
     LocalReference iteratorReference = new LocalReference(VARIABLE, iteratorId, true);
     localTable.add(iteratorReference);
+    LocalReference indexReference = new LocalReference(VARIABLE, syntheticName("index"), true);
+    indexReference.setType(int.class);
+    localTable.add(indexReference);
+    LocalReference sizeReference = new LocalReference(VARIABLE, syntheticName("size"), true);
+    sizeReference.setType(int.class);
+    localTable.add(sizeReference);
 
     context.referenceTableStack.push(localTable);
     node.jjtGetChild(0).jjtAccept(this, data);
@@ -1022,58 +1116,27 @@ class ParseTreeToGoloIrVisitor implements GoloParserVisitor {
             new MethodInvocation("hasNext"));
     condition.setASTNode(node);
 
+    BinaryOperation nextOperation =
+        new BinaryOperation(
+            OperatorType.METHOD_CALL,
+            new ReferenceLookup(iteratorId),
+            new MethodInvocation("next"));
+
     if (node.getElementIdentifier() != null) {
       LocalReference elementReference = new LocalReference(VARIABLE, node.getElementIdentifier());
       localTable.add(elementReference);
 
-      AssignmentStatement next = new AssignmentStatement(
-          elementReference,
-          new BinaryOperation(
-              OperatorType.METHOD_CALL,
-              new ReferenceLookup(iteratorId),
-              new MethodInvocation("next"))
-      );
+      AssignmentStatement next = new AssignmentStatement(elementReference, nextOperation);
       next.setDeclaring(true);
       next.setASTNode(node);
       block.prependStatement(next);
     } else if (!node.getNames().isEmpty()) {
-      Deque<AssignmentStatement> inits = new LinkedList<AssignmentStatement>();
-      String tmpName = syntheticName("destruct");
-      LocalReference destructReference = new LocalReference(VARIABLE, tmpName, true);
-      localTable.add(destructReference);
-      AssignmentStatement next = new AssignmentStatement(destructReference,
-                                    new BinaryOperation(OperatorType.METHOD_CALL,
-                                        new ReferenceLookup(iteratorId),
-                                        new BinaryOperation(OperatorType.METHOD_CALL,
-                                          new MethodInvocation("next"),
-                                          new MethodInvocation("destruct"))));
-      next.setDeclaring(true);
-      next.setASTNode(node);
-
-      inits.push(next);
-
-      int idx = 0;
-      int last = node.getNames().size() - 1;
-      for (String name : node.getNames()) {
-        LocalReference val = new LocalReference(VARIABLE, name, true);
-        MethodInvocation get = new MethodInvocation(!node.isVarargs() || idx != last ? "get" : "subTuple");
-        get.addArgument(new ConstantStatement(idx));
-        localTable.add(val);
-        AssignmentStatement valInit = new AssignmentStatement(val,
-                      new BinaryOperation(OperatorType.METHOD_CALL,
-                          new ReferenceLookup(tmpName), get));
-        inits.push(valInit);
-        idx++;
-      }
-
-      while (!inits.isEmpty()) {
-        block.prependStatement(inits.pop());
-      }
+      prependDestructuring(node, localTable, block, nextOperation);
     } else {
       throw new IllegalStateException();
     }
 
-    LoopStatement loopStatement = new LoopStatement(init, condition, block, null);
+    LoopStatement loopStatement = new ForEachLoopStatement(init, condition, block, indexReference.getName(), sizeReference.getName(), nextOperation);
     loopStatement.setHasWhen(hasWhen);
     Block localBlock = new Block(localTable);
     localBlock.addStatement(loopStatement);
@@ -1084,6 +1147,40 @@ class ParseTreeToGoloIrVisitor implements GoloParserVisitor {
     return data;
   }
 
+  private void prependDestructuring(ASTForEachLoop node, ReferenceTable localTable, Block block, ExpressionStatement value) {
+    Deque<AssignmentStatement> inits = new LinkedList<AssignmentStatement>();
+    String tmpName = syntheticName("destruct");
+    LocalReference destructReference = new LocalReference(VARIABLE, tmpName, true);
+    localTable.add(destructReference);
+    AssignmentStatement next = new AssignmentStatement(destructReference,
+                                  new BinaryOperation(OperatorType.METHOD_CALL,
+                                      value,
+                                      new MethodInvocation("destruct")));
+    next.setDeclaring(true);
+    next.setASTNode(node);
+
+    inits.push(next);
+
+    int idx = 0;
+    int last = node.getNames().size() - 1;
+    for (String name : node.getNames()) {
+      LocalReference val = new LocalReference(VARIABLE, name, true);
+      MethodInvocation get = new MethodInvocation(!node.isVarargs() || idx != last ? "get" : "subTuple");
+      get.addArgument(new ConstantStatement(idx));
+      localTable.add(val);
+      AssignmentStatement valInit = new AssignmentStatement(val,
+                    new BinaryOperation(OperatorType.METHOD_CALL,
+                        new ReferenceLookup(tmpName), get));
+      valInit.setDeclaring(true);
+      inits.push(valInit);
+      idx++;
+    }
+
+    while (!inits.isEmpty()) {
+      block.prependStatement(inits.pop());
+    }
+  }
+
   @Override
   public Object visit(ASTTryCatchFinally node, Object data) {
     Context context = (Context) data;
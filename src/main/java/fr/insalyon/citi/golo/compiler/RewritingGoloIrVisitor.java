@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static fr.insalyon.citi.golo.runtime.OperatorType.*;
+
+/*
+ * Base of the optimization passes: a bottom-up traversal of the functions of a module where operations and
+ * statements can be replaced by the hooks. Expressions that stand as statements of a block are kept as they
+ * are, as the bytecode generation pops their values depending on their kind, but their operands get
+ * rewritten. Closures are module functions, hence they are rewritten on their own.
+ */
+abstract class RewritingGoloIrVisitor implements GoloIrVisitor {
+
+  private GoloStatement result;
+
+  void optimize(GoloModule module) {
+    module.accept(this);
+  }
+
+  protected ExpressionStatement rewriteBinaryOperation(BinaryOperation operation) {
+    return operation;
+  }
+
+  protected ExpressionStatement rewriteUnaryOperation(UnaryOperation operation) {
+    return operation;
+  }
+
+  protected ExpressionStatement rewriteFunctionInvocation(FunctionInvocation invocation) {
+    return invocation;
+  }
+
+  /* Returns the branching, a block to replace it with, or null to remove it */
+  protected GoloStatement rewriteConditionalBranching(ConditionalBranching branching) {
+    return branching;
+  }
+
+  /* Returns the loop, a statement to replace it with, or null to remove it */
+  protected GoloStatement rewriteLoopStatement(LoopStatement loop) {
+    return loop;
+  }
+
+  protected void rewriteBlock(Block block) {
+  }
+
+  protected final ExpressionStatement rewrite(ExpressionStatement expression) {
+    return (ExpressionStatement) rewriteStatement(expression);
+  }
+
+  private GoloStatement rewriteStatement(GoloStatement statement) {
+    result = statement;
+    statement.accept(this);
+    return result;
+  }
+
+  static boolean isConstant(ExpressionStatement expression, Object value) {
+    return (expression instanceof ConstantStatement) && value.equals(((ConstantStatement) expression).getValue());
+  }
+
+  static boolean isBoolean(ExpressionStatement expression) {
+    if (expression instanceof ConstantStatement) {
+      return ((ConstantStatement) expression).getValue() instanceof Boolean;
+    }
+    if (expression instanceof UnaryOperation) {
+      return ((UnaryOperation) expression).getType() == NOT;
+    }
+    if (expression instanceof BinaryOperation) {
+      switch (((BinaryOperation) expression).getType()) {
+        case EQUALS:
+        case NOTEQUALS:
+        case LESS:
+        case LESSOREQUALS:
+        case MORE:
+        case MOREOREQUALS:
+        case AND:
+        case OR:
+        case IS:
+        case ISNT:
+        case OFTYPE:
+          return true;
+        default:
+          return false;
+      }
+    }
+    return false;
+  }
+
+  static ConstantStatement constant(Object value, GoloElement origin) {
+    ConstantStatement constant = new ConstantStatement(value);
+    if (origin.hasASTNode()) {
+      constant.setASTNode(origin.getASTNode());
+    }
+    return constant;
+  }
+
+  @Override
+  public void visitModule(GoloModule module) {
+    for (GoloFunction function : module.getFunctions()) {
+      function.accept(this);
+    }
+    for (Collection<GoloFunction> functions : module.getAugmentations().values()) {
+      for (GoloFunction function : functions) {
+        function.accept(this);
+      }
+    }
+    for (Collection<GoloFunction> functions : module.getNamedAugmentations().values()) {
+      for (GoloFunction function : functions) {
+        function.accept(this);
+      }
+    }
+  }
+
+  @Override
+  public void visitFunction(GoloFunction function) {
+    function.getBlock().accept(this);
+  }
+
+  @Override
+  public void visitDecorator(Decorator decorator) {
+  }
+
+  @Override
+  public void visitBlock(Block block) {
+    for (GoloStatement statement : new ArrayList<>(block.getStatements())) {
+      GoloStatement replacement = rewriteStatement(statement);
+      if (statement instanceof ExpressionStatement) {
+        continue;
+      }
+      if (replacement == null) {
+        block.removeStatement(statement);
+      } else if (replacement != statement) {
+        block.replaceStatement(statement, replacement);
+      }
+    }
+    rewriteBlock(block);
+    result = block;
+  }
+
+  @Override
+  public void visitConstantStatement(ConstantStatement constantStatement) {
+  }
+
+  @Override
+  public void visitReturnStatement(ReturnStatement returnStatement) {
+    GoloStatement expression = returnStatement.getExpressionStatement();
+    if (expression instanceof ExpressionStatement) {
+      returnStatement.setExpressionStatement(rewrite((ExpressionStatement) expression));
+    }
+    result = returnStatement;
+  }
+
+  @Override
+  public void visitFunctionInvocation(FunctionInvocation functionInvocation) {
+    rewriteArguments(functionInvocation);
+    result = rewriteFunctionInvocation(functionInvocation);
+  }
+
+  @Override
+  public void visitAssignmentStatement(AssignmentStatement assignmentStatement) {
+    assignmentStatement.setExpressionStatement(rewrite(assignmentStatement.getExpressionStatement()));
+    result = assignmentStatement;
+  }
+
+  @Override
+  public void visitReferenceLookup(ReferenceLookup referenceLookup) {
+  }
+
+  @Override
+  public void visitConditionalBranching(ConditionalBranching conditionalBranching) {
+    conditionalBranching.setCondition(rewrite(conditionalBranching.getCondition()));
+    conditionalBranching.getTrueBlock().accept(this);
+    if (conditionalBranching.hasFalseBlock()) {
+      conditionalBranching.getFalseBlock().accept(this);
+    } else if (conditionalBranching.hasElseConditionalBranching()) {
+      GoloStatement replacement = rewriteStatement(conditionalBranching.getElseConditionalBranching());
+      if (replacement instanceof ConditionalBranching) {
+        conditionalBranching.setElseConditionalBranching((ConditionalBranching) replacement);
+      } else {
+        conditionalBranching.setFalseBlock((Block) replacement);
+      }
+    }
+    result = rewriteConditionalBranching(conditionalBranching);
+  }
+
+  @Override
+  public void visitBinaryOperation(BinaryOperation binaryOperation) {
+    binaryOperation.setLeftExpression(rewrite(binaryOperation.getLeftExpression()));
+    binaryOperation.setRightExpression(rewrite(binaryOperation.getRightExpression()));
+    result = rewriteBinaryOperation(binaryOperation);
+  }
+
+  @Override
+  public void visitUnaryOperation(UnaryOperation unaryOperation) {
+    unaryOperation.setExpressionStatement(rewrite(unaryOperation.getExpressionStatement()));
+    result = rewriteUnaryOperation(unaryOperation);
+  }
+
+  @Override
+  public void visitLoopStatement(LoopStatement loopStatement) {
+    if (loopStatement.hasInitStatement()) {
+      loopStatement.getInitStatement().accept(this);
+    }
+    loopStatement.setConditionStatement(rewrite(loopStatement.getConditionStatement()));
+    loopStatement.getBlock().accept(this);
+    if (loopStatement.hasPostStatement()) {
+      loopStatement.getPostStatement().accept(this);
+    }
+    result = rewriteLoopStatement(loopStatement);
+  }
+
+  @Override
+  public void visitMethodInvocation(MethodInvocation methodInvocation) {
+    rewriteArguments(methodInvocation);
+    result = methodInvocation;
+  }
+
+  @Override
+  public void visitThrowStatement(ThrowStatement throwStatement) {
+    GoloStatement expression = throwStatement.getExpressionStatement();
+    if (expression instanceof ExpressionStatement) {
+      throwStatement.setExpressionStatement(rewrite((ExpressionStatement) expression));
+    }
+    result = throwStatement;
+  }
+
+  @Override
+  public void visitTryCatchFinally(TryCatchFinally tryCatchFinally) {
+    tryCatchFinally.getTryBlock().accept(this);
+    if (tryCatchFinally.hasCatchBlock()) {
+      tryCatchFinally.getCatchBlock().accept(this);
+    }
+    if (tryCatchFinally.hasFinallyBlock()) {
+      tryCatchFinally.getFinallyBlock().accept(this);
+    }
+    result = tryCatchFinally;
+  }
+
+  @Override
+  public void visitClosureReference(ClosureReference closureReference) {
+  }
+
+  @Override
+  public void visitLoopBreakFlowStatement(LoopBreakFlowStatement loopBreakFlowStatement) {
+  }
+
+  @Override
+  public void visitCollectionLiteral(CollectionLiteral collectionLiteral) {
+    List<ExpressionStatement> expressions = collectionLiteral.getExpressions();
+    for (int i = 0; i < expressions.size(); i++) {
+      expressions.set(i, rewrite(expressions.get(i)));
+    }
+    result = collectionLiteral;
+  }
+
+  private void rewriteArguments(AbstractInvocation invocation) {
+    List<ExpressionStatement> arguments = invocation.getArguments();
+    for (int i = 0; i < arguments.size(); i++) {
+      ExpressionStatement argument = arguments.get(i);
+      if (argument instanceof NamedArgument) {
+        NamedArgument namedArgument = (NamedArgument) argument;
+        namedArgument.setExpression(rewrite(namedArgument.getExpression()));
+      } else {
+        invocation.setArgument(i, rewrite(argument));
+      }
+    }
+    for (FunctionInvocation anonymousInvocation : invocation.getAnonymousFunctionInvocations()) {
+      rewriteArguments(anonymousInvocation);
+    }
+  }
+}
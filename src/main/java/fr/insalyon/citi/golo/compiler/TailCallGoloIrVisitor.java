@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler;
+
+import fr.insalyon.citi.golo.compiler.ir.*;
+
+import java.util.List;
+import java.util.Map;
+
+import static fr.insalyon.citi.golo.compiler.JavaBytecodeGenerationGoloIrVisitor.directCallTargets;
+
+/*
+ * Marks the calls of module functions to themselves whose value is returned right away, either directly or
+ * as the value of a match expression. The bytecode generation turns them into jumps back to the start of
+ * the function once the arguments are stored in the parameters, so that such recursions run in constant
+ * stack space. Only calls that resolve to the function itself qualify, as for the INVOKESTATIC calls, and
+ * the returns of try and catch blocks are left alone so that the exception handlers keep their ranges.
+ */
+final class TailCallGoloIrVisitor extends RewritingGoloIrVisitor {
+
+  private Map<String, GoloFunction> targets;
+  private GoloFunction current;
+
+  @Override
+  public void visitModule(GoloModule module) {
+    targets = directCallTargets(module.getFunctions());
+    for (GoloFunction function : module.getFunctions()) {
+      if (!function.isSynthetic()) {
+        function.accept(this);
+      }
+    }
+  }
+
+  @Override
+  public void visitFunction(GoloFunction function) {
+    current = function;
+    super.visitFunction(function);
+  }
+
+  @Override
+  public void visitReturnStatement(ReturnStatement returnStatement) {
+    markTailCalls(returnStatement.getExpressionStatement());
+    super.visitReturnStatement(returnStatement);
+  }
+
+  /* A jump out of a protected range would skip the finally block and leave the handlers active */
+  @Override
+  public void visitTryCatchFinally(TryCatchFinally tryCatchFinally) {
+  }
+
+  private void markTailCalls(GoloStatement statement) {
+    if (statement instanceof FunctionInvocation) {
+      FunctionInvocation invocation = (FunctionInvocation) statement;
+      if (isSelfCall(invocation)) {
+        invocation.setTailCall(true);
+      }
+    } else if (statement instanceof Block) {
+      List<GoloStatement> statements = ((Block) statement).getStatements();
+      int size = statements.size();
+      if (size >= 2 && statements.get(size - 1) instanceof ReferenceLookup) {
+        String name = ((ReferenceLookup) statements.get(size - 1)).getName();
+        markAssignedTailCalls(statements.get(size - 2), name);
+      }
+    }
+  }
+
+  /* Match expressions assign their value to a local in each branch, then return it */
+  private void markAssignedTailCalls(GoloStatement statement, String name) {
+    if (statement instanceof AssignmentStatement) {
+      AssignmentStatement assignment = (AssignmentStatement) statement;
+      if (assignment.getLocalReference().getName().equals(name)) {
+        markTailCalls(assignment.getExpressionStatement());
+      }
+    } else if (statement instanceof ConditionalBranching) {
+      ConditionalBranching branching = (ConditionalBranching) statement;
+      markAssignedTailCalls(branching.getTrueBlock(), name);
+      if (branching.hasFalseBlock()) {
+        markAssignedTailCalls(branching.getFalseBlock(), name);
+      } else if (branching.hasElseConditionalBranching()) {
+        markAssignedTailCalls(branching.getElseConditionalBranching(), name);
+      }
+    } else if (statement instanceof Block) {
+      List<GoloStatement> statements = ((Block) statement).getStatements();
+      if (!statements.isEmpty()) {
+        markAssignedTailCalls(statements.get(statements.size() - 1), name);
+      }
+    }
+  }
+
+  private boolean isSelfCall(FunctionInvocation invocation) {
+    if (invocation.isOnReference() || invocation.isOnModuleState() || invocation.isAnonymous()
+        || invocation.isConstant() || invocation.usesNamedArguments()
+        || !invocation.getAnonymousFunctionInvocations().isEmpty()) {
+      return false;
+    }
+    return targets.get(invocation.getName() + "/" + invocation.getArity()) == current;
+  }
+}
@@ -33,6 +33,10 @@ public abstract class AbstractInvocation extends ExpressionStatement {
     arguments.add(argument);
   }
 
+  public void setArgument(int index, ExpressionStatement argument) {
+    arguments.set(index, argument);
+  }
+
   public List<ExpressionStatement> getArguments() {
     return Collections.unmodifiableList(arguments);
   }
@@ -12,7 +12,7 @@ package fr.insalyon.citi.golo.compiler.ir;
 public class AssignmentStatement extends GoloStatement {
 
   private LocalReference localReference;
-  private final ExpressionStatement expressionStatement;
+  private ExpressionStatement expressionStatement;
   private boolean declaring = false;
 
   public AssignmentStatement(LocalReference localReference, ExpressionStatement expressionStatement) {
@@ -41,6 +41,10 @@ public class AssignmentStatement extends GoloStatement {
     return expressionStatement;
   }
 
+  public void setExpressionStatement(ExpressionStatement expressionStatement) {
+    this.expressionStatement = expressionStatement;
+  }
+
   @Override
   public void accept(GoloIrVisitor visitor) {
     visitor.visitAssignmentStatement(this);
@@ -14,8 +14,8 @@ import fr.insalyon.citi.golo.runtime.OperatorType;
 public class BinaryOperation extends ExpressionStatement {
 
   private final OperatorType type;
-  private final ExpressionStatement leftExpression;
-  private final ExpressionStatement rightExpression;
+  private ExpressionStatement leftExpression;
+  private ExpressionStatement rightExpression;
 
   public BinaryOperation(OperatorType type, ExpressionStatement leftExpression, ExpressionStatement rightExpression) {
     super();
@@ -32,10 +32,18 @@ public class BinaryOperation extends ExpressionStatement {
     return leftExpression;
   }
 
+  public void setLeftExpression(ExpressionStatement leftExpression) {
+    this.leftExpression = leftExpression;
+  }
+
   public ExpressionStatement getRightExpression() {
     return rightExpression;
   }
 
+  public void setRightExpression(ExpressionStatement rightExpression) {
+    this.rightExpression = rightExpression;
+  }
+
   @Override
   public void accept(GoloIrVisitor visitor) {
     visitor.visitBinaryOperation(this);
@@ -48,11 +48,30 @@ public final class Block extends ExpressionStatement {
     checkForReturns(statement);
   }
 
+  public void replaceStatement(GoloStatement statement, GoloStatement replacement) {
+    statements.set(statements.indexOf(statement), replacement);
+    recheckForReturns();
+  }
+
+  public void removeStatement(GoloStatement statement) {
+    statements.remove(statement);
+    recheckForReturns();
+  }
+
+  private void recheckForReturns() {
+    hasReturn = false;
+    for (GoloStatement statement : statements) {
+      checkForReturns(statement);
+    }
+  }
+
   private void checkForReturns(GoloStatement statement) {
     if ((statement instanceof ReturnStatement) || (statement instanceof ThrowStatement)) {
       hasReturn = true;
     } else if (statement instanceof ConditionalBranching) {
       hasReturn = hasReturn || ((ConditionalBranching) statement).returnsFromBothBranches();
+    } else if (statement instanceof Block) {
+      hasReturn = hasReturn || ((Block) statement).hasReturn();
     }
   }
 
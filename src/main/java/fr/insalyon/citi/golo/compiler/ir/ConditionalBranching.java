@@ -11,10 +11,10 @@ package fr.insalyon.citi.golo.compiler.ir;
 
 public final class ConditionalBranching extends GoloStatement {
 
-  private final ExpressionStatement condition;
+  private ExpressionStatement condition;
   private final Block trueBlock;
-  private final ConditionalBranching elseConditionalBranching;
-  private final Block falseBlock;
+  private ConditionalBranching elseConditionalBranching;
+  private Block falseBlock;
 
   public ConditionalBranching(ExpressionStatement condition, Block trueBlock, Block falseBlock) {
     super();
@@ -36,6 +36,10 @@ public final class ConditionalBranching extends GoloStatement {
     return condition;
   }
 
+  public void setCondition(ExpressionStatement condition) {
+    this.condition = condition;
+  }
+
   public Block getTrueBlock() {
     return trueBlock;
   }
@@ -44,6 +48,11 @@ public final class ConditionalBranching extends GoloStatement {
     return falseBlock;
   }
 
+  public void setFalseBlock(Block falseBlock) {
+    this.falseBlock = falseBlock;
+    this.elseConditionalBranching = null;
+  }
+
   public boolean hasFalseBlock() {
     return falseBlock != null;
   }
@@ -52,6 +61,11 @@ public final class ConditionalBranching extends GoloStatement {
     return elseConditionalBranching;
   }
 
+  public void setElseConditionalBranching(ConditionalBranching elseConditionalBranching) {
+    this.elseConditionalBranching = elseConditionalBranching;
+    this.falseBlock = null;
+  }
+
   public boolean hasElseConditionalBranching() {
     return elseConditionalBranching != null;
   }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.compiler.ir;
+
+public final class ForEachLoopStatement extends LoopStatement {
+
+  private final String indexName;
+  private final String sizeName;
+  private final BinaryOperation nextOperation;
+  private String presizedName;
+
+  public ForEachLoopStatement(AssignmentStatement initStatement, ExpressionStatement conditionStatement, Block block,
+                              String indexName, String sizeName, BinaryOperation nextOperation) {
+    super(initStatement, conditionStatement, block, null);
+    this.indexName = indexName;
+    this.sizeName = sizeName;
+    this.nextOperation = nextOperation;
+  }
+
+  public String getIndexName() {
+    return indexName;
+  }
+
+  public String getSizeName() {
+    return sizeName;
+  }
+
+  public BinaryOperation getNextOperation() {
+    return nextOperation;
+  }
+
+  public String getPresizedName() {
+    return presizedName;
+  }
+
+  public void setPresizedName(String presizedName) {
+    this.presizedName = presizedName;
+  }
+}
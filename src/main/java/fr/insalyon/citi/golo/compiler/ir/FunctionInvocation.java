@@ -15,6 +15,7 @@ public class FunctionInvocation extends AbstractInvocation {
   private boolean onModuleState = false;
   private boolean anonymous = false;
   private boolean constant = false;
+  private boolean tailCall = false;
 
   public FunctionInvocation() {
     super("anonymous");
@@ -53,6 +54,14 @@ public class FunctionInvocation extends AbstractInvocation {
     this.constant = constant;
   }
 
+  public boolean isTailCall() {
+    return tailCall;
+  }
+
+  public void setTailCall(boolean tailCall) {
+    this.tailCall = tailCall;
+  }
+
   @Override
   public void accept(GoloIrVisitor visitor) {
     visitor.visitFunctionInvocation(this);
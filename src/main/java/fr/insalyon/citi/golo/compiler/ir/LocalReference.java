@@ -20,6 +20,7 @@ public final class LocalReference {
   private final boolean synthetic;
 
   private int index = -1;
+  private Class<?> type = Object.class;
 
   public LocalReference(Kind kind, String name) {
     this.kind = kind;
@@ -57,12 +58,25 @@ public final class LocalReference {
     this.index = index;
   }
 
+  public Class<?> getType() {
+    return type;
+  }
+
+  public void setType(Class<?> type) {
+    this.type = type;
+  }
+
+  public boolean isPrimitive() {
+    return type.isPrimitive();
+  }
+
   @Override
   public String toString() {
     return "LocalReference{" +
         "kind=" + kind +
         ", name='" + name + '\'' +
         ", index=" + index +
+        (isPrimitive() ? ", type=" + type : "") +
         '}';
   }
 
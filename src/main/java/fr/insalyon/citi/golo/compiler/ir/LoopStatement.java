@@ -12,7 +12,7 @@ package fr.insalyon.citi.golo.compiler.ir;
 public class LoopStatement extends GoloStatement {
 
   private final AssignmentStatement initStatement;
-  private final ExpressionStatement conditionStatement;
+  private ExpressionStatement conditionStatement;
   private final GoloStatement postStatement;
   private final Block block;
   private boolean hasWhen = false;
@@ -29,6 +29,10 @@ public class LoopStatement extends GoloStatement {
     this.hasWhen = hw;
   }
 
+  public boolean hasWhen() {
+    return hasWhen;
+  }
+
   public boolean hasInitStatement() {
     return initStatement != null;
   }
@@ -41,6 +45,10 @@ public class LoopStatement extends GoloStatement {
     return conditionStatement;
   }
 
+  public void setConditionStatement(ExpressionStatement conditionStatement) {
+    this.conditionStatement = conditionStatement;
+  }
+
   public Block getBlock() {
     return block;
   }
@@ -11,7 +11,7 @@ package fr.insalyon.citi.golo.compiler.ir;
 
 public class ReturnStatement extends GoloStatement {
 
-  private final GoloStatement expressionStatement;
+  private GoloStatement expressionStatement;
   private boolean returningVoid;
 
   public ReturnStatement(ExpressionStatement expressionStatement) {
@@ -24,6 +24,10 @@ public class ReturnStatement extends GoloStatement {
     return expressionStatement;
   }
 
+  public void setExpressionStatement(GoloStatement expressionStatement) {
+    this.expressionStatement = expressionStatement;
+  }
+
   public boolean isReturningVoid() {
     return returningVoid;
   }
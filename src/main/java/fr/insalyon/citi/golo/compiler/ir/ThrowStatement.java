@@ -11,7 +11,7 @@ package fr.insalyon.citi.golo.compiler.ir;
 
 public class ThrowStatement extends GoloStatement {
 
-  private final GoloStatement expressionStatement;
+  private GoloStatement expressionStatement;
 
   public ThrowStatement(GoloStatement expressionStatement) {
     super();
@@ -26,4 +26,8 @@ public class ThrowStatement extends GoloStatement {
   public GoloStatement getExpressionStatement() {
     return expressionStatement;
   }
+
+  public void setExpressionStatement(GoloStatement expressionStatement) {
+    this.expressionStatement = expressionStatement;
+  }
 }
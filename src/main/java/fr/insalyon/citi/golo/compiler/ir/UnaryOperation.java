@@ -14,7 +14,7 @@ import fr.insalyon.citi.golo.runtime.OperatorType;
 public class UnaryOperation extends ExpressionStatement {
 
   private final OperatorType type;
-  private final ExpressionStatement expressionStatement;
+  private ExpressionStatement expressionStatement;
 
   public UnaryOperation(OperatorType type, ExpressionStatement expressionStatement) {
     super();
@@ -26,6 +26,10 @@ public class UnaryOperation extends ExpressionStatement {
     return expressionStatement;
   }
 
+  public void setExpressionStatement(ExpressionStatement expressionStatement) {
+    this.expressionStatement = expressionStatement;
+  }
+
   public OperatorType getType() {
     return type;
   }
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static fr.insalyon.citi.golo.runtime.ClassLoading.tryLoading;
+import static fr.insalyon.citi.golo.runtime.DecoratorsHelper.isMethodDecorated;
+import static java.lang.reflect.Modifier.isAbstract;
+import static java.lang.reflect.Modifier.isPublic;
+
+/*
+ * The augmentations visible from a module, in lookup order: those applied by the module itself, then those
+ * applied by its imports, each following the finding strategies in order. The index is built on the first
+ * augmented method lookup from a module and rebuilt once classes get defined since, as augmentations that
+ * were missing may then be available. Lookups are memoized on the receiver class, method name and arity.
+ */
+final class AugmentationIndex {
+
+  private static final Method[] NO_METHODS = new Method[]{};
+
+  private static final ClassValue<AugmentationIndex> INDEXES = new ClassValue<AugmentationIndex>() {
+    @Override
+    protected AugmentationIndex computeValue(Class<?> callerClass) {
+      return new AugmentationIndex(callerClass);
+    }
+  };
+
+  private static final ClassValue<Map<String, Method[]>> METHODS = new ClassValue<Map<String, Method[]>>() {
+    @Override
+    protected Map<String, Method[]> computeValue(Class<?> augmentation) {
+      Map<String, List<Method>> byName = new HashMap<>();
+      for (Method method : augmentation.getMethods()) {
+        if (isPublic(method.getModifiers()) && !isAbstract(method.getModifiers())) {
+          byName.computeIfAbsent(method.getName(), name -> new ArrayList<>()).add(method);
+        }
+      }
+      Map<String, Method[]> methods = new HashMap<>();
+      for (Map.Entry<String, List<Method>> entry : byName.entrySet()) {
+        methods.put(entry.getKey(), entry.getValue().toArray(NO_METHODS));
+      }
+      return methods;
+    }
+  };
+
+  static AugmentationIndex of(Class<?> callerClass) {
+    return INDEXES.get(callerClass);
+  }
+
+  private final Class<?> callerClass;
+  private final ClassLoader classLoader;
+  private volatile Snapshot snapshot;
+
+  private AugmentationIndex(Class<?> callerClass) {
+    this.callerClass = callerClass;
+    this.classLoader = callerClass.getClassLoader();
+  }
+
+  Method find(Class<?> receiverClass, String methodName, int arity) {
+    Snapshot current = snapshot;
+    long generation = ClassLoading.generation();
+    if (current == null || current.generation != generation) {
+      current = new Snapshot(generation, entries());
+      snapshot = current;
+    }
+    return current.find(receiverClass, methodName, arity);
+  }
+
+  /**
+   * Search strategy for augmentation methods.
+   *
+   * Used by the index to list the augmentation classes according to the way the augmentation is defined
+   * and applied.
+   *
+   * To add a search strategy, create a new class implementing this interface and add an instance to the
+   * {@code STRATEGIES} attribute of the index.
+   *
+   * Strategies are tried in the order defined in the {@code STRATEGIES} attribute.
+   */
+  interface FindingStrategy {
+
+    /**
+     * Lists the classes that may define augmentation methods for the given augmented class target.
+     *
+     * @param definingModule the module in which the augmentation is applied (but not necessarily defined).
+     * @param augmentedClass the augmented class, on which the method was invoked.
+     * @return the augmentation class names, in lookup order.
+     */
+    List<String> augmentations(Class<?> definingModule, Class<?> augmentedClass);
+
+    /**
+     * Lists the targets (class names) of the augmentations applied in this module
+     */
+    String[] targets(Class<?> definingModule);
+  }
+
+  private static class SimpleAugmentationStrategy implements FindingStrategy {
+
+    @Override
+    public List<String> augmentations(Class<?> definingModule, Class<?> augmentedClass) {
+      return Collections.singletonList(definingModule.getName() + "$" + augmentedClass.getName().replace('.', '$'));
+    }
+
+    @Override
+    public String[] targets(Class<?> definingModule) {
+      return Module.augmentations(definingModule);
+    }
+  }
+
+  private static class NamedAugmentationStrategy implements FindingStrategy {
+
+    protected String augmentationClassName(Class<?> definingModule, String augmentationName) {
+      return definingModule.getName() + "$" + augmentationName;
+    }
+
+    @Override
+    public List<String> augmentations(Class<?> definingModule, Class<?> augmentedClass) {
+      List<String> augmentations = new ArrayList<>();
+      for (String augmentationName : Module.augmentationApplications(definingModule, augmentedClass)) {
+        augmentations.add(augmentationClassName(definingModule, augmentationName));
+      }
+      return augmentations;
+    }
+
+    @Override
+    public String[] targets(Class<?> definingModule) {
+      return Module.augmentationApplications(definingModule);
+    }
+  }
+
+  private static class ExternalFQNAugmentationStrategy extends NamedAugmentationStrategy {
+
+    @Override
+    protected String augmentationClassName(Class<?> definingModule, String augmentationName) {
+      int idx = augmentationName.lastIndexOf(".");
+      if (idx == -1) { return augmentationName; }
+      return (new StringBuilder(augmentationName)).replace(idx, idx+1, "$").toString();
+    }
+  }
+
+  private static class ImportedExternalNamedAugmentationStrategy implements FindingStrategy {
+
+    @Override
+    public List<String> augmentations(Class<?> definingModule, Class<?> augmentedClass) {
+      List<String> augmentations = new ArrayList<>();
+      for (String augmentationName : Module.augmentationApplications(definingModule, augmentedClass)) {
+        for (String importSymbol : Module.imports(definingModule)) {
+          augmentations.add(importSymbol + "$" + augmentationName);
+        }
+      }
+      return augmentations;
+    }
+
+    @Override
+    public String[] targets(Class<?> definingModule) {
+      return Module.augmentationApplications(definingModule);
+    }
+  }
+
+  private static final FindingStrategy[] STRATEGIES = {
+    new SimpleAugmentationStrategy(),
+    new NamedAugmentationStrategy(),
+    new ExternalFQNAugmentationStrategy(),
+    new ImportedExternalNamedAugmentationStrategy()
+  };
+
+  private List<Entry> entries() {
+    List<Entry> entries = new ArrayList<>();
+    for (FindingStrategy strategy : STRATEGIES) {
+      addEntries(entries, callerClass, strategy);
+    }
+    for (FindingStrategy strategy : STRATEGIES) {
+      for (String importSymbol : Module.imports(callerClass)) {
+        Class<?> importedClass = tryLoading(importSymbol, classLoader, false);
+        if (importedClass != null) {
+          addEntries(entries, importedClass, strategy);
+        }
+      }
+    }
+    return entries;
+  }
+
+  private void addEntries(List<Entry> entries, Class<?> definingModule, FindingStrategy strategy) {
+    for (String target : strategy.targets(definingModule)) {
+      Class<?> augmentedClass = tryLoading(target, classLoader, false);
+      if (augmentedClass != null) {
+        for (String augmentation : strategy.augmentations(definingModule, augmentedClass)) {
+          entries.add(new Entry(augmentedClass, augmentation));
+        }
+      }
+    }
+  }
+
+  private final class Entry {
+
+    final Class<?> augmentedClass;
+    final String augmentation;
+    volatile Map<String, Method[]> methods;
+
+    Entry(Class<?> augmentedClass, String augmentation) {
+      this.augmentedClass = augmentedClass;
+      this.augmentation = augmentation;
+    }
+
+    Method[] methods(String methodName) {
+      Map<String, Method[]> table = methods;
+      if (table == null) {
+        Class<?> augmentationClass = tryLoading(augmentation, classLoader, false);
+        table = (augmentationClass == null) ? Collections.<String, Method[]>emptyMap() : METHODS.get(augmentationClass);
+        methods = table;
+      }
+      return table.getOrDefault(methodName, NO_METHODS);
+    }
+  }
+
+  private static final class Query {
+
+    final Class<?> receiverClass;
+    final String methodName;
+    final int arity;
+
+    Query(Class<?> receiverClass, String methodName, int arity) {
+      this.receiverClass = receiverClass;
+      this.methodName = methodName;
+      this.arity = arity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) { return true; }
+      if (!(o instanceof Query)) { return false; }
+      Query other = (Query) o;
+      return receiverClass == other.receiverClass && arity == other.arity && methodName.equals(other.methodName);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * receiverClass.hashCode() + methodName.hashCode()) + arity;
+    }
+  }
+
+  private static final class Snapshot {
+
+    final long generation;
+    final Entry[] entries;
+    final ConcurrentHashMap<Query, Optional<Method>> lookups = new ConcurrentHashMap<>();
+
+    Snapshot(long generation, List<Entry> entries) {
+      this.generation = generation;
+      this.entries = entries.toArray(new Entry[entries.size()]);
+    }
+
+    Method find(Class<?> receiverClass, String methodName, int arity) {
+      Query query = new Query(receiverClass, methodName, arity);
+      Optional<Method> method = lookups.get(query);
+      if (method == null) {
+        method = Optional.ofNullable(lookup(receiverClass, methodName, arity));
+        lookups.putIfAbsent(query, method);
+      }
+      return method.orElse(null);
+    }
+
+    private Method lookup(Class<?> receiverClass, String methodName, int arity) {
+      for (Entry entry : entries) {
+        if (entry.augmentedClass.isAssignableFrom(receiverClass)) {
+          for (Method method : entry.methods(methodName)) {
+            if (matchesArity(method, arity) || isMethodDecorated(method)) {
+              return method;
+            }
+          }
+        }
+      }
+      return null;
+    }
+  }
+
+  private static boolean matchesArity(Method method, int arity) {
+    int parameterCount = method.getParameterTypes().length;
+    return (parameterCount == arity) || (method.isVarArgs() && (parameterCount <= arity));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import java.lang.invoke.MutableCallSite;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Method invocation and operator call sites count their cache hits, misses and relinks. When the
+ * golo.debug.callsites system property is true, these sites are registered here, and their statistics are
+ * printed to the standard error stream when the JVM exits, the sites that miss the most coming first.
+ * Sites are weakly referenced, so that registering them does not keep their modules alive.
+ */
+public final class CallSiteStatistics {
+
+  public static final String PROPERTY = "golo.debug.callsites";
+
+  static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+  private static final Queue<WeakReference<MutableCallSite>> SITES = new ConcurrentLinkedQueue<>();
+
+  static {
+    if (enabled) {
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(report())));
+    }
+  }
+
+  private CallSiteStatistics() {
+    // utility class
+  }
+
+  static void register(MutableCallSite callSite) {
+    if (enabled) {
+      SITES.add(new WeakReference<>(callSite));
+    }
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static String report() {
+    List<MutableCallSite> sites = new ArrayList<>();
+    SITES.removeIf(reference -> {
+      MutableCallSite site = reference.get();
+      if (site == null) {
+        return true;
+      }
+      sites.add(site);
+      return false;
+    });
+    sites.sort(Comparator.comparingInt(CallSiteStatistics::misses).reversed());
+    StringBuilder report = new StringBuilder();
+    for (MutableCallSite site : sites) {
+      report.append(describe(site)).append('\n');
+    }
+    return report.toString();
+  }
+
+  private static int misses(MutableCallSite site) {
+    if (site instanceof MethodInvocationSupport.InlineCache) {
+      return ((MethodInvocationSupport.InlineCache) site).misses;
+    }
+    return ((OperatorSupport.InlineCache) site).misses;
+  }
+
+  private static String describe(MutableCallSite site) {
+    if (site instanceof MethodInvocationSupport.InlineCache) {
+      MethodInvocationSupport.InlineCache inlineCache = (MethodInvocationSupport.InlineCache) site;
+      return String.format("%s method %s %s hits=%d misses=%d resorts=%d vtableMisses=%d depth=%d megamorphic=%b",
+          inlineCache.callerLookup.lookupClass().getName(), inlineCache.name, inlineCache.type(),
+          inlineCache.hits, inlineCache.misses, inlineCache.resorts, inlineCache.vtableMisses,
+          inlineCache.depth, inlineCache.vtable != null);
+    }
+    OperatorSupport.InlineCache inlineCache = (OperatorSupport.InlineCache) site;
+    return String.format("%s operator %s %s misses=%d depth=%d megamorphic=%b",
+        inlineCache.callerLookup.lookupClass().getName(), inlineCache.name, inlineCache.type(),
+        inlineCache.misses, inlineCache.depth, inlineCache.megamorphic);
+  }
+}
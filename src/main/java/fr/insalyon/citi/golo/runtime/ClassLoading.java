@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Linkage resolves names by probing every import prefix, and most probes fail. Failures are remembered per
+ * class loader so that a missing name costs a single ClassNotFoundException. Class loaders that define
+ * classes on the fly, such as GoloClassLoader, must call forgetMissingClasses(this) when they do so, which also drops the
+ * failures seen by the class loaders that delegate to them.
+ *
+ * Only the failures that can be forgotten that way are remembered, that is, those of the class loaders that
+ * delegate to a loader that called forgetMissingClasses. Any other class loader may gain classes without
+ * telling, like a URLClassLoader given a new URL, so its probes always go through. The parents of the defining
+ * loaders are trusted not to gain classes while modules defined by them are running: a class added to one of
+ * them afterwards stays missing for the lookups made through the defining loader until it defines a class again.
+ */
+public final class ClassLoading {
+
+  private static final Map<ClassLoader, Set<String>> MISSING = Collections.synchronizedMap(new WeakHashMap<>());
+  private static final Set<ClassLoader> DEFINING = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+  private static final AtomicLong FAILED_PROBES = new AtomicLong();
+  private static final AtomicLong AVOIDED_PROBES = new AtomicLong();
+  private static final AtomicLong GENERATION = new AtomicLong();
+
+  private ClassLoading() {
+    // utility class
+  }
+
+  public static Class<?> tryLoading(String name, ClassLoader classLoader) {
+    return tryLoading(name, classLoader, true);
+  }
+
+  public static Class<?> tryLoading(String name, ClassLoader classLoader, boolean initialize) {
+    Set<String> missing = missingClasses(classLoader);
+    if (missing != null && missing.contains(name)) {
+      AVOIDED_PROBES.incrementAndGet();
+      return null;
+    }
+    try {
+      return Class.forName(name, initialize, classLoader);
+    } catch (ClassNotFoundException e) {
+      FAILED_PROBES.incrementAndGet();
+      if (missing != null) {
+        missing.add(name);
+      }
+      return null;
+    }
+  }
+
+  private static Set<String> missingClasses(ClassLoader classLoader) {
+    Set<String> missing = MISSING.get(classLoader);
+    if (missing == null && delegatesToDefiningLoader(classLoader)) {
+      missing = MISSING.computeIfAbsent(classLoader, loader -> ConcurrentHashMap.newKeySet());
+    }
+    return missing;
+  }
+
+  private static boolean delegatesToDefiningLoader(ClassLoader classLoader) {
+    for (ClassLoader current = classLoader; current != null; current = current.getParent()) {
+      if (DEFINING.contains(current)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static void forgetMissingClasses(ClassLoader definingLoader) {
+    DEFINING.add(definingLoader);
+    synchronized (MISSING) {
+      MISSING.keySet().removeIf(loader -> delegatesTo(loader, definingLoader));
+    }
+    GENERATION.incrementAndGet();
+  }
+
+  /*
+   * Changes whenever classes get defined on the fly, for the caches that depend on which classes exist.
+   */
+  static long generation() {
+    return GENERATION.get();
+  }
+
+  static boolean delegatesTo(ClassLoader loader, ClassLoader definingLoader) {
+    for (ClassLoader current = loader; current != null; current = current.getParent()) {
+      if (current == definingLoader) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static long failedProbes() {
+    return FAILED_PROBES.get();
+  }
+
+  public static long avoidedProbes() {
+    return AVOIDED_PROBES.get();
+  }
+}
@@ -14,6 +14,7 @@ import java.lang.invoke.ConstantCallSite;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 
+import static fr.insalyon.citi.golo.runtime.ClassLoading.tryLoading;
 import static fr.insalyon.citi.golo.runtime.Module.imports;
 import static java.lang.invoke.MethodHandles.constant;
 
@@ -46,12 +47,4 @@ public class ClassReferenceSupport {
     }
     throw new ClassNotFoundException("Dynamic resolution failed for name: " + name);
   }
-
-  private static Class<?> tryLoading(String name, ClassLoader classLoader) {
-    try {
-      return Class.forName(name, true, classLoader);
-    } catch (ClassNotFoundException e) {
-      return null;
-    }
-  }
 }
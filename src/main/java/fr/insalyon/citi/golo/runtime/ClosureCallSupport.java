@@ -12,30 +12,65 @@ package fr.insalyon.citi.golo.runtime;
 import gololang.FunctionReference;
 
 import java.lang.invoke.*;
-import java.lang.reflect.Parameter;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
-import static java.lang.invoke.MethodHandles.guardWithTest;
-import static java.lang.invoke.MethodHandles.permuteArguments;
+import static java.lang.invoke.MethodHandles.*;
 import static java.lang.invoke.MethodType.methodType;
-import static fr.insalyon.citi.golo.runtime.TypeMatching.isLastArgumentAnArray;
 
 public class ClosureCallSupport {
 
+  /*
+   * Closure call sites keep a chain of guards on the called functions. Closures capturing values are
+   * guarded on the function they have been captured from, and their captured values are read from the
+   * function reference at call time, so that new closure instances do not miss.
+   *
+   * Past MEGAMORPHIC_THRESHOLD functions, the chain is replaced by a per-site cache of invokers.
+   */
   static class InlineCache extends MutableCallSite {
 
+    static final int MEGAMORPHIC_THRESHOLD = 5;
+    static final int MEGAMORPHIC_CACHE_SIZE = 256;
+
     MethodHandle fallback;
     final boolean constant;
     final String[] argumentNames;
+    int depth = 0;
+    ConcurrentHashMap<FunctionReference, Invoker> invokers;
 
     public InlineCache(MethodType type, boolean constant, String[] argumentNames) {
       super(type);
       this.constant = constant;
       this.argumentNames = argumentNames;
     }
+
+    boolean isMegaMorphic() {
+      return depth >= MEGAMORPHIC_THRESHOLD;
+    }
+  }
+
+  static final class Invoker {
+
+    final int capturedValueCount;
+    final boolean varargs;
+    final MethodHandle target;
+
+    Invoker(FunctionReference functionReference, MethodHandle target) {
+      this.capturedValueCount = functionReference.capturedValueCount();
+      this.varargs = functionReference.isVarargsCollector();
+      this.target = target;
+    }
+
+    boolean accepts(FunctionReference functionReference) {
+      return functionReference.capturedValueCount() == capturedValueCount && functionReference.isVarargsCollector() == varargs;
+    }
   }
 
   private static final MethodHandle GUARD;
+  private static final MethodHandle CAPTURED_GUARD;
+  private static final MethodHandle CAPTURED_VALUE;
+  private static final MethodHandle IS_ARRAY;
+  private static final MethodHandle MEGAMORPHIC_INVOKER;
   private static final MethodHandle FALLBACK;
 
   static {
@@ -47,6 +82,26 @@ public class ClosureCallSupport {
           "guard",
           methodType(boolean.class, FunctionReference.class, FunctionReference.class));
 
+      CAPTURED_GUARD = lookup.findStatic(
+          ClosureCallSupport.class,
+          "capturedGuard",
+          methodType(boolean.class, FunctionReference.class, int.class, boolean.class, FunctionReference.class));
+
+      CAPTURED_VALUE = lookup.findVirtual(
+          FunctionReference.class,
+          "capturedValue",
+          methodType(Object.class, int.class));
+
+      IS_ARRAY = lookup.findStatic(
+          ClosureCallSupport.class,
+          "isArray",
+          methodType(boolean.class, Object.class));
+
+      MEGAMORPHIC_INVOKER = lookup.findStatic(
+          ClosureCallSupport.class,
+          "megamorphicInvoker",
+          methodType(MethodHandle.class, InlineCache.class, FunctionReference.class));
+
       FALLBACK = lookup.findStatic(
           ClosureCallSupport.class,
           "fallback",
@@ -76,23 +131,19 @@ public class ClosureCallSupport {
     return expected == actual;
   }
 
+  public static boolean capturedGuard(FunctionReference expectedCapturedFrom, int capturedValueCount, boolean varargs, FunctionReference actual) {
+    return (actual.capturedFrom() == expectedCapturedFrom)
+        && (actual.capturedValueCount() == capturedValueCount)
+        && (actual.isVarargsCollector() == varargs);
+  }
+
+  static boolean isArray(Object arg) {
+    return arg instanceof Object[];
+  }
+
   public static Object fallback(InlineCache callSite, Object[] args) throws Throwable {
     FunctionReference targetFunctionReference = (FunctionReference) args[0];
-    MethodHandle target = targetFunctionReference.handle();
-    MethodHandle invoker = MethodHandles.dropArguments(target, 0, FunctionReference.class);
-    MethodType type = invoker.type();
-    if(callSite.argumentNames.length > 0) {
-      invoker = reorderArguments(targetFunctionReference.parameterNames(), invoker, callSite.argumentNames);
-    }
-    if (target.isVarargsCollector()) {
-      if (isLastArgumentAnArray(type.parameterCount(), args)) {
-        invoker = invoker.asFixedArity().asType(callSite.type());
-      } else {
-        invoker = invoker.asCollector(Object[].class, callSite.type().parameterCount() - target.type().parameterCount()).asType(callSite.type());
-      }
-    } else {
-      invoker = invoker.asType(callSite.type());
-    }
+    MethodHandle invoker = invoker(callSite, targetFunctionReference);
     if (callSite.constant) {
       Object constantValue = invoker.invokeWithArguments(args);
       MethodHandle constant;
@@ -101,17 +152,120 @@ public class ClosureCallSupport {
       } else {
         constant = MethodHandles.constant(constantValue.getClass(), constantValue);
       }
-      constant = MethodHandles.dropArguments(constant, 0,  type.parameterArray());
-      callSite.setTarget(constant.asType(type));
+      constant = MethodHandles.dropArguments(constant, 0,  callSite.type().parameterArray());
+      callSite.setTarget(constant.asType(callSite.type()));
       return constantValue;
     } else {
-      MethodHandle guard = GUARD.bindTo(targetFunctionReference);
-      MethodHandle root = guardWithTest(guard, invoker, callSite.fallback);
-      callSite.setTarget(root);
+      link(callSite, targetFunctionReference, invoker);
       return invoker.invokeWithArguments(args);
     }
   }
 
+  private static void link(InlineCache callSite, FunctionReference functionReference, MethodHandle invoker) {
+    synchronized (callSite) {
+      if (callSite.isMegaMorphic()) {
+        return;
+      }
+      callSite.depth = callSite.depth + 1;
+      if (callSite.isMegaMorphic()) {
+        callSite.invokers = new ConcurrentHashMap<>();
+        MethodType type = callSite.type();
+        MethodHandle lookup = MEGAMORPHIC_INVOKER
+            .bindTo(callSite)
+            .asType(methodType(MethodHandle.class, type.parameterType(0)));
+        callSite.setTarget(foldArguments(exactInvoker(type), lookup));
+        return;
+      }
+      MethodHandle guard;
+      FunctionReference capturedFrom = functionReference.capturedFrom();
+      if (capturedFrom != null) {
+        guard = insertArguments(CAPTURED_GUARD, 0, capturedFrom, functionReference.capturedValueCount(), functionReference.isVarargsCollector());
+      } else {
+        guard = GUARD.bindTo(functionReference);
+      }
+      guard = guard.asType(methodType(boolean.class, callSite.type().parameterType(0)));
+      callSite.setTarget(guardWithTest(guard, invoker, callSite.getTarget()));
+    }
+  }
+
+  static MethodHandle megamorphicInvoker(InlineCache callSite, FunctionReference functionReference) {
+    FunctionReference key = functionReference.capturedFrom();
+    if (key == null) {
+      key = functionReference;
+    }
+    Invoker invoker = callSite.invokers.get(key);
+    if (invoker == null || !invoker.accepts(functionReference)) {
+      if (callSite.invokers.size() >= InlineCache.MEGAMORPHIC_CACHE_SIZE) {
+        callSite.invokers.clear();
+      }
+      invoker = new Invoker(functionReference, invoker(callSite, functionReference));
+      callSite.invokers.put(key, invoker);
+    }
+    return invoker.target;
+  }
+
+  /*
+   * Builds an invoker of the call site type for a function reference, taking the function reference as
+   * its first argument.
+   */
+  private static MethodHandle invoker(InlineCache callSite, FunctionReference functionReference) {
+    MethodHandle target = functionReference.handle();
+    MethodHandle invoker;
+    if (functionReference.capturedFrom() != null) {
+      invoker = capturedValuesInvoker(functionReference);
+    } else {
+      invoker = dropArguments(target, 0, FunctionReference.class);
+    }
+    MethodType type = invoker.type();
+    MethodType callSiteType = callSite.type();
+    if (callSite.argumentNames.length > 0) {
+      invoker = reorderArguments(functionReference.parameterNames(), invoker, callSite.argumentNames);
+    }
+    if (target.isVarargsCollector()) {
+      MethodHandle collector = invoker.asCollector(Object[].class, callSiteType.parameterCount() - target.type().parameterCount()).asType(callSiteType);
+      if (type.parameterCount() == callSiteType.parameterCount()) {
+        MethodHandle fixedArity = invoker.asFixedArity().asType(callSiteType);
+        MethodHandle lastArgumentIsArray = dropArguments(
+            IS_ARRAY.asType(methodType(boolean.class, callSiteType.parameterType(type.parameterCount() - 1))),
+            0, callSiteType.dropParameterTypes(type.parameterCount() - 1, type.parameterCount()).parameterList());
+        invoker = guardWithTest(lastArgumentIsArray, fixedArity, collector);
+      } else {
+        invoker = collector;
+      }
+    } else {
+      invoker = invoker.asType(callSiteType);
+    }
+    return invoker;
+  }
+
+  /*
+   * The captured function is called with the captured values read from the function reference, hence the
+   * invoker does not depend on a given closure instance.
+   */
+  private static MethodHandle capturedValuesInvoker(FunctionReference functionReference) {
+    MethodHandle target = functionReference.capturedFrom().handle().asFixedArity();
+    int count = functionReference.capturedValueCount();
+    MethodType targetType = target.type();
+    MethodHandle[] filters = new MethodHandle[count];
+    for (int i = 0; i < count; i++) {
+      filters[i] = insertArguments(CAPTURED_VALUE, 1, i)
+          .asType(methodType(targetType.parameterType(i), FunctionReference.class));
+    }
+    MethodHandle invoker = filterArguments(target, 0, filters);
+    MethodType invokerType = targetType
+        .dropParameterTypes(0, count)
+        .insertParameterTypes(0, FunctionReference.class);
+    int[] reorder = new int[targetType.parameterCount()];
+    for (int i = 0; i < reorder.length; i++) {
+      reorder[i] = (i < count) ? 0 : i - count + 1;
+    }
+    invoker = permuteArguments(invoker, invokerType, reorder);
+    if (functionReference.isVarargsCollector()) {
+      invoker = invoker.asVarargsCollector(invokerType.parameterType(invokerType.parameterCount() - 1));
+    }
+    return invoker;
+  }
+
   private static MethodHandle reorderArguments(String[] parameterNames, MethodHandle handle, String[] argumentNames) {
     if (parameterNames.length > 0) {
       int[] argumentsOrder = new int[parameterNames.length + 1];
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import gololang.Predefined;
+import gololang.Range;
+import gololang.Tuple;
+
+import java.util.*;
+
+/*
+ * Backs the indexed path of foreach loops. A loop asks for the size of what it iterates over once: integer,
+ * long and character ranges, object arrays, tuples and the fixed-size lists of the JDK have one, and the loop
+ * then fetches the elements by index with no iterator. Everything else answers -1 and goes through iterator(),
+ * hasNext() and next() as before. Ranges whose iteration would overflow take the iterator path too, so that
+ * they keep their exact behavior. List comprehensions also use the size to presize the lists they fill.
+ *
+ * Only values that cannot change size are walked by index, so that loops behave exactly as with iterators.
+ * Growable lists, even random access ones, keep their iterators: they are the ones to fail fast when the
+ * loop body changes them, or to iterate over a snapshot, like CopyOnWriteArrayList.
+ */
+public final class ForEachSupport {
+
+  private static final Class<?> INT_RANGE = Predefined.range(0, 0).getClass();
+  private static final Class<?> LONG_RANGE = Predefined.range(0L, 0L).getClass();
+  private static final Class<?> CHAR_RANGE = Predefined.range('a', 'a').getClass();
+
+  private static final Set<Class<?>> FIXED_SIZE_LISTS = new HashSet<>();
+
+  static {
+    FIXED_SIZE_LISTS.add(Arrays.asList().getClass());
+    FIXED_SIZE_LISTS.add(Collections.emptyList().getClass());
+    FIXED_SIZE_LISTS.add(Collections.singletonList(null).getClass());
+    for (String name : new String[]{"java.util.ImmutableCollections$List12", "java.util.ImmutableCollections$ListN"}) {
+      try {
+        FIXED_SIZE_LISTS.add(Class.forName(name));
+      } catch (ClassNotFoundException ignored) {
+        // before Java 9
+      }
+    }
+  }
+
+  private ForEachSupport() {
+    // utility class
+  }
+
+  public static int size(Object source) {
+    if (source == null) {
+      return -1;
+    }
+    Class<?> type = source.getClass();
+    if (type == INT_RANGE) {
+      return rangeSize((Range<?>) source, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+    if (type == LONG_RANGE) {
+      return rangeSize((Range<?>) source, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+    if (type == CHAR_RANGE) {
+      return rangeSize((Range<?>) source, Character.MIN_VALUE, Character.MAX_VALUE);
+    }
+    if (source instanceof Object[]) {
+      return ((Object[]) source).length;
+    }
+    if (type == Tuple.class) {
+      return ((Tuple) source).size();
+    }
+    if (FIXED_SIZE_LISTS.contains(type)) {
+      return ((List<?>) source).size();
+    }
+    return -1;
+  }
+
+  public static Object get(Object source, int index) {
+    Class<?> type = source.getClass();
+    if (type == INT_RANGE) {
+      Range<?> range = (Range<?>) source;
+      return (Integer) range.from() + index * range.increment();
+    }
+    if (type == LONG_RANGE) {
+      Range<?> range = (Range<?>) source;
+      return (Long) range.from() + (long) index * range.increment();
+    }
+    if (type == CHAR_RANGE) {
+      Range<?> range = (Range<?>) source;
+      return (char) ((Character) range.from() + index * range.increment());
+    }
+    if (source instanceof Object[]) {
+      return ((Object[]) source)[index];
+    }
+    if (type == Tuple.class) {
+      return ((Tuple) source).get(index);
+    }
+    return ((List<?>) source).get(index);
+  }
+
+  public static void presize(Object collection, int size) {
+    if (size > 0 && collection instanceof ArrayList) {
+      ((ArrayList<?>) collection).ensureCapacity(size);
+    }
+  }
+
+  private static int rangeSize(Range<?> range, long min, long max) {
+    long from = toLong(range.from());
+    long to = toLong(range.to());
+    long increment = range.increment();
+    try {
+      long span = (increment > 0) ? Math.subtractExact(to, from) : Math.subtractExact(from, to);
+      if (span <= 0) {
+        return 0;
+      }
+      long count = (span - 1) / Math.abs(increment) + 1;
+      long end = Math.addExact(from, Math.multiplyExact(count, increment));
+      if (count > Integer.MAX_VALUE || end < min || end > max) {
+        return -1;
+      }
+      return (int) count;
+    } catch (ArithmeticException e) {
+      return -1;
+    }
+  }
+
+  private static long toLong(Object bound) {
+    if (bound instanceof Character) {
+      return (Character) bound;
+    }
+    return ((Number) bound).longValue();
+  }
+}
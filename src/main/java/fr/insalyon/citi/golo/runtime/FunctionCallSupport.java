@@ -17,7 +17,11 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static fr.insalyon.citi.golo.runtime.ClassLoading.delegatesTo;
+import static fr.insalyon.citi.golo.runtime.ClassLoading.tryLoading;
 import static fr.insalyon.citi.golo.runtime.TypeMatching.*;
 import static fr.insalyon.citi.golo.runtime.DecoratorsHelper.*;
 import static java.lang.invoke.MethodHandles.Lookup;
@@ -44,9 +48,93 @@ public final class FunctionCallSupport {
     }
   }
 
+  /*
+   * Function resolution only depends on the caller class, the call site type and argument names, and on the
+   * classes of the arguments, so the resolved targets are shared by all the call sites of a caller class.
+   * At most MAX_RESOLUTIONS of them are kept per caller class, and only when the classes of the arguments are
+   * visible from the caller class loader, so that the caller class does not keep other class loaders alive.
+   */
+  static final class Resolution {
+
+    final String name;
+    final MethodType type;
+    final String[] argumentNames;
+    final Class<?>[] argumentClasses;
+    final int hash;
+
+    private Resolution(FunctionCallSite callSite, Class<?>[] argumentClasses) {
+      this.name = callSite.name;
+      this.type = callSite.type();
+      this.argumentNames = callSite.argumentNames;
+      this.argumentClasses = argumentClasses;
+      this.hash = 31 * (31 * (31 * name.hashCode() + type.hashCode()) + Arrays.hashCode(argumentNames)) + Arrays.hashCode(argumentClasses);
+    }
+
+    static Resolution of(FunctionCallSite callSite, Object[] args) {
+      ClassLoader callerLoader = callSite.callerLookup.lookupClass().getClassLoader();
+      Class<?>[] argumentClasses = new Class<?>[args.length];
+      for (int i = 0; i < args.length; i++) {
+        if (args[i] != null) {
+          argumentClasses[i] = args[i].getClass();
+          ClassLoader loader = argumentClasses[i].getClassLoader();
+          if (loader != null && !delegatesTo(callerLoader, loader)) {
+            return null;
+          }
+        }
+      }
+      return new Resolution(callSite, argumentClasses);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Resolution)) {
+        return false;
+      }
+      Resolution that = (Resolution) obj;
+      return hash == that.hash
+          && name.equals(that.name)
+          && type.equals(that.type)
+          && Arrays.equals(argumentNames, that.argumentNames)
+          && Arrays.equals(argumentClasses, that.argumentClasses);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  static final int MAX_RESOLUTIONS = 256;
+
+  static final ClassValue<ConcurrentHashMap<Resolution, MethodHandle>> RESOLUTIONS = new ClassValue<ConcurrentHashMap<Resolution, MethodHandle>>() {
+    @Override
+    protected ConcurrentHashMap<Resolution, MethodHandle> computeValue(Class<?> callerClass) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
+  /*
+   * Lambda factories turning a function reference handle into an instance of an interface, per caller
+   * class and interface type. The interface method is implemented by an invokeTarget bridge that calls
+   * the captured handle, so a factory is spun once and each conversion is a single factory invocation.
+   * Interfaces that cannot be implemented this way keep the per-conversion proxies.
+   */
+  private static final ClassValue<ConcurrentHashMap<Class<?>, Optional<MethodHandle>>> LAMBDA_FACTORIES =
+      new ClassValue<ConcurrentHashMap<Class<?>, Optional<MethodHandle>>>() {
+        @Override
+        protected ConcurrentHashMap<Class<?>, Optional<MethodHandle>> computeValue(Class<?> callerClass) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
   private static final MethodHandle FALLBACK;
   private static final MethodHandle SAM_FILTER;
   private static final MethodHandle FUNCTIONAL_INTERFACE_FILTER;
+  private static final MethodHandle LAMBDA_FILTER;
+  private static final MethodHandle[] INVOKE_TARGET_BRIDGES;
 
   static {
     try {
@@ -63,6 +151,17 @@ public final class FunctionCallSupport {
           FunctionCallSupport.class,
           "functionalInterfaceFilter",
           methodType(Object.class, Lookup.class, Class.class, Object.class));
+      LAMBDA_FILTER = lookup.findStatic(
+          FunctionCallSupport.class,
+          "lambdaFilter",
+          methodType(Object.class, MethodHandle.class, Object.class));
+      INVOKE_TARGET_BRIDGES = new MethodHandle[6];
+      for (int i = 0; i < INVOKE_TARGET_BRIDGES.length; i++) {
+        INVOKE_TARGET_BRIDGES[i] = lookup.findStatic(
+            FunctionCallSupport.class,
+            "invokeTarget",
+            MethodType.genericMethodType(i).insertParameterTypes(0, MethodHandle.class));
+      }
     } catch (NoSuchMethodException | IllegalAccessException e) {
       throw new Error("Could not bootstrap the required method handles", e);
     }
@@ -82,7 +181,102 @@ public final class FunctionCallSupport {
     return value;
   }
 
+  public static Object lambdaFilter(MethodHandle factory, Object value) throws Throwable {
+    if (value instanceof FunctionReference) {
+      return factory.invokeExact(((FunctionReference) value).handle());
+    }
+    return value;
+  }
+
+  public static Object invokeTarget(MethodHandle target) throws Throwable {
+    return target.invoke();
+  }
+
+  public static Object invokeTarget(MethodHandle target, Object arg1) throws Throwable {
+    return target.invoke(arg1);
+  }
+
+  public static Object invokeTarget(MethodHandle target, Object arg1, Object arg2) throws Throwable {
+    return target.invoke(arg1, arg2);
+  }
+
+  public static Object invokeTarget(MethodHandle target, Object arg1, Object arg2, Object arg3) throws Throwable {
+    return target.invoke(arg1, arg2, arg3);
+  }
+
+  public static Object invokeTarget(MethodHandle target, Object arg1, Object arg2, Object arg3, Object arg4) throws Throwable {
+    return target.invoke(arg1, arg2, arg3, arg4);
+  }
+
+  public static Object invokeTarget(MethodHandle target, Object arg1, Object arg2, Object arg3, Object arg4, Object arg5) throws Throwable {
+    return target.invoke(arg1, arg2, arg3, arg4, arg5);
+  }
+
+  /*
+   * Returns a (MethodHandle)Object factory of instances of the given interface, or null if the interface
+   * cannot be implemented from the caller.
+   */
+  static MethodHandle lambdaFactory(Lookup caller, Class<?> type) {
+    ConcurrentHashMap<Class<?>, Optional<MethodHandle>> factories = LAMBDA_FACTORIES.get(caller.lookupClass());
+    Optional<MethodHandle> factory = factories.get(type);
+    if (factory == null) {
+      factory = Optional.ofNullable(spinLambdaFactory(caller, type));
+      factories.putIfAbsent(type, factory);
+    }
+    return factory.orElse(null);
+  }
+
+  private static MethodHandle spinLambdaFactory(Lookup caller, Class<?> type) {
+    Method method = abstractMethod(type);
+    if (method == null || method.getParameterCount() >= INVOKE_TARGET_BRIDGES.length) {
+      return null;
+    }
+    MethodType lambdaType = methodType(method.getReturnType(), method.getParameterTypes());
+    try {
+      CallSite callSite = LambdaMetafactory.metafactory(
+          caller,
+          method.getName(),
+          methodType(type, MethodHandle.class),
+          lambdaType,
+          INVOKE_TARGET_BRIDGES[method.getParameterCount()],
+          lambdaType);
+      return callSite.getTarget().asType(methodType(Object.class, MethodHandle.class));
+    } catch (LambdaConversionException | IllegalArgumentException | SecurityException e) {
+      return null;
+    }
+  }
+
+  private static Method abstractMethod(Class<?> type) {
+    if (!type.isInterface()) {
+      return null;
+    }
+    Method abstractMethod = null;
+    for (Method method : type.getMethods()) {
+      if (method.isDefault() || isStatic(method.getModifiers()) || isObjectMethod(method)) {
+        continue;
+      }
+      if (abstractMethod != null) {
+        return null;
+      }
+      abstractMethod = method;
+    }
+    return abstractMethod;
+  }
+
+  private static boolean isObjectMethod(Method method) {
+    try {
+      Object.class.getMethod(method.getName(), method.getParameterTypes());
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
   public static Object asFunctionalInterface(Lookup caller, Class<?> type, MethodHandle handle) throws Throwable {
+    MethodHandle factory = lambdaFactory(caller, type);
+    if (factory != null) {
+      return factory.invokeExact(handle);
+    }
     for (Method method : type.getMethods()) {
       if (!method.isDefault() && !isStatic(method.getModifiers())) {
         MethodType lambdaType = methodType(method.getReturnType(), method.getParameterTypes());
@@ -115,6 +309,35 @@ public final class FunctionCallSupport {
   }
 
   public static Object fallback(FunctionCallSite callSite, Object[] args) throws Throwable {
+    MethodType type = callSite.type();
+    ConcurrentHashMap<Resolution, MethodHandle> resolutions = RESOLUTIONS.get(callSite.callerLookup.lookupClass());
+    Resolution resolution = Resolution.of(callSite, args);
+    MethodHandle handle = (resolution == null) ? null : resolutions.get(resolution);
+    if (handle == null) {
+      handle = resolve(callSite, args);
+      if (resolution != null && resolutions.size() < MAX_RESOLUTIONS) {
+        resolutions.putIfAbsent(resolution, handle);
+      }
+    }
+
+    if (callSite.constant) {
+      Object constantValue = handle.invokeWithArguments(args);
+      MethodHandle constant;
+      if (constantValue == null) {
+        constant = MethodHandles.constant(Object.class, constantValue);
+      } else {
+        constant = MethodHandles.constant(constantValue.getClass(), constantValue);
+      }
+      constant = MethodHandles.dropArguments(constant, 0, type.parameterArray());
+      callSite.setTarget(constant.asType(type));
+      return constantValue;
+    } else {
+      callSite.setTarget(handle);
+      return handle.invokeWithArguments(args);
+    }
+  }
+
+  private static MethodHandle resolve(FunctionCallSite callSite, Object[] args) throws Throwable {
     String functionName = callSite.name;
     MethodType type = callSite.type();
     Lookup caller = callSite.callerLookup;
@@ -169,23 +392,7 @@ public final class FunctionCallSupport {
       Field field = (Field) result;
       handle = caller.unreflectGetter(field).asType(type);
     }
-    handle = insertSAMFilter(handle, callSite.callerLookup, types, 0);
-
-    if (callSite.constant) {
-      Object constantValue = handle.invokeWithArguments(args);
-      MethodHandle constant;
-      if (constantValue == null) {
-        constant = MethodHandles.constant(Object.class, constantValue);
-      } else {
-        constant = MethodHandles.constant(constantValue.getClass(), constantValue);
-      }
-      constant = MethodHandles.dropArguments(constant, 0, type.parameterArray());
-      callSite.setTarget(constant.asType(type));
-      return constantValue;
-    } else {
-      callSite.setTarget(handle);
-      return handle.invokeWithArguments(args);
-    }
+    return insertSAMFilter(handle, callSite.callerLookup, types, 0);
   }
 
   public static MethodHandle reorderArguments(Method method, MethodHandle handle, String[] argumentNames) {
@@ -212,10 +419,18 @@ public final class FunctionCallSupport {
   public static MethodHandle insertSAMFilter(MethodHandle handle, Lookup caller, Class[] types, int startIndex) {
     if (types != null) {
       for (int i = 0; i < types.length; i++) {
+        MethodHandle filter = null;
         if (isSAM(types[i])) {
-          handle = MethodHandles.filterArguments(handle, startIndex + i, SAM_FILTER.bindTo(types[i]));
+          filter = SAM_FILTER.bindTo(types[i]);
         } else if (isFunctionalInterface(types[i])) {
-          handle = MethodHandles.filterArguments(handle, startIndex + i, FUNCTIONAL_INTERFACE_FILTER.bindTo(caller).bindTo(types[i]));
+          filter = FUNCTIONAL_INTERFACE_FILTER.bindTo(caller).bindTo(types[i]);
+        }
+        if (filter != null) {
+          MethodHandle factory = lambdaFactory(caller, types[i]);
+          if (factory != null) {
+            filter = LAMBDA_FILTER.bindTo(factory);
+          }
+          handle = MethodHandles.filterArguments(handle, startIndex + i, filter);
         }
       }
     }
@@ -249,17 +464,17 @@ public final class FunctionCallSupport {
   }
 
   private static Object findClassWithConstructor(Class<?> callerClass, String classname, Object[] args) {
-    try {
-      Class<?> targetClass = Class.forName(classname, true, callerClass.getClassLoader());
-      for (Constructor<?> constructor : targetClass.getConstructors()) {
-        Class<?>[] parameterTypes = constructor.getParameterTypes();
-        if (haveSameNumberOfArguments(args, parameterTypes) || haveEnoughArgumentsForVarargs(args, constructor, parameterTypes)) {
-          if (canAssign(parameterTypes, args, constructor.isVarArgs())) {
-            return constructor;
-          }
+    Class<?> targetClass = tryLoading(classname, callerClass.getClassLoader());
+    if (targetClass == null) {
+      return null;
+    }
+    for (Constructor<?> constructor : targetClass.getConstructors()) {
+      Class<?>[] parameterTypes = constructor.getParameterTypes();
+      if (haveSameNumberOfArguments(args, parameterTypes) || haveEnoughArgumentsForVarargs(args, constructor, parameterTypes)) {
+        if (canAssign(parameterTypes, args, constructor.isVarArgs())) {
+          return constructor;
         }
       }
-    } catch (ClassNotFoundException ignored) {
     }
     return null;
   }
@@ -274,23 +489,22 @@ public final class FunctionCallSupport {
           functionName.substring(classAndMethodSeparator + 1)
       };
     }
+    ClassLoader classLoader = callerClass.getClassLoader();
     for (String importClassName : imports) {
-      try {
-        Class<?> importClass;
-        try {
-          importClass = Class.forName(importClassName, true, callerClass.getClassLoader());
-        } catch (ClassNotFoundException expected) {
-          if (classAndMethod == null) {
-            throw expected;
-          }
-          importClass = Class.forName(importClassName + "." + classAndMethod[0], true, callerClass.getClassLoader());
+      Class<?> importClass = tryLoading(importClassName, classLoader);
+      if (importClass == null) {
+        if (classAndMethod == null) {
+          continue;
         }
-        String lookup = (classAndMethod == null) ? functionName : classAndMethod[1];
-        Object result = findStaticMethodOrField(importClass, lookup, args);
-        if (result != null) {
-          return result;
+        importClass = tryLoading(importClassName + "." + classAndMethod[0], classLoader);
+        if (importClass == null) {
+          continue;
         }
-      } catch (ClassNotFoundException ignored) {
+      }
+      String lookup = (classAndMethod == null) ? functionName : classAndMethod[1];
+      Object result = findStaticMethodOrField(importClass, lookup, args);
+      if (result != null) {
+        return result;
       }
     }
     return null;
@@ -301,10 +515,9 @@ public final class FunctionCallSupport {
     if (methodClassSeparatorIndex >= 0) {
       String className = functionName.substring(0, methodClassSeparatorIndex);
       String methodName = functionName.substring(methodClassSeparatorIndex + 1);
-      try {
-        Class<?> targetClass = Class.forName(className, true, callerClass.getClassLoader());
+      Class<?> targetClass = tryLoading(className, callerClass.getClassLoader());
+      if (targetClass != null) {
         return findStaticMethodOrField(targetClass, methodName, args);
-      } catch (ClassNotFoundException ignored) {
       }
     }
     return null;
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import gololang.FunctionReference;
+import gololang.LazyList;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+
+/*
+ * Builds the lazy lists of lazy[...] literals and comprehensions. Each foreach of a comprehension becomes a step
+ * closure that takes an element of the iterated value and returns the lazy list of what it produces, which is
+ * empty when the when clause rejects the element. The steps are only called when a tail is needed, so the
+ * elements and the clauses are evaluated on demand, except for the first value: a lazy list is either empty or
+ * has a head, so building a comprehension iterates until it finds one. The tails hold their state in fields,
+ * like closure classes do, rather than in method handles bound for each element.
+ *
+ * The tails of a comprehension share the iterator of the source. They are given to LazyList.consDeferred, which
+ * calls each of them at most once under the lock of its list and keeps what it produced or the failure it raised:
+ * threads forcing the same tail get the same list, and the errors of the expression and of the clauses are raised
+ * by LazyList.tail() rather than ending the list.
+ */
+public final class LazyComprehensionSupport {
+
+  private static final Callable<LazyList> EMPTY_TAIL = new ConstantTail(LazyList.EMPTY);
+
+  private static final class ConstantTail implements Callable<LazyList> {
+
+    private final LazyList tail;
+
+    ConstantTail(LazyList tail) {
+      this.tail = tail;
+    }
+
+    @Override
+    public LazyList call() {
+      return tail;
+    }
+  }
+
+  private static final class ConcatenationTail implements Callable<LazyList> {
+
+    private final LazyList produced;
+    private final Iterator<?> elements;
+    private final MethodHandle step;
+
+    ConcatenationTail(LazyList produced, Iterator<?> elements, MethodHandle step) {
+      this.produced = produced;
+      this.elements = elements;
+      this.step = step;
+    }
+
+    @Override
+    public LazyList call() throws Exception {
+      try {
+        LazyList rest = produced.tail();
+        if (rest.isEmpty()) {
+          return concatenation(elements, step);
+        }
+        return LazyList.consDeferred(rest.head(), new ConcatenationTail(rest, elements, step));
+      } catch (Exception | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new UndeclaredThrowableException(t);
+      }
+    }
+  }
+
+  private LazyComprehensionSupport() {
+    // utility class
+  }
+
+  public static LazyList values(Object[] values) {
+    LazyList list = LazyList.EMPTY;
+    for (int i = values.length - 1; i >= 0; i--) {
+      list = LazyList.consDeferred(values[i], new ConstantTail(list));
+    }
+    return list;
+  }
+
+  public static LazyList single(Object value) {
+    return LazyList.consDeferred(value, EMPTY_TAIL);
+  }
+
+  public static LazyList comprehension(Object iterator, FunctionReference step) throws Throwable {
+    return concatenation((Iterator<?>) iterator, step.handle());
+  }
+
+  private static LazyList concatenation(Iterator<?> elements, MethodHandle step) throws Throwable {
+    while (elements.hasNext()) {
+      LazyList produced = (LazyList) step.invoke(elements.next());
+      if (!produced.isEmpty()) {
+        return LazyList.consDeferred(produced.head(), new ConcatenationTail(produced, elements, step));
+      }
+    }
+    return LazyList.EMPTY;
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static fr.insalyon.citi.golo.runtime.ClassLoading.delegatesTo;
+import static fr.insalyon.citi.golo.runtime.DecoratorsHelper.isMethodDecorated;
+import static fr.insalyon.citi.golo.runtime.TypeMatching.*;
+import static java.lang.reflect.Modifier.isAbstract;
+import static java.lang.reflect.Modifier.isPublic;
+
+/*
+ * The methods of a class that share a name, split once per class into the public concrete overloads and all
+ * the overloads, the latter being candidates for private struct accesses. The order is the one method
+ * resolution has always used, that of a set of the public and declared methods.
+ *
+ * Selecting an overload only depends on the classes of the arguments, so the selections among the public
+ * methods are memoized on them. Argument classes that the receiver class loader cannot see are not
+ * memoized, as the table would keep their class loader alive.
+ */
+final class MethodCandidates {
+
+  static final class Candidate {
+
+    final Method method;
+    final Class<?>[] parameterTypes;
+    final boolean varargs;
+    final boolean decorated;
+
+    private Candidate(Method method) {
+      this.method = method;
+      this.parameterTypes = method.getParameterTypes();
+      this.varargs = method.isVarArgs();
+      this.decorated = isMethodDecorated(method);
+    }
+  }
+
+  private static final Candidate[] NO_CANDIDATES = new Candidate[]{};
+
+  private static final int MAX_SELECTIONS = 64;
+
+  static final MethodCandidates NONE = new MethodCandidates(NO_CANDIDATES, NO_CANDIDATES);
+
+  private static final ClassValue<Map<String, MethodCandidates>> TABLES = new ClassValue<Map<String, MethodCandidates>>() {
+    @Override
+    protected Map<String, MethodCandidates> computeValue(Class<?> type) {
+      HashSet<Method> methods = new HashSet<>();
+      Collections.addAll(methods, type.getMethods());
+      Collections.addAll(methods, type.getDeclaredMethods());
+      Map<String, List<Method>> byName = new HashMap<>();
+      for (Method method : methods) {
+        byName.computeIfAbsent(method.getName(), name -> new ArrayList<>()).add(method);
+      }
+      Map<String, MethodCandidates> table = new HashMap<>();
+      for (Map.Entry<String, List<Method>> entry : byName.entrySet()) {
+        List<Candidate> publicMethods = new ArrayList<>();
+        List<Candidate> allMethods = new ArrayList<>();
+        for (Method method : entry.getValue()) {
+          Candidate candidate = new Candidate(method);
+          allMethods.add(candidate);
+          if (isPublic(method.getModifiers()) && !isAbstract(method.getModifiers())) {
+            publicMethods.add(candidate);
+          }
+        }
+        table.put(entry.getKey(), new MethodCandidates(
+            publicMethods.toArray(NO_CANDIDATES),
+            allMethods.toArray(NO_CANDIDATES)));
+      }
+      return table;
+    }
+  };
+
+  static MethodCandidates of(Class<?> type, String name) {
+    return TABLES.get(type).getOrDefault(name, NONE);
+  }
+
+  final Candidate[] publicMethods;
+  final Candidate[] allMethods;
+  private final ConcurrentHashMap<ArgumentTypes, Optional<Candidate>> selections = new ConcurrentHashMap<>();
+
+  private MethodCandidates(Candidate[] publicMethods, Candidate[] allMethods) {
+    this.publicMethods = publicMethods;
+    this.allMethods = allMethods;
+  }
+
+  Candidate select(Class<?> receiverClass, Object[] arguments) {
+    ArgumentTypes types = ArgumentTypes.of(receiverClass, arguments);
+    if (types == null) {
+      return select(publicMethods, arguments);
+    }
+    Optional<Candidate> selection = selections.get(types);
+    if (selection == null) {
+      selection = Optional.ofNullable(select(publicMethods, arguments));
+      if (selections.size() < MAX_SELECTIONS) {
+        selections.putIfAbsent(types, selection);
+      }
+    }
+    return selection.orElse(null);
+  }
+
+  static Candidate select(Candidate[] candidates, Object[] arguments) {
+    for (Candidate candidate : candidates) {
+      if (candidate.decorated) {
+        return candidate;
+      }
+      Class<?>[] parameterTypes = candidate.parameterTypes;
+      if (haveSameNumberOfArguments(arguments, parameterTypes) || haveEnoughArgumentsForVarargs(arguments, candidate.method, parameterTypes)) {
+        if (canAssign(parameterTypes, arguments, candidate.varargs)) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static final class ArgumentTypes {
+
+    final Class<?>[] types;
+    final int hash;
+
+    private ArgumentTypes(Class<?>[] types) {
+      this.types = types;
+      this.hash = Arrays.hashCode(types);
+    }
+
+    static ArgumentTypes of(Class<?> receiverClass, Object[] arguments) {
+      ClassLoader receiverLoader = receiverClass.getClassLoader();
+      Class<?>[] types = new Class<?>[arguments.length];
+      for (int i = 0; i < arguments.length; i++) {
+        if (arguments[i] != null) {
+          types[i] = arguments[i].getClass();
+          ClassLoader loader = types[i].getClassLoader();
+          if (loader != null && !delegatesTo(receiverLoader, loader)) {
+            return null;
+          }
+        }
+      }
+      return new ArgumentTypes(types);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) { return true; }
+      if (!(o instanceof ArgumentTypes)) { return false; }
+      return Arrays.equals(types, ((ArgumentTypes) o).types);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -14,8 +14,10 @@ import gololang.FunctionReference;
 
 import java.lang.invoke.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.invoke.MethodHandles.*;
+import static java.lang.invoke.MethodType.genericMethodType;
 import static java.lang.invoke.MethodType.methodType;
 
 
@@ -24,20 +26,49 @@ public class MethodInvocationSupport {
   /*
    * This code is heavily inspired from the inline cache construction from
    * Remi Forax's JSR292 cookbooks.
+   *
+   * Call sites are polymorphic inline caches: each receiver class seen so far gets a guard in a chain
+   * of guardWithTest. The guards count their hits, and the chain is periodically re-sorted so that the
+   * most frequent receiver classes are tested first. Once the chain is stable, it is relinked with
+   * guards that do not profile anymore.
+   *
+   * When more than MEGAMORPHIC_THRESHOLD receiver classes have been seen, the chain is dropped in
+   * favor of a per-site virtual table keyed by receiver class.
+   *
+   * A receiver class whose method is picked among several overloads gets an OverloadCache as target,
+   * that is, a second level of guards on the classes of the arguments.
+   *
+   * Call sites are shared by all the threads running a module: the chain and the transition to the
+   * virtual table are updated under the call site lock, while dispatching never locks. vtableMiss is
+   * assigned before the volatile vtable is published, so that a thread seeing the vtable sees it too.
+   * The counters are plain statistics that tolerate lost updates, reported by CallSiteStatistics.
    */
 
   static final class InlineCache extends MutableCallSite {
 
     static final int MEGAMORPHIC_THRESHOLD = 5;
+    static final int RESORT_PERIOD = 1 << 10;
+    static final int STABLE_RESORTS = 3;
 
     final MethodHandles.Lookup callerLookup;
     final String name;
     final boolean nullSafeGuarded;
     final String[] argumentNames;
+    final List<CacheEntry> entries = new ArrayList<>();
+    final ConcurrentHashMap<Class<?>, MethodHandle> siteTargets = new ConcurrentHashMap<>();
 
+    MethodHandle fallback;
+    MethodHandle vtableMiss;
+    volatile VTable vtable;
 
-    int depth = 0;
-    WeakHashMap<Class, MethodHandle> vtable;
+    volatile int depth = 0;
+    boolean profiling = true;
+    int stableResorts = 0;
+
+    int hits = 0;
+    int misses = 0;
+    int resorts = 0;
+    int vtableMisses = 0;
 
     InlineCache(Lookup callerLookup, String name, MethodType type, boolean nullSafeGuarded, String... argumentNames) {
       super(type);
@@ -50,11 +81,201 @@ public class MethodInvocationSupport {
     boolean isMegaMorphic() {
       return depth > MEGAMORPHIC_THRESHOLD;
     }
+
+    synchronized void addEntry(Class<?> receiverClass, MethodHandle target) {
+      if (vtable != null) {
+        cacheInVTable(this, receiverClass, target);
+        return;
+      }
+      for (CacheEntry entry : entries) {
+        if (entry.receiverClass == receiverClass) {
+          return;
+        }
+      }
+      entries.add(new CacheEntry(this, receiverClass, target));
+      depth = depth + 1;
+      profiling = true;
+      stableResorts = 0;
+      relink();
+    }
+
+    synchronized void resort() {
+      if (vtable != null) {
+        return;
+      }
+      resorts = resorts + 1;
+      List<CacheEntry> sorted = new ArrayList<>(entries);
+      sorted.sort((a, b) -> Integer.compare(b.hits, a.hits));
+      for (CacheEntry entry : entries) {
+        entry.hits = entry.hits >> 1;
+      }
+      if (sorted.equals(entries)) {
+        stableResorts = stableResorts + 1;
+        if (stableResorts >= STABLE_RESORTS) {
+          profiling = false;
+          relink();
+        }
+        return;
+      }
+      stableResorts = 0;
+      entries.clear();
+      entries.addAll(sorted);
+      relink();
+    }
+
+    void relink() {
+      MethodHandle root = fallback;
+      for (int i = entries.size() - 1; i >= 0; i--) {
+        CacheEntry entry = entries.get(i);
+        MethodHandle guard = profiling ? PROFILED_CLASS_GUARD.bindTo(entry) : CLASS_GUARD.bindTo(entry.receiverClass);
+        root = guardWithTest(guard, entry.target, root);
+      }
+      if (nullSafeGuarded) {
+        root = makeNullSafeGuarded(root);
+      }
+      setTarget(root);
+    }
+  }
+
+  static final class CacheEntry {
+
+    final InlineCache inlineCache;
+    final Class<?> receiverClass;
+    final MethodHandle target;
+    int hits = 0;
+
+    CacheEntry(InlineCache inlineCache, Class<?> receiverClass, MethodHandle target) {
+      this.inlineCache = inlineCache;
+      this.receiverClass = receiverClass;
+      this.target = target;
+    }
+  }
+
+  /*
+   * Megamorphic virtual table: the values are stored on the receiver classes themselves, so lookups are
+   * lock-free and safe from any thread, and entries go away with the call site or the receiver class.
+   * Slots only hold the targets that reference neither the call site nor the classes of the caller, so
+   * that a receiver class cannot keep the class loader of a caller module alive: the overload caches,
+   * which are call sites themselves, and the augmentations, which may be defined by the caller module,
+   * are kept in the siteTargets of the call site instead.
+   */
+  static final class VTable extends ClassValue<VTable.Slot> {
+
+    static final class Slot {
+      volatile MethodHandle target;
+    }
+
+    @Override
+    protected Slot computeValue(Class<?> type) {
+      return new Slot();
+    }
+  }
+
+  /*
+   * Polymorphic cache of the overloads selected for a receiver class, guarded on the classes of the
+   * arguments. Past MAX_SHAPES argument shapes, the site dispatches through a table of the shapes seen so
+   * far, scanned without allocating and invoked exactly. The table keeps at most MAX_OVERLOADS shapes:
+   * further shapes are resolved on each call rather than retaining more argument classes.
+   */
+  static final class OverloadCache extends MutableCallSite {
+
+    static final int MAX_SHAPES = 4;
+    static final int MAX_OVERLOADS = 32;
+
+    final InlineCache inlineCache;
+    final Class<?> receiverClass;
+    final MethodHandle miss;
+    volatile Overload[] overloads = new Overload[0];
+    int depth = 0;
+
+    OverloadCache(InlineCache inlineCache, Class<?> receiverClass, Object[] args, MethodHandle target) {
+      super(inlineCache.type());
+      this.inlineCache = inlineCache;
+      this.receiverClass = receiverClass;
+      this.miss = OVERLOAD_MISS
+          .bindTo(this)
+          .asCollector(Object[].class, args.length)
+          .asType(type());
+      setTarget(miss);
+      addShape(args, target);
+    }
+
+    boolean isMegaMorphic() {
+      return depth >= MAX_SHAPES;
+    }
+
+    synchronized void addShape(Object[] args, MethodHandle target) {
+      if (overloads.length < MAX_OVERLOADS && lookup(args) == null) {
+        Overload[] grown = Arrays.copyOf(overloads, overloads.length + 1);
+        grown[overloads.length] = new Overload(args, target);
+        overloads = grown;
+      }
+      if (isMegaMorphic()) {
+        return;
+      }
+      depth = depth + 1;
+      if (isMegaMorphic()) {
+        setTarget(overloadDispatcher(this));
+        return;
+      }
+      MethodType type = type();
+      MethodHandle root = target;
+      for (int i = args.length - 1; i > 0; i--) {
+        if (type.parameterType(i).isPrimitive()) {
+          continue;
+        }
+        Class<?> expected = (args[i] == null) ? null : args[i].getClass();
+        MethodHandle guard = dropArguments(
+            ARGUMENT_GUARD.bindTo(expected).asType(methodType(boolean.class, type.parameterType(i))),
+            0, type.parameterList().subList(0, i));
+        root = guardWithTest(guard, root, getTarget());
+      }
+      setTarget(root);
+    }
+
+    MethodHandle lookup(Object[] args) {
+      for (Overload overload : overloads) {
+        if (overload.accepts(args)) {
+          return overload.target;
+        }
+      }
+      return null;
+    }
+  }
+
+  static final class Overload {
+
+    final Class<?>[] shape;
+    final MethodHandle target;
+
+    Overload(Object[] args, MethodHandle target) {
+      this.shape = new Class<?>[args.length - 1];
+      for (int i = 1; i < args.length; i++) {
+        shape[i - 1] = (args[i] == null) ? null : args[i].getClass();
+      }
+      this.target = target;
+    }
+
+    boolean accepts(Object[] args) {
+      for (int i = 1; i < args.length; i++) {
+        if (!argumentGuard(shape[i - 1], args[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 
   private static final MethodHandle CLASS_GUARD;
+  private static final MethodHandle ARGUMENT_GUARD;
+  private static final MethodHandle OVERLOAD_MISS;
+  private static final MethodHandle OVERLOAD_LOOKUP;
+  private static final MethodHandle[] OVERLOAD_DISPATCHERS;
+  private static final MethodHandle PROFILED_CLASS_GUARD;
   private static final MethodHandle FALLBACK;
   private static final MethodHandle VTABLE_LOOKUP;
+  private static final MethodHandle VTABLE_MISS;
+  private static final MethodHandle[] VTABLE_DISPATCHERS;
 
   private static final HashSet<String> DYNAMIC_OBJECT_RESERVED_METHOD_NAMES = new HashSet<String>() {
     {
@@ -80,6 +301,26 @@ public class MethodInvocationSupport {
           "classGuard",
           methodType(boolean.class, Class.class, Object.class));
 
+      ARGUMENT_GUARD = lookup.findStatic(
+          MethodInvocationSupport.class,
+          "argumentGuard",
+          methodType(boolean.class, Class.class, Object.class));
+
+      OVERLOAD_MISS = lookup.findStatic(
+          MethodInvocationSupport.class,
+          "overloadMiss",
+          methodType(Object.class, OverloadCache.class, Object[].class));
+
+      OVERLOAD_LOOKUP = lookup.findStatic(
+          MethodInvocationSupport.class,
+          "overloadLookup",
+          methodType(MethodHandle.class, OverloadCache.class, Object[].class));
+
+      PROFILED_CLASS_GUARD = lookup.findStatic(
+          MethodInvocationSupport.class,
+          "profiledClassGuard",
+          methodType(boolean.class, CacheEntry.class, Object.class));
+
       FALLBACK = lookup.findStatic(
           MethodInvocationSupport.class,
           "fallback",
@@ -88,7 +329,28 @@ public class MethodInvocationSupport {
       VTABLE_LOOKUP = lookup.findStatic(
           MethodInvocationSupport.class,
           "vtableLookup",
-          methodType(MethodHandle.class, InlineCache.class, Object[].class));
+          methodType(MethodHandle.class, InlineCache.class, Object.class));
+
+      VTABLE_MISS = lookup.findStatic(
+          MethodInvocationSupport.class,
+          "vtableMiss",
+          methodType(Object.class, InlineCache.class, Object[].class));
+
+      VTABLE_DISPATCHERS = new MethodHandle[6];
+      for (int i = 1; i < VTABLE_DISPATCHERS.length; i++) {
+        VTABLE_DISPATCHERS[i] = lookup.findStatic(
+            MethodInvocationSupport.class,
+            "vtableDispatch",
+            genericMethodType(i).insertParameterTypes(0, InlineCache.class));
+      }
+
+      OVERLOAD_DISPATCHERS = new MethodHandle[5];
+      for (int i = 2; i < OVERLOAD_DISPATCHERS.length; i++) {
+        OVERLOAD_DISPATCHERS[i] = lookup.findStatic(
+            MethodInvocationSupport.class,
+            "overloadDispatch",
+            genericMethodType(i).insertParameterTypes(0, OverloadCache.class));
+      }
 
     } catch (NoSuchMethodException | IllegalAccessException e) {
       throw new Error("Could not bootstrap the required method handles", e);
@@ -106,7 +368,9 @@ public class MethodInvocationSupport {
         .bindTo(callSite)
         .asCollector(Object[].class, type.parameterCount())
         .asType(type);
+    callSite.fallback = fallbackHandle;
     callSite.setTarget(fallbackHandle);
+    CallSiteStatistics.register(callSite);
     return callSite;
   }
 
@@ -114,16 +378,143 @@ public class MethodInvocationSupport {
     return receiver.getClass() == expected;
   }
 
-  public static MethodHandle vtableLookup(InlineCache inlineCache, Object[] args) {
-    Class<?> receiverClass = args[0].getClass();
-    MethodHandle target = inlineCache.vtable.get(receiverClass);
+  static boolean argumentGuard(Class<?> expected, Object argument) {
+    return (argument == null) ? (expected == null) : (argument.getClass() == expected);
+  }
+
+  static boolean profiledClassGuard(CacheEntry entry, Object receiver) {
+    if (receiver.getClass() == entry.receiverClass) {
+      InlineCache inlineCache = entry.inlineCache;
+      entry.hits = entry.hits + 1;
+      inlineCache.hits = inlineCache.hits + 1;
+      if ((inlineCache.hits % InlineCache.RESORT_PERIOD) == 0) {
+        inlineCache.resort();
+      }
+      return true;
+    }
+    return false;
+  }
+
+  static Object overloadMiss(OverloadCache overloadCache, Object[] args) throws Throwable {
+    MethodHandle target = findOverload(overloadCache, args);
     if (target == null) {
-      target = lookupTarget(receiverClass, inlineCache, args);
-      inlineCache.vtable.put(receiverClass, target);
+      return callFallbackMethod(overloadCache.inlineCache, overloadCache.receiverClass, args);
+    }
+    overloadCache.addShape(args, target);
+    return target.invokeWithArguments(args);
+  }
+
+  static MethodHandle overloadLookup(OverloadCache overloadCache, Object[] args) {
+    MethodHandle target = overloadCache.lookup(args);
+    return (target == null) ? overloadCache.miss : target;
+  }
+
+  /*
+   * Arity-specialized dispatchers of the overload tables: the shapes are matched against the arguments
+   * directly, and the target is invoked with the exact type of the call site.
+   */
+
+  static Object overloadDispatch(OverloadCache overloadCache, Object receiver, Object arg1) throws Throwable {
+    for (Overload overload : overloadCache.overloads) {
+      if (argumentGuard(overload.shape[0], arg1)) {
+        return overload.target.invokeExact(receiver, arg1);
+      }
+    }
+    return overloadCache.miss.invokeExact(receiver, arg1);
+  }
+
+  static Object overloadDispatch(OverloadCache overloadCache, Object receiver, Object arg1, Object arg2) throws Throwable {
+    for (Overload overload : overloadCache.overloads) {
+      if (argumentGuard(overload.shape[0], arg1) && argumentGuard(overload.shape[1], arg2)) {
+        return overload.target.invokeExact(receiver, arg1, arg2);
+      }
+    }
+    return overloadCache.miss.invokeExact(receiver, arg1, arg2);
+  }
+
+  static Object overloadDispatch(OverloadCache overloadCache, Object receiver, Object arg1, Object arg2, Object arg3) throws Throwable {
+    for (Overload overload : overloadCache.overloads) {
+      if (argumentGuard(overload.shape[0], arg1) && argumentGuard(overload.shape[1], arg2) && argumentGuard(overload.shape[2], arg3)) {
+        return overload.target.invokeExact(receiver, arg1, arg2, arg3);
+      }
+    }
+    return overloadCache.miss.invokeExact(receiver, arg1, arg2, arg3);
+  }
+
+  private static MethodHandle overloadDispatcher(OverloadCache overloadCache) {
+    MethodType type = overloadCache.type();
+    int arity = type.parameterCount();
+    if (arity > 1 && arity < OVERLOAD_DISPATCHERS.length && type.equals(genericMethodType(arity))) {
+      return OVERLOAD_DISPATCHERS[arity].bindTo(overloadCache);
+    }
+    MethodHandle lookup = OVERLOAD_LOOKUP
+        .bindTo(overloadCache)
+        .asCollector(Object[].class, arity)
+        .asType(type.changeReturnType(MethodHandle.class));
+    return foldArguments(exactInvoker(type), lookup);
+  }
+
+  private static MethodHandle findOverload(OverloadCache overloadCache, Object[] args) {
+    InlineCache inlineCache = overloadCache.inlineCache;
+    MethodHandle target = new RegularMethodFinder(inlineCache, overloadCache.receiverClass, args).find();
+    if (target != null) { return target; }
+    return new AugmentationMethodFinder(inlineCache, overloadCache.receiverClass, args).find();
+  }
+
+  static MethodHandle vtableLookup(InlineCache inlineCache, Object receiver) {
+    Class<?> receiverClass = receiver.getClass();
+    MethodHandle target = inlineCache.vtable.get(receiverClass).target;
+    if (target == null) {
+      target = inlineCache.siteTargets.get(receiverClass);
+      if (target == null) {
+        return inlineCache.vtableMiss;
+      }
     }
     return target;
   }
 
+  private static void cacheInVTable(InlineCache inlineCache, Class<?> receiverClass, MethodHandle target) {
+    if (inlineCache.siteTargets.get(receiverClass) != target) {
+      inlineCache.vtable.get(receiverClass).target = target;
+    }
+  }
+
+  /*
+   * Arity-specialized megamorphic dispatchers: the target is looked up from the receiver alone, and the
+   * arguments are passed through without being collected into an array.
+   */
+
+  static Object vtableDispatch(InlineCache inlineCache, Object receiver) throws Throwable {
+    return vtableLookup(inlineCache, receiver).invokeExact(receiver);
+  }
+
+  static Object vtableDispatch(InlineCache inlineCache, Object receiver, Object arg1) throws Throwable {
+    return vtableLookup(inlineCache, receiver).invokeExact(receiver, arg1);
+  }
+
+  static Object vtableDispatch(InlineCache inlineCache, Object receiver, Object arg1, Object arg2) throws Throwable {
+    return vtableLookup(inlineCache, receiver).invokeExact(receiver, arg1, arg2);
+  }
+
+  static Object vtableDispatch(InlineCache inlineCache, Object receiver, Object arg1, Object arg2, Object arg3) throws Throwable {
+    return vtableLookup(inlineCache, receiver).invokeExact(receiver, arg1, arg2, arg3);
+  }
+
+  static Object vtableDispatch(InlineCache inlineCache, Object receiver, Object arg1, Object arg2, Object arg3, Object arg4) throws Throwable {
+    return vtableLookup(inlineCache, receiver).invokeExact(receiver, arg1, arg2, arg3, arg4);
+  }
+
+  static Object vtableMiss(InlineCache inlineCache, Object[] args) throws Throwable {
+    inlineCache.vtableMisses = inlineCache.vtableMisses + 1;
+    Class<?> receiverClass = args[0].getClass();
+    MethodHandle target = lookupTarget(receiverClass, inlineCache, args);
+    if (target == null) {
+      return callFallbackMethod(inlineCache, receiverClass, args);
+    }
+    cacheInVTable(inlineCache, receiverClass, target);
+    return target.invokeWithArguments(args);
+  }
+
   private static MethodHandle lookupTarget(Class<?> receiverClass, InlineCache inlineCache, Object[] args) {
     if (receiverClass.isArray()) {
       return new ArrayMethodFinder(inlineCache, receiverClass, args).find();
@@ -150,40 +541,38 @@ public class MethodInvocationSupport {
       }
     }
 
+    inlineCache.misses = inlineCache.misses + 1;
     Class<?> receiverClass = args[0].getClass();
     MethodHandle target = lookupTarget(receiverClass, inlineCache, args);
 
     if (target == null) {
-      InlineCache fallbackCallSite = new InlineCache(
-          inlineCache.callerLookup,
-          "fallback",
-          methodType(Object.class, Object.class, Object.class, Object[].class),
-          false,
-          "name", "args");
-      Object[] fallbackArgs = new Object[] {
-          args[0],
-          inlineCache.name,
-          Arrays.copyOfRange(args,1,args.length)
-      };
-      target = lookupTarget(receiverClass, fallbackCallSite, fallbackArgs);
-      if (target != null) {
-        return fallback(fallbackCallSite, fallbackArgs);
-      } else {
-        throw new NoSuchMethodError(receiverClass + "::" + inlineCache.name);
-      }
+      return callFallbackMethod(inlineCache, receiverClass, args);
     }
 
-    MethodHandle guard = CLASS_GUARD.bindTo(receiverClass);
-    MethodHandle fallback = inlineCache.getTarget();
-    MethodHandle root = guardWithTest(guard, target, fallback);
-    if (inlineCache.nullSafeGuarded) {
-      root = makeNullSafeGuarded(root);
-    }
-    inlineCache.setTarget(root);
-    inlineCache.depth = inlineCache.depth + 1;
+    inlineCache.addEntry(receiverClass, target);
     return target.invokeWithArguments(args);
   }
 
+  private static Object callFallbackMethod(InlineCache inlineCache, Class<?> receiverClass, Object[] args) throws Throwable {
+    InlineCache fallbackCallSite = new InlineCache(
+        inlineCache.callerLookup,
+        "fallback",
+        methodType(Object.class, Object.class, Object.class, Object[].class),
+        false,
+        "name", "args");
+    Object[] fallbackArgs = new Object[] {
+        args[0],
+        inlineCache.name,
+        Arrays.copyOfRange(args,1,args.length)
+    };
+    MethodHandle target = lookupTarget(receiverClass, fallbackCallSite, fallbackArgs);
+    if (target != null) {
+      return target.invokeWithArguments(fallbackArgs);
+    } else {
+      throw new NoSuchMethodError(receiverClass + "::" + inlineCache.name);
+    }
+  }
+
   private static MethodHandle makeNullSafeGuarded(MethodHandle root) {
     MethodHandle catchThenNull = dropArguments(constant(Object.class, null), 0, NullPointerException.class);
     root = catchException(root, NullPointerException.class, catchThenNull);
@@ -195,24 +584,43 @@ public class MethodInvocationSupport {
   }
 
   private static Object installVTableDispatch(InlineCache inlineCache, Object[] args) throws Throwable {
-    if (inlineCache.vtable == null) {
-      inlineCache.vtable = new WeakHashMap<>();
-    }
-    MethodHandle lookup = VTABLE_LOOKUP
-        .bindTo(inlineCache)
-        .asCollector(Object[].class, args.length);
-    MethodHandle exactInvoker = exactInvoker(inlineCache.type());
-    MethodHandle vtableTarget = foldArguments(exactInvoker, lookup);
-    if (inlineCache.nullSafeGuarded) {
-      vtableTarget = makeNullSafeGuarded(vtableTarget);
+    MethodHandle vtableTarget;
+    synchronized (inlineCache) {
+      if (inlineCache.vtable == null) {
+        inlineCache.vtableMiss = VTABLE_MISS
+            .bindTo(inlineCache)
+            .asCollector(Object[].class, args.length)
+            .asType(inlineCache.type());
+        inlineCache.vtable = new VTable();
+        for (CacheEntry entry : inlineCache.entries) {
+          cacheInVTable(inlineCache, entry.receiverClass, entry.target);
+        }
+        inlineCache.entries.clear();
+      }
+      vtableTarget = vtableDispatcher(inlineCache);
+      if (inlineCache.nullSafeGuarded) {
+        vtableTarget = makeNullSafeGuarded(vtableTarget);
+      }
+      inlineCache.setTarget(vtableTarget);
     }
-    inlineCache.setTarget(vtableTarget);
     if (shouldReturnNull(inlineCache, args[0])) {
       return null;
     }
     return vtableTarget.invokeWithArguments(args);
   }
 
+  private static MethodHandle vtableDispatcher(InlineCache inlineCache) {
+    MethodType type = inlineCache.type();
+    int arity = type.parameterCount();
+    if (arity < VTABLE_DISPATCHERS.length && type.equals(genericMethodType(arity))) {
+      return VTABLE_DISPATCHERS[arity].bindTo(inlineCache);
+    }
+    MethodHandle lookup = VTABLE_LOOKUP
+        .bindTo(inlineCache)
+        .asType(methodType(MethodHandle.class, type.parameterType(0)));
+    return foldArguments(exactInvoker(type), lookup);
+  }
+
   private static boolean isCallOnDynamicObject(InlineCache inlineCache, Object arg) {
     return (arg instanceof DynamicObject) && !(DYNAMIC_OBJECT_RESERVED_METHOD_NAMES.contains(inlineCache.name));
   }
@@ -222,11 +630,21 @@ public class MethodInvocationSupport {
 
     // NOTE: magic for accessors and mutators would go here...
 
-    target = new RegularMethodFinder(inlineCache, receiverClass, args).find();
-    if (target != null) { return target; }
+    RegularMethodFinder regularMethodFinder = new RegularMethodFinder(inlineCache, receiverClass, args);
+    target = regularMethodFinder.find();
+    if (target != null) {
+      if (regularMethodFinder.isOverloaded()) {
+        target = new OverloadCache(inlineCache, receiverClass, args, target).dynamicInvoker();
+        inlineCache.siteTargets.put(receiverClass, target);
+      }
+      return target;
+    }
 
     target = new AugmentationMethodFinder(inlineCache, receiverClass, args).find();
-    if (target != null) { return target; }
+    if (target != null) {
+      inlineCache.siteTargets.put(receiverClass, target);
+      return target;
+    }
 
     return null;
   }
@@ -9,13 +9,58 @@
 
 package fr.insalyon.citi.golo.runtime;
 
+import gololang.annotations.ModuleMetadata;
+
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 
+/*
+ * Module metadata is read once per class, from the @ModuleMetadata annotation generated by the compiler, or
+ * from the synthetic $imports, $augmentations and $augmentationApplications methods for classes that have
+ * been compiled without it. The returned arrays are shared, and must not be modified.
+ */
 class Module {
 
   private static final Class<?>[] EMPTY_TYPES = new Class<?>[]{};
   private static final Object[] EMPTY_ARGS = new Object[]{};
+  private static final String[] NONE = new String[]{};
+
+  private static final ClassValue<Module> MODULES = new ClassValue<Module>() {
+    @Override
+    protected Module computeValue(Class<?> type) {
+      return new Module(type);
+    }
+  };
+
+  private final String[] imports;
+  private final String[] augmentations;
+  private final String[] augmentationApplications;
+  private final Map<String, String[]> applicationsByTarget = new HashMap<>();
+
+  private Module(Class<?> moduleClass) {
+    ModuleMetadata metadata = moduleClass.getAnnotation(ModuleMetadata.class);
+    if (metadata != null) {
+      imports = metadata.imports();
+      augmentations = metadata.augmentations();
+      ModuleMetadata.Application[] applications = metadata.augmentationApplications();
+      augmentationApplications = new String[applications.length];
+      for (int i = 0; i < applications.length; i++) {
+        augmentationApplications[i] = applications[i].target();
+        applicationsByTarget.put(applications[i].target(), applications[i].names());
+      }
+    } else {
+      imports = metadata("imports", moduleClass, EMPTY_TYPES, EMPTY_ARGS);
+      augmentations = metadata("augmentations", moduleClass, EMPTY_TYPES, EMPTY_ARGS);
+      augmentationApplications = metadata("augmentationApplications", moduleClass, EMPTY_TYPES, EMPTY_ARGS);
+      for (String target : augmentationApplications) {
+        applicationsByTarget.put(target, metadata("augmentationApplications", moduleClass,
+            new Class<?>[]{int.class},
+            new Object[]{target.hashCode()}));
+      }
+    }
+  }
 
   static String[] metadata(String name, Class<?> callerClass, Class<?>[] types, Object[] args) {
     String[] data;
@@ -31,21 +76,18 @@ class Module {
   }
 
   static String[] imports(Class<?> callerClass) {
-    return metadata("imports", callerClass, EMPTY_TYPES, EMPTY_ARGS);
+    return MODULES.get(callerClass).imports;
   }
 
   static String[] augmentations(Class<?> callerClass) {
-    return metadata("augmentations", callerClass, EMPTY_TYPES, EMPTY_ARGS);
+    return MODULES.get(callerClass).augmentations;
   }
 
   static String[] augmentationApplications(Class<?> callerClass) {
-    return metadata("augmentationApplications", callerClass, EMPTY_TYPES, EMPTY_ARGS);
+    return MODULES.get(callerClass).augmentationApplications;
   }
 
   static String[] augmentationApplications(Class<?> callerClass, Class<?> receiverClass) {
-    return metadata("augmentationApplications", callerClass,
-        new Class<?>[] {int.class},
-        new Object[]{receiverClass.getName().hashCode()}
-    );
+    return MODULES.get(callerClass).applicationsByTarget.getOrDefault(receiverClass.getName(), NONE);
   }
 }
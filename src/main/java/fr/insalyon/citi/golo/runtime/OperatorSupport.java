@@ -16,21 +16,89 @@ import java.util.Objects;
 
 import static java.lang.invoke.MethodHandles.guardWithTest;
 import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodHandles.publicLookup;
 import static java.lang.invoke.MethodType.methodType;
 
 public class OperatorSupport {
 
-  static class MonomorphicInlineCache extends MutableCallSite {
+  /*
+   * Operator call sites keep a chain of guards, one per operand types seen so far, so that mixed-type
+   * code does not relink on every change of types. Past MAX_DEPTH entries, the site goes megamorphic
+   * and dispatches through per-site tables of targets keyed by operand classes.
+   *
+   * misses counts the relinks of a site: together with megamorphic, it tells which sites thrash, as reported by
+   * CallSiteStatistics.
+   */
+  static class InlineCache extends MutableCallSite {
+
+    static final int MAX_DEPTH = 4;
 
     final MethodHandles.Lookup callerLookup;
     final String name;
     MethodHandle fallback;
+    int depth = 0;
+    int misses = 0;
+    boolean megamorphic = false;
 
-    MonomorphicInlineCache(MethodHandles.Lookup callerLookup, String name, MethodType type) {
+    InlineCache(MethodHandles.Lookup callerLookup, String name, MethodType type) {
       super(type);
       this.callerLookup = callerLookup;
       this.name = name;
     }
+
+    synchronized void addGuardedTarget(MethodHandle guard, MethodHandle target) {
+      if (megamorphic) {
+        return;
+      }
+      misses = misses + 1;
+      if (depth < MAX_DEPTH) {
+        depth = depth + 1;
+        setTarget(guardWithTest(guard, target, getTarget()));
+      } else {
+        megamorphic = true;
+        setTarget(megamorphicTarget(name, type()));
+      }
+    }
+  }
+
+  /*
+   * Megamorphic tables only reference target method handles and operator names, never call sites, since
+   * they are stored on the operand classes.
+   */
+  static final class TargetTable extends ClassValue<MethodHandle> {
+
+    final String name;
+    final Class<?> leftClass;
+
+    TargetTable(String name, Class<?> leftClass) {
+      this.name = name;
+      this.leftClass = leftClass;
+    }
+
+    @Override
+    protected MethodHandle computeValue(Class<?> type) {
+      MethodHandle target;
+      if (leftClass == null) {
+        target = target_1(publicLookup(), name, type);
+        return (target != null) ? target : insertArguments(REJECT_1, 1, name);
+      }
+      target = target_2(publicLookup(), name, leftClass, type);
+      return (target != null) ? target : insertArguments(REJECT_2, 2, name);
+    }
+  }
+
+  static final class PairTable extends ClassValue<TargetTable> {
+
+    final String name;
+
+    PairTable(String name) {
+      this.name = name;
+    }
+
+    @Override
+    protected TargetTable computeValue(Class<?> type) {
+      return new TargetTable(name, type);
+    }
   }
 
   private static final MethodHandle GUARD_1;
@@ -39,6 +107,11 @@ public class OperatorSupport {
   private static final MethodHandle GUARD_2;
   private static final MethodHandle FALLBACK_2;
 
+  private static final MethodHandle MEGAMORPHIC_1;
+  private static final MethodHandle MEGAMORPHIC_2;
+  private static final MethodHandle REJECT_1;
+  private static final MethodHandle REJECT_2;
+
   private static final Set<String> NO_GUARD_OPERATORS = new HashSet<String>() {
     {
       add("is");
@@ -61,7 +134,7 @@ public class OperatorSupport {
       FALLBACK_1 = lookup.findStatic(
           OperatorSupport.class,
           "fallback_1",
-          methodType(Object.class, MonomorphicInlineCache.class, Object[].class));
+          methodType(Object.class, InlineCache.class, Object[].class));
 
       GUARD_2 = lookup.findStatic(
           OperatorSupport.class,
@@ -71,7 +144,27 @@ public class OperatorSupport {
       FALLBACK_2 = lookup.findStatic(
           OperatorSupport.class,
           "fallback_2",
-          methodType(Object.class, MonomorphicInlineCache.class, Object[].class));
+          methodType(Object.class, InlineCache.class, Object[].class));
+
+      MEGAMORPHIC_1 = lookup.findStatic(
+          OperatorSupport.class,
+          "megamorphic_1",
+          methodType(Object.class, TargetTable.class, Object.class));
+
+      MEGAMORPHIC_2 = lookup.findStatic(
+          OperatorSupport.class,
+          "megamorphic_2",
+          methodType(Object.class, PairTable.class, Object.class, Object.class));
+
+      REJECT_1 = lookup.findStatic(
+          OperatorSupport.class,
+          "reject",
+          methodType(Object.class, Object.class, String.class));
+
+      REJECT_2 = lookup.findStatic(
+          OperatorSupport.class,
+          "reject",
+          methodType(Object.class, Object.class, Object.class, String.class));
     } catch (NoSuchMethodException | IllegalAccessException e) {
       throw new Error("Could not bootstrap the required method handles", e);
     }
@@ -88,55 +181,79 @@ public class OperatorSupport {
     return (t1 == expected1) && (t2 == expected2);
   }
 
-  public static Object fallback_1(MonomorphicInlineCache inlineCache, Object[] args) throws Throwable {
+  public static Object fallback_1(InlineCache inlineCache, Object[] args) throws Throwable {
 
     Class<?> argClass = (args[0] == null) ? Object.class : args[0].getClass();
-    MethodHandle target;
-
-    try {
-      target = inlineCache.callerLookup.findStatic(
-          OperatorSupport.class, inlineCache.name, methodType(Object.class, argClass));
-    } catch (Throwable t1) {
-      try {
-        target = inlineCache.callerLookup.findStatic(
-            OperatorSupport.class, inlineCache.name + "_fallback", methodType(Object.class, Object.class));
-      } catch (Throwable t2) {
-        return reject(args[0], inlineCache.name);
-      }
+    MethodHandle target = target_1(inlineCache.callerLookup, inlineCache.name, argClass);
+    if (target == null) {
+      return reject(args[0], inlineCache.name);
     }
-    target = target.asType(methodType(Object.class, Object.class));
 
     MethodHandle guard = GUARD_1.bindTo(argClass);
 
-    MethodHandle guardedTarget = guardWithTest(guard, target, inlineCache.fallback);
-    inlineCache.setTarget(guardedTarget);
+    inlineCache.addGuardedTarget(guard, target);
     return target.invokeWithArguments(args);
   }
 
-  public static Object fallback_2(MonomorphicInlineCache inlineCache, Object[] args) throws Throwable {
+  public static Object fallback_2(InlineCache inlineCache, Object[] args) throws Throwable {
 
     Class<?> arg1Class = (args[0] == null) ? Object.class : args[0].getClass();
     Class<?> arg2Class = (args[1] == null) ? Object.class : args[1].getClass();
+    MethodHandle target = target_2(inlineCache.callerLookup, inlineCache.name, arg1Class, arg2Class);
+    if (target == null) {
+      return reject(args[0], args[1], inlineCache.name);
+    }
+
+    MethodHandle guard = insertArguments(GUARD_2, 0, arg1Class, arg2Class);
+
+    inlineCache.addGuardedTarget(guard, target);
+    return target.invokeWithArguments(args);
+  }
+
+  private static MethodHandle target_1(MethodHandles.Lookup lookup, String name, Class<?> argClass) {
     MethodHandle target;
+    try {
+      target = lookup.findStatic(OperatorSupport.class, name, methodType(Object.class, argClass));
+    } catch (Throwable t1) {
+      try {
+        target = lookup.findStatic(OperatorSupport.class, name + "_fallback", methodType(Object.class, Object.class));
+      } catch (Throwable t2) {
+        return null;
+      }
+    }
+    return target.asType(methodType(Object.class, Object.class));
+  }
 
+  private static MethodHandle target_2(MethodHandles.Lookup lookup, String name, Class<?> arg1Class, Class<?> arg2Class) {
+    MethodHandle target;
     try {
-      target = inlineCache.callerLookup.findStatic(
-          OperatorSupport.class, inlineCache.name, methodType(Object.class, arg1Class, arg2Class));
+      target = lookup.findStatic(OperatorSupport.class, name, methodType(Object.class, arg1Class, arg2Class));
     } catch (Throwable t1) {
       try {
-        target = inlineCache.callerLookup.findStatic(
-            OperatorSupport.class, inlineCache.name + "_fallback", methodType(Object.class, Object.class, Object.class));
+        target = lookup.findStatic(OperatorSupport.class, name + "_fallback", methodType(Object.class, Object.class, Object.class));
       } catch (Throwable t2) {
-        return reject(args[0], args[1], inlineCache.name);
+        return null;
       }
     }
-    target = target.asType(methodType(Object.class, Object.class, Object.class));
+    return target.asType(methodType(Object.class, Object.class, Object.class));
+  }
 
-    MethodHandle guard = insertArguments(GUARD_2, 0, arg1Class, arg2Class);
+  private static MethodHandle megamorphicTarget(String name, MethodType type) {
+    if (type.parameterCount() == 2) {
+      return MEGAMORPHIC_2.bindTo(new PairTable(name));
+    }
+    return MEGAMORPHIC_1.bindTo(new TargetTable(name, null));
+  }
 
-    MethodHandle guardedTarget = guardWithTest(guard, target, inlineCache.fallback);
-    inlineCache.setTarget(guardedTarget);
-    return target.invokeWithArguments(args);
+  static Object megamorphic_1(TargetTable table, Object arg) throws Throwable {
+    Class<?> argClass = (arg == null) ? Object.class : arg.getClass();
+    return table.get(argClass).invokeExact(arg);
+  }
+
+  static Object megamorphic_2(PairTable table, Object arg1, Object arg2) throws Throwable {
+    Class<?> arg1Class = (arg1 == null) ? Object.class : arg1.getClass();
+    Class<?> arg2Class = (arg2 == null) ? Object.class : arg2.getClass();
+    return table.get(arg1Class).get(arg2Class).invokeExact(arg1, arg2);
   }
 
   public static CallSite bootstrap(MethodHandles.Lookup caller, String name, MethodType type, int arity) throws NoSuchMethodException, IllegalAccessException {
@@ -147,7 +264,7 @@ public class OperatorSupport {
       return new ConstantCallSite(target);
     }
 
-    MonomorphicInlineCache callSite = new MonomorphicInlineCache(caller, name, type);
+    InlineCache callSite = new InlineCache(caller, name, type);
     MethodHandle fallback;
     if (arity == 2) {
       fallback = FALLBACK_2;
@@ -160,6 +277,7 @@ public class OperatorSupport {
         .asType(type);
     callSite.fallback = fallbackHandle;
     callSite.setTarget(fallbackHandle);
+    CallSiteStatistics.register(callSite);
     return callSite;
   }
 
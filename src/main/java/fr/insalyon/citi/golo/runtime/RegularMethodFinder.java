@@ -13,6 +13,7 @@ import java.lang.invoke.*;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
+import fr.insalyon.citi.golo.runtime.MethodCandidates.Candidate;
 import gololang.GoloStruct;
 
 import static java.lang.invoke.MethodHandles.*;
@@ -31,6 +32,7 @@ class RegularMethodFinder implements MethodFinder {
   private final boolean makeAccessible;
   private final int arity;
   private final String[] argumentNames;
+  private boolean overloaded = false;
 
   public RegularMethodFinder(MethodInvocationSupport.InlineCache inlineCache, Class<?> receiverClass, Object[] args) {
     this.args = args;
@@ -61,6 +63,14 @@ class RegularMethodFinder implements MethodFinder {
     }
   }
 
+  /*
+   * Tells whether the last find() picked a method among several overloads using the argument values, in
+   * which case the result only holds for arguments of the same classes.
+   */
+  boolean isOverloaded() {
+    return overloaded;
+  }
+
   private MethodHandle toMethodHandle(Field field) throws IllegalAccessException {
     MethodHandle target = null;
     if (makeAccessible) {
@@ -75,15 +85,16 @@ class RegularMethodFinder implements MethodFinder {
     return target;
   }
 
-  private MethodHandle toMethodHandle(Method method) throws IllegalAccessException {
+  private MethodHandle toMethodHandle(Candidate candidate) throws IllegalAccessException {
+    Method method = candidate.method;
     MethodHandle target = null;
     if (makeAccessible || isValidPrivateStructAccess(method)) {
       method.setAccessible(true);
     }
-    if (isMethodDecorated(method)) {
+    if (candidate.decorated) {
       target = getDecoratedMethodHandle(method, arity);
     } else {
-      if ((method.isVarArgs() && isLastArgumentAnArray(type.parameterCount(), args))) {
+      if ((candidate.varargs && isLastArgumentAnArray(type.parameterCount(), args))) {
         target = lookup.unreflect(method).asFixedArity().asType(type);
       } else {
         target = lookup.unreflect(method).asType(type);
@@ -92,7 +103,7 @@ class RegularMethodFinder implements MethodFinder {
     if(argumentNames.length > 1) {
       target = FunctionCallSupport.reorderArguments(method, target, argumentNames);
     }
-    return FunctionCallSupport.insertSAMFilter(target, lookup, method.getParameterTypes(), 1);
+    return FunctionCallSupport.insertSAMFilter(target, lookup, candidate.parameterTypes, 1);
   }
 
   private boolean isValidPrivateStructAccess(Method method) {
@@ -112,39 +123,29 @@ class RegularMethodFinder implements MethodFinder {
     return receiverClassName.substring(0, receiverClassName.indexOf(".types")) + "$" + receiverClassName.replace('.', '$');
   }
 
-  private List<Method> getCandidates() {
-    List<Method> candidates = new LinkedList<>();
-    HashSet<Method> methods = new HashSet<>();
-    Collections.addAll(methods, receiverClass.getMethods());
-    Collections.addAll(methods, receiverClass.getDeclaredMethods());
-    for (Method method : methods) {
-      if (isCandidateMethod(method)) {
-        candidates.add(method);
-      } else if (isValidPrivateStructAccess(method)) {
-        candidates.add(method);
+  private Candidate[] structCandidates(MethodCandidates overloads) {
+    List<Candidate> candidates = new ArrayList<>();
+    for (Candidate candidate : overloads.allMethods) {
+      if (isCandidateMethod(candidate.method) || isValidPrivateStructAccess(candidate.method)) {
+        candidates.add(candidate);
       }
     }
-    return candidates;
+    return candidates.toArray(new Candidate[candidates.size()]);
   }
 
   private MethodHandle findInMethods() throws IllegalAccessException {
-    List<Method> candidates = getCandidates();
-    if (candidates.isEmpty()) { return null; }
-    if (candidates.size() == 1) { return toMethodHandle(candidates.get(0)); }
-
-    for (Method method : candidates) {
-      if (isMethodDecorated(method)) {
-        return toMethodHandle(method);
-      }
-      Class<?>[] parameterTypes = method.getParameterTypes();
-      Object[] argsWithoutReceiver = copyOfRange(args, 1, args.length);
-      if (haveSameNumberOfArguments(argsWithoutReceiver, parameterTypes) || haveEnoughArgumentsForVarargs(argsWithoutReceiver, method, parameterTypes)) {
-        if (canAssign(parameterTypes, argsWithoutReceiver, method.isVarArgs())) {
-          return toMethodHandle(method);
-        }
-      }
-    }
-    return null;
+    MethodCandidates overloads = MethodCandidates.of(receiverClass, methodName);
+    boolean struct = args[0] instanceof GoloStruct;
+    Candidate[] candidates = struct ? structCandidates(overloads) : overloads.publicMethods;
+    if (candidates.length == 0) { return null; }
+    if (candidates.length == 1) { return toMethodHandle(candidates[0]); }
+
+    overloaded = true;
+    Object[] argsWithoutReceiver = copyOfRange(args, 1, args.length);
+    Candidate candidate = struct
+        ? MethodCandidates.select(candidates, argsWithoutReceiver)
+        : overloads.select(receiverClass, argsWithoutReceiver);
+    return (candidate == null) ? null : toMethodHandle(candidate);
   }
 
   private MethodHandle findInFields() throws IllegalAccessException {
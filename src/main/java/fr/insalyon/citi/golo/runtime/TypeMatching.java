@@ -31,6 +31,20 @@ public class TypeMatching {
     }
   };
 
+  private static final ClassValue<Boolean> SAM = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return type.isInterface() && (type.getMethods().length == 1);
+    }
+  };
+
+  private static final ClassValue<Boolean> FUNCTIONAL_INTERFACE = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return type.isAnnotationPresent(FunctionalInterface.class);
+    }
+  };
+
   public static boolean haveEnoughArgumentsForVarargs(Object[] arguments, Constructor constructor, Class<?>[] parameterTypes) {
     return constructor.isVarArgs() && (arguments.length >= parameterTypes.length);
   }
@@ -78,11 +92,11 @@ public class TypeMatching {
   }
 
   public static boolean isSAM(Class<?> type) {
-    return type.isInterface() && (type.getMethods().length == 1);
+    return SAM.get(type);
   }
 
   public static boolean isFunctionalInterface(Class<?> type) {
-    return type.isAnnotationPresent(FunctionalInterface.class);
+    return FUNCTIONAL_INTERFACE.get(type);
   }
 
   public static boolean primitiveCompatible(Class<?> type, Object value) {
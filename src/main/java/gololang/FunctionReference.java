@@ -33,8 +33,16 @@ public class FunctionReference {
 
   private final MethodHandle handle;
 
+  private volatile MethodHandle boundHandle;
+
   private final String[] parameterNames;
 
+  private final FunctionReference capturedFrom;
+
+  private final Object[] capturedValues;
+
+  private final int capturedValueCount;
+
   /**
    * Makes a function reference from a method handle.
    *
@@ -48,6 +56,37 @@ public class FunctionReference {
     }
     this.handle = handle;
     this.parameterNames = parameterNames;
+    this.capturedFrom = null;
+    this.capturedValues = null;
+    this.capturedValueCount = 0;
+  }
+
+  private FunctionReference(MethodHandle handle, String[] parameterNames, FunctionReference capturedFrom, Object[] capturedValues) {
+    this.handle = handle;
+    this.parameterNames = parameterNames;
+    this.capturedFrom = capturedFrom;
+    this.capturedValues = capturedValues;
+    this.capturedValueCount = (capturedValues == null) ? 0 : capturedValues.length;
+  }
+
+  /**
+   * Makes a closure whose captured values are held by a subclass, as compiled in closure classes mode. The
+   * subclass overrides {@link #capturedValue(int)}, and the bound method handle is only made when
+   * {@link #handle()} is first called, since call sites dispatch on {@code capturedFrom} instead.
+   *
+   * @param capturedFrom the reference to the function with the captured values as leading parameters.
+   * @param capturedValueCount the number of captured values.
+   * @throws IllegalArgumentException if {@code capturedFrom} is {@code null}.
+   */
+  protected FunctionReference(FunctionReference capturedFrom, int capturedValueCount) {
+    if (capturedFrom == null) {
+      throw new IllegalArgumentException("A captured function reference cannot be null");
+    }
+    this.handle = null;
+    this.parameterNames = null;
+    this.capturedFrom = capturedFrom;
+    this.capturedValues = null;
+    this.capturedValueCount = capturedValueCount;
   }
 
   /**
@@ -67,7 +106,33 @@ public class FunctionReference {
    * @return the (boxed) method handle.
    */
   public MethodHandle handle() {
-    return handle;
+    if (handle != null) {
+      return handle;
+    }
+    MethodHandle bound = boundHandle;
+    if (bound == null) {
+      bound = MethodHandles.insertArguments(capturedFrom.handle(), 0, capturedValues());
+      if (capturedFrom.isVarargsCollector()) {
+        bound = bound.asVarargsCollector(Object[].class);
+      }
+      boundHandle = bound;
+    }
+    return bound;
+  }
+
+  private boolean holdsCapturedValuesInFields() {
+    return capturedFrom != null && capturedValues == null;
+  }
+
+  private Object[] capturedValues() {
+    if (!holdsCapturedValuesInFields()) {
+      return capturedValues;
+    }
+    Object[] values = new Object[capturedValueCount()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = capturedValue(i);
+    }
+    return values;
   }
 
   /**
@@ -76,50 +141,83 @@ public class FunctionReference {
    * @return the array of parameter's names
    */
   public String[] parameterNames() {
+    if (holdsCapturedValuesInFields()) {
+      return capturedFrom.dropParameterNames(0, capturedValueCount());
+    }
     return parameterNames;
   }
 
   public MethodType type() {
-    return handle.type();
+    return handle().type();
+  }
+
+  /**
+   * Closures capturing values are references to the same function with different leading arguments: this allows
+   * call sites to dispatch on that function rather than on each closure instance.
+   *
+   * @return the reference whose leading arguments have been bound to give this one, or {@code null} if this
+   * reference was not obtained by inserting arguments at position 0.
+   * @see #insertArguments(int, Object...)
+   */
+  public FunctionReference capturedFrom() {
+    return capturedFrom;
+  }
+
+  /**
+   * @return the number of leading arguments bound by {@link #capturedFrom()}, {@code 0} if there is none.
+   */
+  public int capturedValueCount() {
+    return capturedValueCount;
+  }
+
+  /**
+   * @param index the captured value index.
+   * @return the leading argument at {@code index} bound by {@link #capturedFrom()}.
+   */
+  public Object capturedValue(int index) {
+    return capturedValues[index];
   }
 
   public FunctionReference asCollector(Class<?> arrayType, int arrayLength) {
-    return new FunctionReference(handle.asCollector(arrayType, arrayLength), this.parameterNames);
+    return new FunctionReference(handle().asCollector(arrayType, arrayLength), parameterNames());
   }
 
   public FunctionReference asFixedArity() {
-    return new FunctionReference(handle.asFixedArity(), this.parameterNames);
+    return new FunctionReference(handle().asFixedArity(), parameterNames());
   }
 
   public FunctionReference asType(MethodType newType) {
-    return new FunctionReference(handle.asType(newType), this.parameterNames);
+    return new FunctionReference(handle().asType(newType), parameterNames());
   }
 
   public FunctionReference asVarargsCollector(Class<?> arrayType) {
-    return new FunctionReference(handle.asVarargsCollector(arrayType), this.parameterNames);
+    return new FunctionReference(handle().asVarargsCollector(arrayType), parameterNames(), this.capturedFrom, capturedValues());
   }
 
   public FunctionReference bindTo(Object x) {
-    return new FunctionReference(handle.bindTo(x), dropParameterNames(0, 1));
+    return new FunctionReference(handle().bindTo(x), dropParameterNames(0, 1));
   }
 
   public boolean isVarargsCollector() {
+    if (holdsCapturedValuesInFields()) {
+      return capturedFrom.isVarargsCollector();
+    }
     return handle.isVarargsCollector();
   }
 
   public FunctionReference asSpreader(Class<?> arrayType, int arrayLength) {
-    return new FunctionReference(handle.asSpreader(arrayType, arrayLength));
+    return new FunctionReference(handle().asSpreader(arrayType, arrayLength));
   }
 
   public Object invoke(Object... args) throws Throwable {
-    return handle.invokeWithArguments(args);
+    return handle().invokeWithArguments(args);
   }
 
   @Override
   public String toString() {
     return "FunctionReference{" +
-        "handle=" + handle +
-        ", parameterNames=" + Arrays.toString(parameterNames) +
+        "handle=" + handle() +
+        ", parameterNames=" + Arrays.toString(parameterNames()) +
         '}';
   }
 
@@ -132,12 +230,12 @@ public class FunctionReference {
       return false;
     }
     FunctionReference that = (FunctionReference) obj;
-    return handle.equals(that.handle);
+    return handle().equals(that.handle());
   }
 
   @Override
   public int hashCode() {
-    return handle.hashCode();
+    return handle().hashCode();
   }
 
   /**
@@ -160,7 +258,7 @@ public class FunctionReference {
     if (fun.type().parameterCount() != 1) {
       throw new IllegalArgumentException("andThen requires a function with exactly 1 parameter");
     }
-    return new FunctionReference(filterReturnValue(this.handle, fun.handle), this.parameterNames);
+    return new FunctionReference(filterReturnValue(handle(), fun.handle()), parameterNames());
   }
 
   /**
@@ -171,7 +269,7 @@ public class FunctionReference {
    * @return a partially applied function.
    */
   public FunctionReference bindAt(int position, Object value) {
-    return new FunctionReference(MethodHandles.insertArguments(this.handle, position, value), dropParameterNames(position, 1));
+    return new FunctionReference(MethodHandles.insertArguments(handle(), position, value), dropParameterNames(position, 1));
   }
 
   /**
@@ -183,11 +281,12 @@ public class FunctionReference {
    */
   public FunctionReference bindAt(String parameterName, Object value) {
     int position = -1;
-    if (this.parameterNames == null) {
+    String[] parameterNames = parameterNames();
+    if (parameterNames == null) {
       throw new RuntimeException("Can't bind on parameter name, " + this.toString() + " has none");
     }
-    for (int i = 0; i < this.parameterNames.length; i++) {
-      if (this.parameterNames[i].equals(parameterName)) {
+    for (int i = 0; i < parameterNames.length; i++) {
+      if (parameterNames[i].equals(parameterName)) {
         position = i;
         break;
       }
@@ -207,7 +306,11 @@ public class FunctionReference {
    * @see java.lang.invoke.MethodHandles#insertArguments(MethodHandle, int, Object...)
    */
   public FunctionReference insertArguments(int position, Object... values) {
-    return new FunctionReference(MethodHandles.insertArguments(handle, position, values), dropParameterNames(position, values.length));
+    MethodHandle inserted = MethodHandles.insertArguments(handle(), position, values);
+    if (position == 0 && values.length > 0 && capturedFrom == null) {
+      return new FunctionReference(inserted, dropParameterNames(position, values.length), this, values.clone());
+    }
+    return new FunctionReference(inserted, dropParameterNames(position, values.length));
   }
 
   /**
@@ -218,26 +321,28 @@ public class FunctionReference {
    * @throws Throwable ...because an exception can be thrown.
    */
   public Object spread(Object... arguments) throws Throwable {
-    int arity = this.handle.type().parameterCount();
-    if (this.handle.isVarargsCollector() && (arity > 0) && (arguments[arity - 1] instanceof Object[])) {
-      return this.handle
+    MethodHandle handle = handle();
+    int arity = handle.type().parameterCount();
+    if (handle.isVarargsCollector() && (arity > 0) && (arguments[arity - 1] instanceof Object[])) {
+      return handle
           .asFixedArity()
           .asSpreader(Object[].class, arguments.length)
           .invoke(arguments);
     }
-    return this.handle
+    return handle
         .asSpreader(Object[].class, arguments.length)
         .invoke(arguments);
   }
 
   private String[] dropParameterNames(int from, int size) {
-    if (this.parameterNames == null) {
+    String[] parameterNames = parameterNames();
+    if (parameterNames == null) {
       return null;
     }
-    String[] filtered = new String[this.parameterNames.length - size];
+    String[] filtered = new String[parameterNames.length - size];
     if(filtered.length > 0) {
       System.arraycopy(parameterNames, 0, filtered, 0, from);
-      System.arraycopy(parameterNames, from + size, filtered, from, this.parameterNames.length - size - from);
+      System.arraycopy(parameterNames, from + size, filtered, from, parameterNames.length - size - from);
     }
     return filtered;
   }
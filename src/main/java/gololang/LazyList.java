@@ -14,6 +14,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.Objects;
+import java.util.concurrent.Callable;
 
 /**
  * Represents a lazy list object.
@@ -32,7 +33,7 @@ public class LazyList implements Collection<Object>, HeadTail<Object> {
   /**
    * Represents the empty list.
    */
-  public static final LazyList EMPTY = new LazyList(null, null) {
+  public static final LazyList EMPTY = new LazyList(null, null, null) {
     @Override
     public boolean equals(Object other) {
       return other == this;
@@ -66,7 +67,9 @@ public class LazyList implements Collection<Object>, HeadTail<Object> {
 
   private final Object head;
   private final FunctionReference tail;
+  private final Callable<LazyList> deferredTail;
   private LazyList memoTail = null;
+  private Throwable failure = null;
 
   /**
    * Create a new list from the head and tail values.
@@ -79,12 +82,31 @@ public class LazyList implements Collection<Object>, HeadTail<Object> {
     if (tail == null) {
       throw new IllegalArgumentException("Use the empty list instead of null as the last element of a LazyList");
     }
-    return new LazyList(head, tail);
+    return new LazyList(head, tail, null);
   }
 
-  private LazyList(Object head, FunctionReference tail) {
+  /**
+   * Create a new list from the head value and a computation of the tail.
+   * <p>
+   * The computation is called at most once, even when several threads ask for the tail at the same time,
+   * and its failure is raised by {@link #tail()} instead of ending the list. This suits tails that consume
+   * a shared source, such as an iterator.
+   *
+   * @param head the first value of the list.
+   * @param tail a {@code Callable} that returns a LazyList when called.
+   * @return a new {@code LazyList}
+   */
+  public static LazyList consDeferred(Object head, Callable<LazyList> tail) {
+    if (tail == null) {
+      throw new IllegalArgumentException("Use the empty list instead of null as the last element of a LazyList");
+    }
+    return new LazyList(head, null, tail);
+  }
+
+  private LazyList(Object head, FunctionReference tail, Callable<LazyList> deferredTail) {
     this.head = head;
     this.tail = tail;
+    this.deferredTail = deferredTail;
   }
 
   /**
@@ -100,9 +122,12 @@ public class LazyList implements Collection<Object>, HeadTail<Object> {
    * Gets the rest of the list (its tail).
    *
    * @return a {@code LazyList}, or {@code EMPTY} if the list is empty,
-   * contains only one value, or if the closure failed.
+   * contains only one value, or if the closure failed and the list was not made by {@link #consDeferred}.
    */
   public LazyList tail() {
+    if (deferredTail != null) {
+      return forceDeferredTail();
+    }
     if (memoTail == null) {
       try {
         memoTail = (LazyList) (this.tail.invoke());
@@ -113,6 +138,25 @@ public class LazyList implements Collection<Object>, HeadTail<Object> {
     return memoTail;
   }
 
+  private synchronized LazyList forceDeferredTail() {
+    if (memoTail == null && failure == null) {
+      try {
+        memoTail = deferredTail.call();
+      } catch (Throwable e) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw LazyList.<RuntimeException>raise(failure);
+    }
+    return memoTail;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends Throwable> T raise(Throwable throwable) throws T {
+    throw (T) throwable;
+  }
+
   /**
    * Checks whether the list is empty or not.
    *
@@ -184,7 +228,7 @@ public class LazyList implements Collection<Object>, HeadTail<Object> {
     LazyList other = (LazyList) o;
     if (this.isEmpty() && other.isEmpty()) return true;
     if (!this.head.equals(other.head)) return false;
-    if (this.tail.equals(other.tail)) return true;
+    if (this.tail != null && this.tail.equals(other.tail)) return true;
     return this.tail().equals(other.tail());
   }
 
@@ -316,7 +360,7 @@ public class LazyList implements Collection<Object>, HeadTail<Object> {
 
   @Override
   public String toString() {
-    return String.format("LazyList<head=%s, tail=%s>", head, tail);
+    return String.format("LazyList<head=%s, tail=%s>", head, (tail != null) ? tail : deferredTail);
   }
 
 
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package gololang.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <code>@ModuleMetadata</code> describes the imports and augmentations of a compiled Golo module.
+ *
+ * This annotation is generated by the compiler on module classes and augmentation classes, and is read once per class
+ * by the runtime when linking call sites. It mirrors the synthetic {@code $imports}, {@code $augmentations} and
+ * {@code $augmentationApplications} static methods.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Documented
+public @interface ModuleMetadata {
+
+  /**
+   * The named augmentations applied to a target class.
+   */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({})
+  @interface Application {
+
+    /**
+     * @return the augmented class name.
+     */
+    String target();
+
+    /**
+     * @return the names of the augmentations applied to {@link #target()}.
+     */
+    String[] names();
+  }
+
+  /**
+   * @return the imported module or package names.
+   */
+  String[] imports() default {};
+
+  /**
+   * @return the names of the classes augmented by the module.
+   */
+  String[] augmentations() default {};
+
+  /**
+   * @return the named augmentations applications.
+   */
+  Application[] augmentationApplications() default {};
+}
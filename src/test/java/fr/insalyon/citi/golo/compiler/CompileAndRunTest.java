@@ -9,14 +9,19 @@
 
 package fr.insalyon.citi.golo.compiler;
 
-import fr.insalyon.citi.golo.compiler.ir.AssignmentStatement;
-import fr.insalyon.citi.golo.compiler.ir.ReferenceLookup;
+import fr.insalyon.citi.golo.compiler.ir.*;
 import fr.insalyon.citi.golo.compiler.parser.ASTAssignment;
 import fr.insalyon.citi.golo.compiler.parser.ParseException;
 import fr.insalyon.citi.golo.runtime.AmbiguousFunctionReferenceException;
 import gololang.*;
+import gololang.annotations.ModuleMetadata;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
 import org.testng.annotations.Test;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
@@ -24,6 +29,10 @@ import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static fr.insalyon.citi.golo.compiler.GoloCompilationException.Problem;
 import static fr.insalyon.citi.golo.compiler.GoloCompilationException.Problem.Type.*;
@@ -33,6 +42,7 @@ import static java.lang.invoke.MethodType.genericMethodType;
 import static java.lang.reflect.Modifier.*;
 import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.objectweb.asm.Opcodes.ASM5;
 import static org.hamcrest.Matchers.*;
 import static org.testng.Assert.fail;
 
@@ -919,6 +929,42 @@ public class CompileAndRunTest {
     assertThat(closure_with_named_args.invoke(null), is("It Rocks"));
   }
 
+  @Test
+  public void closure_classes() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setClosureClasses(true);
+    Class<?> moduleClass = compileAndLoad(compiler, "closures.golo");
+
+    FunctionReference funRef = (FunctionReference) moduleClass.getMethod("handle_with_capture", Object.class, Object.class).invoke(null, 1, 2);
+    assertThat(funRef.getClass(), not(sameInstance((Object) FunctionReference.class)));
+    assertThat(funRef.getClass().getSuperclass(), sameInstance((Object) FunctionReference.class));
+    assertThat(funRef.capturedFrom(), notNullValue());
+    assertThat(funRef.capturedValueCount(), is(2));
+    assertThat(funRef.capturedValue(0), is((Object) 1));
+    assertThat(funRef.capturedValue(1), is((Object) 2));
+    assertThat(funRef.type(), is(genericMethodType(1)));
+    assertThat((Integer) funRef.handle().invoke(100), is(300));
+    assertThat(funRef.invoke(10), is((Object) 30));
+    assertThat(funRef, is(funRef));
+    assertThat(funRef.parameterNames().length, is(1));
+
+    FunctionReference addTo = (FunctionReference) moduleClass.getMethod("add_to", Object.class).invoke(null, 1);
+    assertThat((Integer) addTo.handle().invoke(2), is(3));
+    assertThat((Integer) addTo.bindAt(0, 5).handle().invoke(), is(6));
+    assertThat(moduleClass.getMethod("call_with_ref").invoke(null), is((Object) 30));
+    assertThat(moduleClass.getMethod("as_explicit_interface").invoke(null), is((Object) "Plop -> da plop"));
+    assertThat(moduleClass.getMethod("executor_and_callable").invoke(null), is((Object) "hey!"));
+    assertThat(moduleClass.getMethod("closure_with_varargs_and_capture").invoke(null), is((Object) "> 6"));
+    assertThat(moduleClass.getMethod("closure_with_varargs_array_and_capture").invoke(null), is((Object) "> 6"));
+    assertThat(moduleClass.getMethod("closure_with_trailing_varargs_and_capture").invoke(null), is((Object) "|1|12|123"));
+    assertThat(moduleClass.getMethod("closure_with_trailing_varargs_array_and_capture").invoke(null), is((Object) "|1|12|123"));
+    assertThat(moduleClass.getMethod("closure_with_synthetic_refs").invoke(null), is((Object) "012"));
+    assertThat(moduleClass.getMethod("closure_self_reference").invoke(null), is((Object) 1));
+    assertThat(moduleClass.getMethod("scoping_check").invoke(null), is((Object) 120));
+    assertThat(moduleClass.getMethod("funky").invoke(null), is((Object) 6));
+    assertThat(moduleClass.getMethod("closure_with_named_args").invoke(null), is((Object) "It Rocks"));
+  }
+
   @Test
   public void check_augmentations() throws Throwable {
     GoloClassLoader goloClassLoader = new GoloClassLoader(CompileAndRunTest.class.getClassLoader());
@@ -995,6 +1041,29 @@ public class CompileAndRunTest {
     assertThat((String) moduleClass.getMethod("test_bar_on_struct").invoke(null), is("bar"));
   }
 
+  @Test
+  public void check_module_metadata_annotation() throws Throwable {
+    GoloClassLoader goloClassLoader = new GoloClassLoader(CompileAndRunTest.class.getClassLoader());
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "local-named-augmentations.golo", goloClassLoader);
+    ModuleMetadata metadata = moduleClass.getAnnotation(ModuleMetadata.class);
+    assertThat(metadata, notNullValue());
+
+    assertThat(new HashSet<>(asList(metadata.imports())),
+        is(new HashSet<>(asList((String[]) moduleClass.getMethod("$imports").invoke(null)))));
+    assertThat(asList(metadata.augmentations()), contains("java.util.List"));
+    Map<String, List<String>> applications = new HashMap<>();
+    for (ModuleMetadata.Application application : metadata.augmentationApplications()) {
+      applications.put(application.target(), asList(application.names()));
+    }
+    assertThat(applications.get("java.util.List"),
+        containsInAnyOrder((String[]) moduleClass.getMethod("$augmentationApplications", int.class).invoke(null, "java.util.List".hashCode())));
+    assertThat(applications.keySet(),
+        containsInAnyOrder((String[]) moduleClass.getMethod("$augmentationApplications").invoke(null)));
+
+    Class<?> augmentationClass = goloClassLoader.loadClass(moduleClass.getName() + "$java$util$List");
+    assertThat(asList(augmentationClass.getAnnotation(ModuleMetadata.class).imports()), hasItem(moduleClass.getName()));
+  }
+
   @Test
   public void check_external_named_augmentations() throws Throwable {
     GoloClassLoader goloClassLoader = new GoloClassLoader(CompileAndRunTest.class.getClassLoader());
@@ -1011,6 +1080,23 @@ public class CompileAndRunTest {
     assertThat((String) moduleClass.getMethod("override_spam_on_struct").invoke(null), is("MyStruct.spam"));
   }
 
+  @Test
+  public void augmentations_loaded_after_first_lookup() throws Throwable {
+    GoloClassLoader goloClassLoader = new GoloClassLoader(CompileAndRunTest.class.getClassLoader());
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "external-named-augmentations.golo", goloClassLoader);
+    try {
+      moduleClass.getMethod("foo_on_string").invoke(null);
+      fail("NoSuchMethodError should have been thrown");
+    } catch (Throwable e) {
+      assertThat(e.getCause(), instanceOf(NoSuchMethodError.class));
+    }
+    assertThat((String) moduleClass.getMethod("override_spam_on_struct").invoke(null), is("MyStruct.spam"));
+
+    compileAndLoadGoloModule(SRC, "named-augmentations-external-source.golo", goloClassLoader);
+    assertThat((String) moduleClass.getMethod("foo_on_string").invoke(null), is("Str.foo"));
+    assertThat((String) moduleClass.getMethod("bar_on_struct").invoke(null), is("Bar1.bar"));
+  }
+
   @Test
   public void check_overloading() throws Throwable {
     Class<?> moduleClass = compileAndLoadGoloModule(SRC, "overloading.golo");
@@ -1169,11 +1255,11 @@ public class CompileAndRunTest {
 
     Method some_list = moduleClass.getMethod("some_list");
     result = some_list.invoke(null);
-    assertThat(result, instanceOf(LinkedList.class));
-    LinkedList<?> list = (LinkedList) result;
+    assertThat(result, instanceOf(ArrayList.class));
+    List<?> list = (List) result;
     assertThat(list.size(), is(3));
-    assertThat((Integer) list.getFirst(), is(1));
-    assertThat((Integer) list.getLast(), is(3));
+    assertThat((Integer) list.get(0), is(1));
+    assertThat((Integer) list.get(2), is(3));
 
     Method some_vector = moduleClass.getMethod("some_vector");
     result = some_vector.invoke(null);
@@ -1676,6 +1762,25 @@ public class CompileAndRunTest {
     assertThat(result, is((Object) "Foo!"));
   }
 
+  @Test
+  public void module_state_fields() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "module-state.golo");
+
+    int prefix = moduleClass.getDeclaredField("prefix").getModifiers();
+    assertThat(isStatic(prefix) && isPrivate(prefix) && isFinal(prefix), is(true));
+    int counter = moduleClass.getDeclaredField("counter").getModifiers();
+    assertThat(isStatic(counter) && isPrivate(counter) && !isFinal(counter), is(true));
+
+    moduleClass.getDeclaredMethod("prefix");
+    moduleClass.getDeclaredMethod("counter", Object.class);
+    try {
+      moduleClass.getDeclaredMethod("prefix", Object.class);
+      fail("Module constants should have no setter");
+    } catch (NoSuchMethodException expected) {
+      // ok
+    }
+  }
+
   @Test
   public void decorators() throws Throwable {
 
@@ -1879,4 +1984,525 @@ public class CompileAndRunTest {
     }
   }
 
+  @Test
+  public void linked_lists() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setLinkedLists(true);
+    Class<?> moduleClass = compileAndLoad(compiler, "collection-literals.golo");
+    Object result = moduleClass.getMethod("some_list").invoke(null);
+    assertThat(result, instanceOf(LinkedList.class));
+    LinkedList<?> list = (LinkedList) result;
+    assertThat(list.size(), is(3));
+    assertThat((Integer) list.getFirst(), is(1));
+    assertThat((Integer) list.getLast(), is(3));
+    assertThat(moduleClass.getMethod("some_vector").invoke(null), instanceOf(ArrayList.class));
+
+    moduleClass = compileAndLoad(compiler, "comprehension.golo");
+    for (Method testMethod : getTestMethods(moduleClass)) {
+      testMethod.invoke(null);
+    }
+    assertThat(moduleClass.getMethod("doubled", Object.class).invoke(null, Predefined.range(0, 3)), is((Object) new LinkedList<>(asList(0, 2, 4))));
+    assertThat(moduleClass.getMethod("doubled", Object.class).invoke(null, Predefined.range(0, 3)), instanceOf(LinkedList.class));
+  }
+
+  @Test
+  public void presized_comprehensions() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "comprehension.golo");
+    Method doubled = moduleClass.getMethod("doubled", Object.class);
+    assertThat(doubled.invoke(null, Predefined.range(0, 3)), instanceOf(ArrayList.class));
+    assertThat(doubled.invoke(null, Predefined.range(0, 3)), is((Object) asList(0, 2, 4)));
+    assertThat(doubled.invoke(null, asList(1, 2)), is((Object) asList(2, 4)));
+    assertThat(doubled.invoke(null, new LinkedHashSet<>(asList(1, 2))), is((Object) asList(2, 4)));
+    assertThat(doubled.invoke(null, Predefined.range(0, 0)), is((Object) asList()));
+
+    GoloCompiler compiler = new GoloCompiler();
+    GoloModule module = checkedModule(compiler, "comprehension.golo");
+    Block comprehension = (Block) returned(module, "doubled");
+    Block loopBlock = (Block) comprehension.getStatements().get(1);
+    ForEachLoopStatement loop = (ForEachLoopStatement) loopBlock.getStatements().get(0);
+    assertThat(loop.getPresizedName(), notNullValue());
+    comprehension = (Block) returned(module, "pairs");
+    loopBlock = (Block) comprehension.getStatements().get(1);
+    loop = (ForEachLoopStatement) loopBlock.getStatements().get(0);
+    assertThat(loop.getPresizedName(), notNullValue());
+    Block innerBlock = (Block) loop.getMainBlock().getStatements().get(1);
+    ForEachLoopStatement innerLoop = (ForEachLoopStatement) innerBlock.getStatements().get(0);
+    assertThat(innerLoop.getPresizedName(), nullValue());
+  }
+
+  @Test
+  public void lazy_comprehension() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "lazy-comprehension.golo");
+
+    assertThat(moduleClass.getMethod("values").invoke(null), instanceOf(LazyList.class));
+    assertThat(((LazyList) moduleClass.getMethod("values").invoke(null)).asList(), is((Object) asList(1, 2, 3)));
+    assertThat(moduleClass.getMethod("empty").invoke(null), sameInstance((Object) LazyList.EMPTY));
+    Method doubled = moduleClass.getMethod("doubled", Object.class);
+    assertThat(((LazyList) doubled.invoke(null, asList(1, 2, 3))).asList(), is((Object) asList(2, 4, 6)));
+    assertThat(((LazyList) doubled.invoke(null, (Object) new Object[]{1, 2})).asList(), is((Object) asList(2, 4)));
+    assertThat(doubled.invoke(null, asList()), sameInstance((Object) LazyList.EMPTY));
+    Method guarded = moduleClass.getMethod("guarded", Object.class);
+    assertThat(((LazyList) guarded.invoke(null, Predefined.range(1, 10))).asList(), is((Object) asList(2, 4, 6, 8)));
+    assertThat(((LazyList) moduleClass.getMethod("pairs").invoke(null)).asList(),
+        is((Object) asList(new Tuple(0, 1), new Tuple(0, 2), new Tuple(1, 2))));
+    assertThat(((LazyList) moduleClass.getMethod("destructured").invoke(null)).asList(), is((Object) asList(3, 7)));
+    assertThat(((LazyList) moduleClass.getMethod("first_squares", Object.class).invoke(null, 5)).asList(),
+        is((Object) asList(0, 1, 4, 9, 16)));
+    assertThat(moduleClass.getMethod("on_demand").invoke(null), is((Object) new Tuple(1, 1, 4, 2)));
+    assertThat(moduleClass.getMethod("forced_twice").invoke(null), is((Object) new Tuple(true, 9, 3)));
+    assertThat(((LazyList) moduleClass.getMethod("captured", Object.class).invoke(null, 1)).asList(), is((Object) asList(11, 21, 31)));
+
+    for (String name : asList("inverses", "inverses_guarded")) {
+      LazyList inverses = (LazyList) moduleClass.getMethod(name, Object.class).invoke(null, asList(1, 2, 0, 4));
+      assertThat(inverses.head(), is((Object) (name.equals("inverses") ? 12 : 1)));
+      for (int i = 0; i < 2; i++) {
+        try {
+          inverses.asList();
+          fail("An ArithmeticException should have been raised");
+        } catch (ArithmeticException expected) {
+          assertThat(expected.getMessage(), containsString("zero"));
+        }
+      }
+    }
+    try {
+      moduleClass.getMethod("inverses", Object.class).invoke(null, asList(0, 1));
+      fail("An ArithmeticException should have been raised");
+    } catch (InvocationTargetException e) {
+      assertThat(e.getCause(), instanceOf(ArithmeticException.class));
+    }
+
+    int count = 20_000;
+    LazyList shared = (LazyList) moduleClass.getMethod("shared", Object.class).invoke(null, count);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<Object>>> walks = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        walks.add(executor.submit(shared::asList));
+      }
+      List<Object> expected = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        expected.add(i);
+      }
+      for (Future<List<Object>> walk : walks) {
+        assertThat(walk.get(), is(expected));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expectedExceptions = GoloCompilationException.class)
+  public void lazy_comprehension_with_for_loop() throws Throwable {
+    try {
+      compileAndLoadGoloModule(SRC, "failure-lazy-comprehension-for-loop.golo");
+      fail("A GoloCompilationException was expected");
+    } catch (GoloCompilationException expected) {
+      List<GoloCompilationException.Problem> problems = expected.getProblems();
+      assertThat(problems.size(), is(1));
+      assertThat(problems.get(0).getType(), is(PARSING));
+      throw expected;
+    }
+  }
+
+  @Test
+  public void constant_folding() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "constant-folding.golo");
+
+    assertThat(moduleClass.getMethod("seconds_per_day").invoke(null), is((Object) 86400));
+    assertThat(moduleClass.getMethod("mixed_arithmetic").invoke(null), is((Object) 6.5));
+    assertThat(moduleClass.getMethod("concatenation").invoke(null), is((Object) "golo-1!"));
+    assertThat(moduleClass.getMethod("comparisons").invoke(null), is((Object) asList(true, false, true, false, true, false)));
+    try {
+      moduleClass.getMethod("division_by_zero").invoke(null);
+      fail("An ArithmeticException should have been raised");
+    } catch (InvocationTargetException e) {
+      assertThat(e.getCause(), instanceOf(ArithmeticException.class));
+    }
+
+    Method notEqual = moduleClass.getMethod("not_equal", Object.class, Object.class);
+    assertThat(notEqual.invoke(null, 1, 2), is((Object) true));
+    assertThat(notEqual.invoke(null, "a", "a"), is((Object) false));
+    Method notSame = moduleClass.getMethod("not_same", Object.class, Object.class);
+    assertThat(notSame.invoke(null, "a", new Object()), is((Object) true));
+    assertThat(notSame.invoke(null, null, null), is((Object) false));
+    Method notNot = moduleClass.getMethod("not_not", Object.class);
+    assertThat(notNot.invoke(null, 1), is((Object) true));
+    assertThat(notNot.invoke(null, 3), is((Object) false));
+    Method shortCircuits = moduleClass.getMethod("short_circuits", Object.class);
+    assertThat(shortCircuits.invoke(null, 1), is((Object) asList(true, true, false, true)));
+    assertThat(shortCircuits.invoke(null, -1), is((Object) asList(false, false, false, true)));
+    assertThat(moduleClass.getMethod("literal_null").invoke(null), is((Object) 42));
+
+    Method deadBranches = moduleClass.getMethod("dead_branches", Object.class);
+    assertThat(deadBranches.invoke(null, true), is((Object) asList("folded", "kept")));
+    assertThat(deadBranches.invoke(null, false), is((Object) asList("folded")));
+    assertThat(moduleClass.getMethod("returns_from_dead_branch").invoke(null), is((Object) "early"));
+  }
+
+  @Test
+  public void constant_folding_levels() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    GoloModule module = checkedModule(compiler, "constant-folding.golo");
+    compiler.optimize(module);
+    ReturnStatement folded = (ReturnStatement) function(module, "seconds_per_day").getBlock().getStatements().get(0);
+    assertThat(folded.getExpressionStatement(), instanceOf(ConstantStatement.class));
+    assertThat(((ConstantStatement) folded.getExpressionStatement()).getValue(), is((Object) 86400));
+    Block deadBranches = function(module, "returns_from_dead_branch").getBlock();
+    assertThat(deadBranches.getStatements().size(), is(1));
+    assertThat(deadBranches.getStatements().get(0), instanceOf(Block.class));
+    assertThat(deadBranches.hasReturn(), is(true));
+
+    compiler.setOptimizationLevel(0);
+    module = checkedModule(compiler, "constant-folding.golo");
+    compiler.optimize(module);
+    ReturnStatement unfolded = (ReturnStatement) function(module, "seconds_per_day").getBlock().getStatements().get(0);
+    assertThat(unfolded.getExpressionStatement(), instanceOf(BinaryOperation.class));
+    assertThat(function(module, "returns_from_dead_branch").getBlock().getStatements().get(0), instanceOf(ConditionalBranching.class));
+  }
+
+  @Test
+  public void primitive_locals() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "primitive-locals.golo");
+
+    assertThat(moduleClass.getMethod("int_loop", Object.class).invoke(null, 10), is((Object) 90));
+    assertThat(moduleClass.getMethod("overflowing").invoke(null), is((Object) Integer.MIN_VALUE));
+    assertThat(moduleClass.getMethod("long_loop").invoke(null), is((Object) 1683L));
+    assertThat(moduleClass.getMethod("double_loop").invoke(null), is((Object) 13.75));
+    assertThat(moduleClass.getMethod("nan_comparisons").invoke(null), is((Object) asList(false, false, false, true)));
+    Method mixed = moduleClass.getMethod("mixed_assignments", Object.class);
+    assertThat(mixed.invoke(null, false), is((Object) 1));
+    assertThat(mixed.invoke(null, true), is((Object) 2L));
+    Method parameterArithmetic = moduleClass.getMethod("parameter_arithmetic", Object.class);
+    assertThat(parameterArithmetic.invoke(null, 10), is((Object) 1024));
+    assertThat(parameterArithmetic.invoke(null, 10L), is((Object) 1024));
+    assertThat(moduleClass.getMethod("captured").invoke(null), is((Object) 42));
+    assertThat(moduleClass.getMethod("integer_division").invoke(null), is((Object) asList(3, 1, 3.5)));
+    try {
+      moduleClass.getMethod("division_by_zero").invoke(null);
+      fail("An ArithmeticException should have been raised");
+    } catch (InvocationTargetException e) {
+      assertThat(e.getCause(), instanceOf(ArithmeticException.class));
+    }
+    assertThat(moduleClass.getMethod("in_exception_handler").invoke(null), is((Object) 111));
+    assertThat(moduleClass.getMethod("fib", Object.class).invoke(null, 90), is((Object) 2880067194370816120L));
+  }
+
+  @Test
+  public void primitive_locals_types() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    GoloModule module = checkedModule(compiler, "primitive-locals.golo");
+    compiler.optimize(module);
+    ReferenceTable fib = function(module, "fib").getBlock().getReferenceTable();
+    assertThat(fib.get("a").getType(), is((Object) long.class));
+    assertThat(fib.get("b").getType(), is((Object) long.class));
+    assertThat(fib.get("i").getType(), is((Object) int.class));
+    assertThat(fib.get("n").getType(), is((Object) Object.class));
+    assertThat(Math.abs(fib.get("a").getIndex() - fib.get("b").getIndex()), greaterThanOrEqualTo(2));
+    ReferenceTable mixed = function(module, "mixed_assignments").getBlock().getReferenceTable();
+    assertThat(mixed.get("value").getType(), is((Object) Object.class));
+    ReferenceTable parameterArithmetic = function(module, "parameter_arithmetic").getBlock().getReferenceTable();
+    assertThat(parameterArithmetic.get("acc").getType(), is((Object) int.class));
+    assertThat(parameterArithmetic.get("i").getType(), is((Object) int.class));
+    ReferenceTable doubles = function(module, "double_loop").getBlock().getReferenceTable();
+    assertThat(doubles.get("x").getType(), is((Object) double.class));
+  }
+
+  @Test
+  public void foreach_loops() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "foreach-loops.golo");
+
+    assertThat(moduleClass.getMethod("int_ranges").invoke(null), is((Object) asList(
+        asList(0, 1, 2, 3, 4),
+        asList(0, 2, 4),
+        asList(5, 4, 3, 2, 1),
+        asList(10, 7, 4, 1),
+        asList(),
+        asList())));
+    assertThat(moduleClass.getMethod("other_ranges").invoke(null), is((Object) asList(
+        asList(1L, 2L, 3L),
+        asList('a', 'c'),
+        asList('c', 'b'))));
+    assertThat(moduleClass.getMethod("containers").invoke(null), is((Object) asList(
+        asList(1, 2, 3),
+        asList(4, 5, 6),
+        asList(7, 8, 9),
+        asList(10, 11),
+        asList(12),
+        asList(13, 14))));
+    Method collect = moduleClass.getMethod("collect", Object.class);
+    assertThat(collect.invoke(null, (Object) new String[]{"a", "b"}), is((Object) asList("a", "b")));
+    assertThat(collect.invoke(null, new LinkedHashSet<>(asList(3, 1, 2))), is((Object) asList(3, 1, 2)));
+    assertThat(moduleClass.getMethod("destructured", Object.class).invoke(null, asList(new Tuple(1, 2), new Tuple(3, 4))), is((Object) 14));
+    Method breakAndContinue = moduleClass.getMethod("break_and_continue", Object.class);
+    assertThat(breakAndContinue.invoke(null, asList(1, 2, 3, 4, 5, 6)), is((Object) asList(1, 3, 4)));
+    assertThat(breakAndContinue.invoke(null, new LinkedList<>(asList(1, 2, 3, 4, 5, 6))), is((Object) asList(1, 3, 4)));
+    assertThat(moduleClass.getMethod("guarded", Object.class).invoke(null, new Object[]{new Object[]{1, 2, 3, 4}}), is((Object) 6));
+    assertThat(moduleClass.getMethod("nested").invoke(null), is((Object) asList(0, 0, 1, 10, 2, 20)));
+    assertThat(moduleClass.getMethod("in_closure", Object.class).invoke(null, asList(1, 2, 3)), is((Object) 6));
+    assertThat(moduleClass.getMethod("comprehension").invoke(null), is((Object) asList(1, 9)));
+    try {
+      moduleClass.getMethod("grow", Object.class).invoke(null, new ArrayList<>(asList(1, 2)));
+      fail("A ConcurrentModificationException should have been raised");
+    } catch (InvocationTargetException e) {
+      assertThat(e.getCause(), instanceOf(ConcurrentModificationException.class));
+    }
+    Method change = moduleClass.getMethod("change", Object.class, Object.class, Object.class);
+    for (String kind : asList("add", "remove", "add_remove")) {
+      for (int at = 1; at <= 4; at++) {
+        assertThat(kind + " at " + at, changedByGolo(change, new ArrayList<>(asList(1, 2, 3, 4)), at, kind),
+            is(changedByIterator(new ArrayList<>(asList(1, 2, 3, 4)), at, kind)));
+        List<Integer> snapshot = new CopyOnWriteArrayList<>(asList(1, 2, 3, 4));
+        assertThat(kind + " at " + at, changedByGolo(change, snapshot, at, kind),
+            is(changedByIterator(new CopyOnWriteArrayList<>(asList(1, 2, 3, 4)), at, kind)));
+      }
+    }
+  }
+
+  private static Object changedByGolo(Method change, List<Integer> values, int at, String kind) throws Throwable {
+    try {
+      return change.invoke(null, values, at, kind);
+    } catch (InvocationTargetException e) {
+      return e.getCause().getClass();
+    }
+  }
+
+  private static Object changedByIterator(List<Integer> values, int at, String kind) {
+    List<Object> seen = new ArrayList<>();
+    try {
+      for (Integer value : values) {
+        seen.add(value);
+        if (value == at) {
+          if (!kind.equals("remove")) {
+            values.add(0);
+          }
+          if (!kind.equals("add")) {
+            values.subList(0, 1).clear();
+          }
+        }
+      }
+    } catch (ConcurrentModificationException e) {
+      return e.getClass();
+    }
+    return seen;
+  }
+
+  @Test
+  public void direct_calls() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "direct-calls.golo");
+
+    assertThat(moduleClass.getMethod("calls").invoke(null), is((Object) asList(42, 3, 6)));
+    assertThat(moduleClass.getMethod("counts").invoke(null), is((Object) asList(0, 2)));
+    assertThat(moduleClass.getMethod("decorated_call").invoke(null), is((Object) "(1)"));
+    assertThat(moduleClass.getMethod("named_call").invoke(null), is((Object) "ab"));
+    assertThat(moduleClass.getMethod("closure_call").invoke(null), is((Object) 8));
+    assertThat(moduleClass.getMethod("depth", Object.class).invoke(null, 100), is((Object) 100));
+    assertThat(moduleClass.getMethod("augmentation_call").invoke(null), is((Object) "twice a"));
+  }
+
+  @Test
+  public void direct_calls_bytecode() throws Throwable {
+    final Map<String, List<String>> staticCalls = new HashMap<>();
+    final Map<String, List<String>> dynamicCalls = new HashMap<>();
+    try (FileInputStream in = new FileInputStream(SRC + "direct-calls.golo")) {
+      byte[] bytecode = null;
+      for (CodeGenerationResult result : new GoloCompiler().compile("direct-calls.golo", in)) {
+        if (result.getPackageAndClass().toString().equals("golotest.execution.DirectCalls")) {
+          bytecode = result.getBytecode();
+        }
+      }
+      new ClassReader(bytecode).accept(new ClassVisitor(ASM5) {
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+          final List<String> statics = new ArrayList<>();
+          final List<String> dynamics = new ArrayList<>();
+          staticCalls.put(name, statics);
+          dynamicCalls.put(name, dynamics);
+          return new MethodVisitor(ASM5) {
+            @Override
+            public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+              statics.add(name + desc);
+            }
+
+            @Override
+            public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+              dynamics.add(name);
+            }
+          };
+        }
+      }, 0);
+    }
+    assertThat(staticCalls.get("calls"), hasItems(
+        "twice(Ljava/lang/Object;)Ljava/lang/Object;",
+        "add(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;",
+        "add(Ljava/lang/Object;Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;"));
+    assertThat(dynamicCalls.get("calls"), not(hasItems("twice", "add")));
+    assertThat(staticCalls.get("depth"), hasItem("depth(Ljava/lang/Object;)Ljava/lang/Object;"));
+    assertThat(dynamicCalls.get("counts"), hasItem("count"));
+    assertThat(dynamicCalls.get("decorated_call"), hasItem("decorated"));
+    assertThat(dynamicCalls.get("named_call"), hasItem("add"));
+  }
+
+  @Test
+  public void inlining() throws Throwable {
+    for (int level = 1; level <= 2; level++) {
+      Class<?> moduleClass = compileAndLoadAtLevel(level, "inlining.golo");
+
+      assertThat(moduleClass.getMethod("squares").invoke(null), is((Object) asList(9, 5, "ab")));
+      assertThat(moduleClass.getMethod("ordered").invoke(null), is((Object) asList(7, asList(10, 3))));
+      assertThat(moduleClass.getMethod("reordered").invoke(null), is((Object) asList(-7, asList(10, 3))));
+      assertThat(moduleClass.getMethod("short_circuit").invoke(null), is((Object) asList(false, asList(false, true))));
+      assertThat(moduleClass.getMethod("recursive").invoke(null), is((Object) 120));
+      assertThat(moduleClass.getMethod("module_state").invoke(null), is((Object) asList(">a", 2)));
+      assertThat(moduleClass.getMethod("decorated_call").invoke(null), is((Object) "(1)"));
+      assertThat(moduleClass.getMethod("applied_closure", Object.class).invoke(null, 100), is((Object) 111));
+      assertThat(moduleClass.getMethod("named_call").invoke(null), is((Object) 2));
+    }
+  }
+
+  @Test
+  public void inlining_levels() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setOptimizationLevel(2);
+    GoloModule module = checkedModule(compiler, "inlining.golo");
+    compiler.optimize(module);
+    assertThat(returned(module, "squares"), is((Object) asList(9, 5, "ab")));
+    assertThat(returned(module, "sum_of_squares"), instanceOf(BinaryOperation.class));
+    assertThat(returned(module, "recursive"), instanceOf(FunctionInvocation.class));
+    assertThat(returned(module, "decorated_call"), instanceOf(FunctionInvocation.class));
+    assertThat(returned(module, "named_call"), instanceOf(FunctionInvocation.class));
+    assertThat(returned(module, "applied_closure"), instanceOf(BinaryOperation.class));
+    Block ordered = function(module, "ordered").getBlock();
+    assertThat(((AssignmentStatement) ordered.getStatements().get(1)).getExpressionStatement(), instanceOf(BinaryOperation.class));
+    Block reordered = function(module, "reordered").getBlock();
+    assertThat(((AssignmentStatement) reordered.getStatements().get(1)).getExpressionStatement(), instanceOf(FunctionInvocation.class));
+    Block shortCircuit = function(module, "short_circuit").getBlock();
+    assertThat(((AssignmentStatement) shortCircuit.getStatements().get(1)).getExpressionStatement(), instanceOf(FunctionInvocation.class));
+    List<ExpressionStatement> moduleState = ((CollectionLiteral) returned(module, "module_state")).getExpressions();
+    assertThat(moduleState.get(0), instanceOf(BinaryOperation.class));
+    assertThat(moduleState.get(1), instanceOf(FunctionInvocation.class));
+
+    compiler.setOptimizationLevel(1);
+    module = checkedModule(compiler, "inlining.golo");
+    compiler.optimize(module);
+    assertThat(returned(module, "sum_of_squares"), instanceOf(FunctionInvocation.class));
+  }
+
+  @Test
+  public void tail_calls() throws Throwable {
+    Class<?> moduleClass = compileAndLoadGoloModule(SRC, "tail-calls.golo");
+
+    assertThat(moduleClass.getMethod("count_down", Object.class).invoke(null, 1_000_000), is((Object) "done"));
+    assertThat(moduleClass.getMethod("sum", Object.class, Object.class).invoke(null, 1_000_000L, 0L), is((Object) 500_000_500_000L));
+    Method swap = moduleClass.getMethod("swap", Object.class, Object.class, Object.class);
+    assertThat(swap.invoke(null, 1_000_001, "a", "b"), is((Object) new Tuple("b", "a")));
+    assertThat(moduleClass.getMethod("collatz_steps", Object.class, Object.class).invoke(null, 27, 0), is((Object) 111));
+    assertThat(moduleClass.getMethod("fold_ones", Object.class).invoke(null, 1_000_000), is((Object) 1_000_000));
+    assertThat(moduleClass.getMethod("in_loop", Object.class).invoke(null, 1_000_000), is((Object) 0));
+    assertThat(moduleClass.getMethod("with_locals", Object.class, Object.class).invoke(null, 1_000_000, 0), is((Object) 1_000_000));
+    List<?> closures = (List<?>) moduleClass.getMethod("closures", Object.class, Object.class).invoke(null, 3, new ArrayList<>());
+    assertThat(((FunctionReference) closures.get(0)).invoke(), is((Object) 3));
+    assertThat(((FunctionReference) closures.get(2)).invoke(), is((Object) 1));
+    assertThat(moduleClass.getMethod("not_in_tail_position", Object.class).invoke(null, 100), is((Object) 100));
+    assertThat(moduleClass.getMethod("in_try", Object.class).invoke(null, 100), is((Object) "bottom"));
+    assertThat(moduleClass.getMethod("in_catch", Object.class).invoke(null, 100), is((Object) "bottom"));
+    assertThat(moduleClass.getMethod("after_try", Object.class).invoke(null, 1_000_000), is((Object) "bottom"));
+    assertThat(moduleClass.getMethod("in_try", Object.class).invoke(null, 1_000_000), is((Object) "caught"));
+  }
+
+  @Test
+  public void tail_calls_without_optimizations() throws Throwable {
+    Class<?> moduleClass = compileAndLoadAtLevel(0, "tail-calls.golo");
+    assertThat(moduleClass.getMethod("count_down", Object.class).invoke(null, 1_000_000), is((Object) "done"));
+    assertThat(moduleClass.getMethod("sum", Object.class, Object.class).invoke(null, 1_000_000L, 0L), is((Object) 500_000_500_000L));
+  }
+
+  @Test
+  public void tail_calls_detection() throws Throwable {
+    GoloCompiler compiler = new GoloCompiler();
+    GoloModule module = checkedModule(compiler, "tail-calls.golo");
+    compiler.optimize(module);
+    new TailCallGoloIrVisitor().optimize(module);
+    assertThat(returned(module, "count_down"), hasProperty("tailCall", is(true)));
+    assertThat(returned(module, "swap"), hasProperty("tailCall", is(true)));
+    BinaryOperation notInTail = (BinaryOperation) returned(module, "not_in_tail_position");
+    assertThat(notInTail.getRightExpression(), hasProperty("tailCall", is(false)));
+    TryCatchFinally inTry = (TryCatchFinally) function(module, "in_try").getBlock().getStatements().get(0);
+    List<GoloStatement> tryStatements = inTry.getTryBlock().getStatements();
+    ReturnStatement tryReturn = (ReturnStatement) tryStatements.get(tryStatements.size() - 1);
+    assertThat(tryReturn.getExpressionStatement(), hasProperty("tailCall", is(false)));
+    TryCatchFinally inCatch = (TryCatchFinally) function(module, "in_catch").getBlock().getStatements().get(0);
+    List<GoloStatement> catchStatements = inCatch.getCatchBlock().getStatements();
+    ReturnStatement catchReturn = (ReturnStatement) catchStatements.get(catchStatements.size() - 1);
+    assertThat(catchReturn.getExpressionStatement(), hasProperty("tailCall", is(false)));
+    assertThat(returned(module, "after_try"), hasProperty("tailCall", is(true)));
+  }
+
+  @Test
+  public void string_concatenation() throws Throwable {
+    for (int level = 0; level <= 2; level++) {
+      Class<?> moduleClass = compileAndLoadAtLevel(level, "string-concatenation.golo");
+
+      assertThat(moduleClass.getMethod("leading_literal", Object.class, Object.class).invoke(null, 1, asList(2)), is((Object) "a=1, b=[2]"));
+      assertThat(moduleClass.getMethod("trailing_literal", Object.class, Object.class).invoke(null, 1, 2), is((Object) "3!"));
+      assertThat(moduleClass.getMethod("trailing_literal", Object.class, Object.class).invoke(null, "x", 2), is((Object) "x2!"));
+      assertThat(moduleClass.getMethod("typed_locals").invoke(null), is((Object) "i=42, l=2, d=1.5, sum=42"));
+      assertThat(moduleClass.getMethod("typed_head").invoke(null), is((Object) "3=3"));
+      assertThat(moduleClass.getMethod("nulls", Object.class).invoke(null, (Object) null), is((Object) "nullnull"));
+      assertThat(moduleClass.getMethod("nested", Object.class, Object.class).invoke(null, 1, 2), is((Object) "(1, 2)"));
+      assertThat(moduleClass.getMethod("ordered").invoke(null), is((Object) asList("3:34", asList(1, 2, 3, 4))));
+      assertThat(moduleClass.getMethod("in_loop", Object.class).invoke(null, 4), is((Object) "0,1,2,3,"));
+      assertThat(moduleClass.getMethod("without_literal", Object.class, Object.class).invoke(null, 1, 2), is((Object) 3));
+      assertThat(moduleClass.getMethod("without_literal", Object.class, Object.class).invoke(null, null, "a"), is((Object) "nulla"));
+    }
+  }
+
+  private static Object returned(GoloModule module, String functionName) {
+    List<GoloStatement> statements = function(module, functionName).getBlock().getStatements();
+    ReturnStatement statement = (ReturnStatement) statements.get(statements.size() - 1);
+    GoloStatement expression = statement.getExpressionStatement();
+    if (expression instanceof CollectionLiteral && ((CollectionLiteral) expression).getExpressions().get(0) instanceof ConstantStatement) {
+      List<Object> values = new ArrayList<>();
+      for (ExpressionStatement element : ((CollectionLiteral) expression).getExpressions()) {
+        values.add(((ConstantStatement) element).getValue());
+      }
+      return values;
+    }
+    return expression;
+  }
+
+  private static Class<?> compileAndLoadAtLevel(int level, String goloFile) throws IOException {
+    GoloCompiler compiler = new GoloCompiler();
+    compiler.setOptimizationLevel(level);
+    return compileAndLoad(compiler, goloFile);
+  }
+
+  private static Class<?> compileAndLoad(GoloCompiler compiler, String goloFile) throws IOException {
+    try (FileInputStream in = new FileInputStream(SRC + goloFile)) {
+      final List<CodeGenerationResult> results = compiler.compile(goloFile, in);
+      return new ClassLoader(CompileAndRunTest.class.getClassLoader()) {
+        Class<?> define() {
+          Class<?> moduleClass = null;
+          for (CodeGenerationResult result : results) {
+            moduleClass = defineClass(result.getPackageAndClass().toString(), result.getBytecode(), 0, result.getBytecode().length);
+          }
+          return moduleClass;
+        }
+      }.define();
+    }
+  }
+
+  private static GoloModule checkedModule(GoloCompiler compiler, String goloFile) throws IOException {
+    try (FileInputStream in = new FileInputStream(SRC + goloFile)) {
+      return compiler.check(compiler.parse(goloFile, compiler.initParser(goloFile, in)));
+    }
+  }
+
+  private static GoloFunction function(GoloModule module, String name) {
+    for (GoloFunction function : module.getFunctions()) {
+      if (function.getName().equals(name)) {
+        return function;
+      }
+    }
+    throw new AssertionError("No function named " + name);
+  }
 }
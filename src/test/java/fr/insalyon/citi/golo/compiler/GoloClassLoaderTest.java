@@ -12,6 +12,8 @@ package fr.insalyon.citi.golo.compiler;
 import org.testng.annotations.Test;
 
 import java.io.FileInputStream;
+import java.lang.ref.WeakReference;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -35,4 +37,24 @@ public class GoloClassLoaderTest {
     classLoader.load("returns.golo", new FileInputStream(SRC + "returns.golo"));
     classLoader.load("returns.golo", new FileInputStream(SRC + "returns.golo"));
   }
+
+  private static WeakReference<GoloClassLoader> runMegamorphicOverloads() throws Throwable {
+    GoloClassLoader classLoader = new GoloClassLoader();
+    Class<?> clazz = classLoader.load("megamorphic-overloads.golo", new FileInputStream(SRC + "megamorphic-overloads.golo"));
+    List<?> positions = (List<?>) clazz.getMethod("positions").invoke(null);
+    assertThat(positions.size(), is(21));
+    assertThat(positions.get(0), is((Object) 2));
+    assertThat(positions.get(3), is((Object) (-1)));
+    return new WeakReference<>(classLoader);
+  }
+
+  @Test
+  public void loader_collected_after_megamorphic_overloaded_calls() throws Throwable {
+    WeakReference<GoloClassLoader> classLoader = runMegamorphicOverloads();
+    for (int i = 0; i < 50 && classLoader.get() != null; i++) {
+      System.gc();
+      Thread.sleep(20);
+    }
+    assertThat(classLoader.get() == null, is(true));
+  }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import org.testng.annotations.Test;
+
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodType.methodType;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+
+public class CallSiteStatisticsTest {
+
+  @Test
+  public void report_lists_registered_sites_by_misses() throws Throwable {
+    boolean wasEnabled = CallSiteStatistics.enabled;
+    CallSiteStatistics.enabled = true;
+    try {
+      MethodHandle toString = MethodInvocationSupport
+          .bootstrap(lookup(), "toString", methodType(Object.class, Object.class), 0)
+          .dynamicInvoker();
+      MethodHandle plus = OperatorSupport
+          .bootstrap(lookup(), "plus", methodType(Object.class, Object.class, Object.class), 2)
+          .dynamicInvoker();
+      toString.invoke((Object) "a");
+      toString.invoke((Object) "b");
+      plus.invoke((Object) 1, (Object) 2);
+      plus.invoke((Object) 1L, (Object) 2L);
+      plus.invoke((Object) "a", (Object) "b");
+
+      String report = CallSiteStatistics.report();
+      String caller = CallSiteStatisticsTest.class.getName();
+      String method = caller + " method toString (Object)Object hits=1 misses=1 resorts=0 vtableMisses=0 depth=1 megamorphic=false";
+      String operator = caller + " operator plus (Object,Object)Object misses=3 depth=3 megamorphic=false";
+      assertThat(report, containsString(method));
+      assertThat(report, containsString(operator));
+      assertThat(report.indexOf(operator), lessThan(report.indexOf(method)));
+    } finally {
+      CallSiteStatistics.enabled = wasEnabled;
+    }
+  }
+
+  @Test
+  public void sites_are_not_registered_when_disabled() throws Throwable {
+    boolean wasEnabled = CallSiteStatistics.enabled;
+    CallSiteStatistics.enabled = false;
+    try {
+      MethodHandle hashCode = MethodInvocationSupport
+          .bootstrap(lookup(), "hashCode", methodType(Object.class, Object.class), 0)
+          .dynamicInvoker();
+      assertThat((Integer) hashCode.invoke((Object) "a"), greaterThan(0));
+      assertThat(CallSiteStatistics.isEnabled(), is(false));
+      assertThat(CallSiteStatistics.report(), not(containsString(" method hashCode ")));
+    } finally {
+      CallSiteStatistics.enabled = wasEnabled;
+    }
+  }
+}
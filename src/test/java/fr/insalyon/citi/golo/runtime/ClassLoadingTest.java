@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ClassLoadingTest {
+
+  static class ProbeCountingClassLoader extends ClassLoader {
+
+    int lookups;
+
+    ProbeCountingClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      lookups = lookups + 1;
+      throw new ClassNotFoundException(name);
+    }
+  }
+
+  @Test
+  public void missing_classes_are_probed_once() {
+    ProbeCountingClassLoader loader = new ProbeCountingClassLoader(ClassLoadingTest.class.getClassLoader());
+    ClassLoading.forgetMissingClasses(loader);
+    long avoided = ClassLoading.avoidedProbes();
+
+    assertThat(ClassLoading.tryLoading("java.lang.Missing", loader), nullValue());
+    assertThat(ClassLoading.tryLoading("java.lang.Missing", loader), nullValue());
+    assertThat(loader.lookups, is(1));
+    assertThat(ClassLoading.avoidedProbes(), greaterThan(avoided));
+
+    assertThat(ClassLoading.tryLoading("java.lang.Missing", new ProbeCountingClassLoader(loader)), nullValue());
+    assertThat(loader.lookups, is(2));
+
+    assertThat(ClassLoading.tryLoading("java.lang.String", loader), sameInstance((Object) String.class));
+  }
+
+  @Test
+  public void defining_loaders_forget_missing_classes() {
+    ProbeCountingClassLoader loader = new ProbeCountingClassLoader(ClassLoadingTest.class.getClassLoader());
+    ProbeCountingClassLoader child = new ProbeCountingClassLoader(loader);
+    ClassLoading.forgetMissingClasses(loader);
+    ClassLoading.tryLoading("java.lang.Missing", loader);
+    ClassLoading.tryLoading("java.lang.Missing", child);
+    assertThat(loader.lookups, is(2));
+    assertThat(child.lookups, is(1));
+
+    ClassLoading.forgetMissingClasses(loader);
+    ClassLoading.tryLoading("java.lang.Missing", child);
+    ClassLoading.tryLoading("java.lang.Missing", loader);
+    assertThat(loader.lookups, is(4));
+    assertThat(child.lookups, is(2));
+  }
+
+  @Test
+  public void other_loaders_are_always_probed() {
+    ProbeCountingClassLoader loader = new ProbeCountingClassLoader(ClassLoadingTest.class.getClassLoader());
+    assertThat(ClassLoading.tryLoading("java.lang.Missing", loader), nullValue());
+    assertThat(ClassLoading.tryLoading("java.lang.Missing", loader), nullValue());
+    assertThat(loader.lookups, is(2));
+
+    ProbeCountingClassLoader parent = new ProbeCountingClassLoader(ClassLoadingTest.class.getClassLoader());
+    ClassLoading.forgetMissingClasses(new ProbeCountingClassLoader(parent));
+    ClassLoading.tryLoading("java.lang.Missing", parent);
+    ClassLoading.tryLoading("java.lang.Missing", parent);
+    assertThat(parent.lookups, is(2));
+  }
+}
@@ -39,6 +39,14 @@ public class ClosureCallSupportTest {
     return result;
   }
 
+  static Object capture(Object prefix, Object suffix) {
+    return "" + prefix + suffix;
+  }
+
+  static Object captureN(Object prefix, Object... rest) {
+    return prefix + concat(rest).toString();
+  }
+
   static Integer parseIntWrap(String s) {
     return Integer.parseInt(s, 10);
   }
@@ -95,4 +103,53 @@ public class ClosureCallSupportTest {
     assertThat((Integer) invoker.invokeWithArguments(funRef, "123"), is(123));
     assertThat((Integer) invoker.invokeWithArguments(funRef, "123"), is(123));
   }
+
+  @Test
+  public void closures_guard_on_captured_function() throws Throwable {
+    FunctionReference capture = new FunctionReference(
+        lookup().findStatic(ClosureCallSupportTest.class, "capture", genericMethodType(2)));
+    CallSite callSite = ClosureCallSupport.bootstrap(lookup(), "closure", methodType(Object.class, FunctionReference.class, Object.class), 0);
+    ClosureCallSupport.InlineCache inlineCache = (ClosureCallSupport.InlineCache) callSite;
+    MethodHandle invoker = callSite.dynamicInvoker();
+
+    for (int i = 0; i < 100; i++) {
+      FunctionReference closure = capture.insertArguments(0, i);
+      assertThat((String) invoker.invokeWithArguments(closure, "!"), is(i + "!"));
+    }
+    assertThat(inlineCache.depth, is(1));
+
+    FunctionReference captureN = new FunctionReference(
+        lookup().findStatic(ClosureCallSupportTest.class, "captureN", genericMethodType(1, true)));
+    for (int i = 0; i < 10; i++) {
+      FunctionReference closure = captureN.insertArguments(0, i).asVarargsCollector(Object[].class);
+      assertThat((String) invoker.invokeWithArguments(closure, "!"), is(i + "!"));
+      assertThat((String) invoker.invokeWithArguments(closure, new Object[]{"a", "b"}), is(i + "ab"));
+    }
+    assertThat(inlineCache.depth, is(2));
+  }
+
+  @Test
+  public void megamorphic_closure_call_site() throws Throwable {
+    FunctionReference capture = new FunctionReference(
+        lookup().findStatic(ClosureCallSupportTest.class, "capture", genericMethodType(2)));
+    CallSite callSite = ClosureCallSupport.bootstrap(lookup(), "closure", methodType(Object.class, FunctionReference.class, Object.class), 0);
+    ClosureCallSupport.InlineCache inlineCache = (ClosureCallSupport.InlineCache) callSite;
+    MethodHandle invoker = callSite.dynamicInvoker();
+
+    for (int i = 0; i < 20; i++) {
+      FunctionReference bound = capture.bindAt(1, "#" + i);
+      assertThat((String) invoker.invokeWithArguments(bound, i), is(i + "#" + i));
+    }
+    assertThat(inlineCache.isMegaMorphic(), is(true));
+    for (int i = 0; i < 20; i++) {
+      FunctionReference closure = capture.insertArguments(0, i);
+      assertThat((String) invoker.invokeWithArguments(closure, "!"), is(i + "!"));
+    }
+    assertThat(inlineCache.invokers.containsKey(capture), is(true));
+
+    FunctionReference concat = new FunctionReference(
+        lookup().findStatic(ClosureCallSupportTest.class, "concat", genericMethodType(0, true)));
+    assertThat((String) invoker.invokeWithArguments(concat, 1), is("1"));
+    assertThat((String) invoker.invokeWithArguments(concat, new Object[]{1, 2}), is("12"));
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2012-2015 Institut National des Sciences Appliquées de Lyon (INSA-Lyon)
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package fr.insalyon.citi.golo.runtime;
+
+import gololang.Range;
+import gololang.Tuple;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static gololang.Predefined.range;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class ForEachSupportTest {
+
+  private static List<Object> elements(Object source) {
+    int size = ForEachSupport.size(source);
+    List<Object> elements = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      elements.add(ForEachSupport.get(source, i));
+    }
+    return elements;
+  }
+
+  private static List<Object> iterated(Object source) {
+    List<Object> elements = new ArrayList<>();
+    for (Object element : (Iterable<?>) source) {
+      elements.add(element);
+    }
+    return elements;
+  }
+
+  @Test
+  public void ranges_match_their_iterators() {
+    List<Range<?>> ranges = asList(
+        (Range<?>) range(0, 10),
+        ((Range<?>) range(0, 10)).incrementBy(3),
+        ((Range<?>) range(10, 0)).decrementBy(4),
+        (Range<?>) range(-5, -5),
+        (Range<?>) range(3, 1),
+        ((Range<?>) range(2L, 11L)).incrementBy(2),
+        ((Range<?>) range('a', 'z')).incrementBy(5),
+        ((Range<?>) range('z', 'a')).decrementBy(7),
+        ((Range<?>) range(Integer.MIN_VALUE, Integer.MIN_VALUE + 3)));
+    for (Range<?> range : ranges) {
+      assertThat(range.toString(), elements(range), is(iterated(range)));
+    }
+  }
+
+  @Test
+  public void overflowing_ranges_are_iterated() {
+    assertThat(ForEachSupport.size(((Range<?>) range(Integer.MAX_VALUE - 10, Integer.MAX_VALUE)).incrementBy(4)), is(-1));
+    assertThat(ForEachSupport.size(((Range<?>) range(Long.MAX_VALUE - 10, Long.MAX_VALUE)).incrementBy(4)), is(-1));
+    assertThat(ForEachSupport.size(range(Long.MIN_VALUE, Long.MAX_VALUE)), is(-1));
+    assertThat(ForEachSupport.size(((Range<?>) range(Integer.MAX_VALUE - 10, Integer.MAX_VALUE)).incrementBy(5)), is(2));
+  }
+
+  @Test
+  public void indexed_containers() {
+    assertThat(elements(new Object[]{1, "a", null}), is(asList((Object) 1, "a", null)));
+    assertThat(elements(new Tuple(1, 2)), is(asList((Object) 1, 2)));
+    assertThat(elements(asList(4, 5)), is(asList((Object) 4, 5)));
+    assertThat(elements(Collections.singletonList(8)), is(asList((Object) 8)));
+    assertThat(elements(Collections.emptyList()), is(Collections.emptyList()));
+  }
+
+  @Test
+  public void other_values_are_iterated() {
+    assertThat(ForEachSupport.size(null), is(-1));
+    assertThat(ForEachSupport.size(new LinkedList<>(asList(1, 2))), is(-1));
+    assertThat(ForEachSupport.size(new ArrayList<>(asList(1, 2))), is(-1));
+    assertThat(ForEachSupport.size(Collections.unmodifiableList(asList(1, 2))), is(-1));
+    assertThat(ForEachSupport.size(new HashSet<>(asList(1, 2))), is(-1));
+    assertThat(ForEachSupport.size(Collections.checkedList(new ArrayList<>(asList(1, 2)), Integer.class)), is(-1));
+    assertThat(ForEachSupport.size(new java.util.concurrent.CopyOnWriteArrayList<>(asList(1, 2))), is(-1));
+    assertThat(ForEachSupport.size(Collections.synchronizedList(new ArrayList<>(asList(1, 2)))), is(-1));
+    assertThat(ForEachSupport.size(Collections.unmodifiableList(new java.util.concurrent.CopyOnWriteArrayList<>(asList(1, 2)))), is(-1));
+    assertThat(ForEachSupport.size(Collections.unmodifiableList(new LinkedList<>(asList(1, 2)))), is(-1));
+    assertThat(ForEachSupport.size(new int[]{1, 2}), is(-1));
+    assertThat(ForEachSupport.size("abc"), is(-1));
+    assertThat(ForEachSupport.size(new ArrayList<Object>() {
+      @Override
+      public Iterator<Object> iterator() {
+        return Collections.emptyIterator();
+      }
+    }), is(-1));
+  }
+}
@@ -16,11 +16,14 @@ import java.lang.invoke.CallSite;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.lang.invoke.MethodHandles.Lookup;
 import static java.lang.invoke.MethodHandles.lookup;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.*;
 
 public class FunctionCallSupportTest {
 
@@ -57,6 +60,27 @@ public class FunctionCallSupportTest {
     static String plop() {
       return "Plop";
     }
+
+    static String greet(Greeter greeter, String name) {
+      return greeter.greet(name);
+    }
+
+    static int applyTwice(java.util.function.IntUnaryOperator operator, int value) {
+      return operator.applyAsInt(operator.applyAsInt(value));
+    }
+  }
+
+  static interface Greeter {
+
+    String greet(String name);
+  }
+
+  static Object prefix(Object prefix, Object name) {
+    return prefix + " " + name;
+  }
+
+  static Object add(Object a, Object b) {
+    return (Integer) a + (Integer) b;
   }
 
 
@@ -158,4 +182,70 @@ public class FunctionCallSupportTest {
     CallSite callSite = FunctionCallSupport.bootstrap(lookup, name, type, 0);
     assertThat(callSite.dynamicInvoker().invokeWithArguments(new FunctionReference(plopFunc)), is((Object) "Plop!"));
   }
+
+  @Test
+  public void call_sites_share_resolved_functions() throws Throwable {
+    Lookup lookup = lookup();
+    MethodType type = MethodType.methodType(Object.class, Object.class);
+    CallSite first = FunctionCallSupport.bootstrap(lookup, "echo", type, 0);
+    CallSite second = FunctionCallSupport.bootstrap(lookup, "echo", type, 0);
+    CallSite other = FunctionCallSupport.bootstrap(lookup, "echo", type, 0, "str");
+
+    assertThat((String) first.dynamicInvoker().invokeWithArguments("a"), is("a"));
+    assertThat((String) second.dynamicInvoker().invokeWithArguments("b"), is("b"));
+    assertThat((String) other.dynamicInvoker().invokeWithArguments("c"), is("c"));
+    assertThat(first.getTarget() == second.getTarget(), is(true));
+    assertThat(first.getTarget() == other.getTarget(), is(false));
+  }
+
+  @Test
+  public void resolutions_skip_classes_from_other_loaders() throws Throwable {
+    Lookup lookup = lookup();
+    CallSite callSite = FunctionCallSupport.bootstrap(lookup, "prefix", MethodType.genericMethodType(2), 0);
+    ClassLoader foreignLoader = new ClassLoader(null) {};
+    Object foreign = Proxy.newProxyInstance(foreignLoader, new Class<?>[]{Runnable.class}, (proxy, method, args) -> "foreign");
+
+    assertThat((String) callSite.dynamicInvoker().invokeWithArguments("a", foreign), is("a foreign"));
+    for (FunctionCallSupport.Resolution resolution : FunctionCallSupport.RESOLUTIONS.get(FunctionCallSupportTest.class).keySet()) {
+      assertThat(Arrays.asList(resolution.argumentClasses), not(hasItem(foreign.getClass())));
+    }
+  }
+
+  static class ResolutionsHolder {
+  }
+
+  @Test
+  public void resolutions_are_capped_per_caller_class() throws Throwable {
+    Lookup lookup = lookup().in(ResolutionsHolder.class);
+    ConcurrentHashMap<FunctionCallSupport.Resolution, MethodHandle> resolutions = FunctionCallSupport.RESOLUTIONS.get(ResolutionsHolder.class);
+    MethodType type = MethodType.genericMethodType(2);
+    for (int i = 0; resolutions.size() < FunctionCallSupport.MAX_RESOLUTIONS; i++) {
+      FunctionCallSupport.FunctionCallSite callSite = (FunctionCallSupport.FunctionCallSite) FunctionCallSupport.bootstrap(lookup, "f" + i, type, 0);
+      resolutions.put(FunctionCallSupport.Resolution.of(callSite, new Object[]{i, i}), MethodHandles.identity(Object.class));
+    }
+    String name = "fr#insalyon#citi#golo#runtime#FunctionCallSupportTest#prefix";
+    CallSite callSite = FunctionCallSupport.bootstrap(lookup, name, type, 0);
+    assertThat((String) callSite.dynamicInvoker().invokeWithArguments("a", "b"), is("a b"));
+    assertThat(resolutions.size(), is(FunctionCallSupport.MAX_RESOLUTIONS));
+  }
+
+  @Test
+  public void interface_conversions_share_lambda_factories() throws Throwable {
+    Lookup lookup = lookup();
+    MethodHandle prefix = lookup.findStatic(FunctionCallSupportTest.class, "prefix", MethodType.genericMethodType(2));
+    MethodHandle add = lookup.findStatic(FunctionCallSupportTest.class, "add", MethodType.genericMethodType(2));
+
+    CallSite greet = FunctionCallSupport.bootstrap(lookup, "fr#insalyon#citi#golo#runtime#FunctionCallSupportTest$Foo#greet", MethodType.genericMethodType(2), 0);
+    assertThat(greet.dynamicInvoker().invokeWithArguments(new FunctionReference(prefix).insertArguments(0, "Hello"), "Mr Bean"), is((Object) "Hello Mr Bean"));
+    assertThat(greet.dynamicInvoker().invokeWithArguments(new FunctionReference(prefix).insertArguments(0, "Bye"), "Mr Bean"), is((Object) "Bye Mr Bean"));
+
+    CallSite applyTwice = FunctionCallSupport.bootstrap(lookup, "fr#insalyon#citi#golo#runtime#FunctionCallSupportTest$Foo#applyTwice", MethodType.genericMethodType(2), 0);
+    assertThat(applyTwice.dynamicInvoker().invokeWithArguments(new FunctionReference(add).insertArguments(0, 10), 1), is((Object) 21));
+
+    MethodHandle factory = FunctionCallSupport.lambdaFactory(lookup, Greeter.class);
+    assertThat(factory, notNullValue());
+    assertThat(FunctionCallSupport.lambdaFactory(lookup, Greeter.class), sameInstance(factory));
+    assertThat(FunctionCallSupport.lambdaFactory(lookup, java.util.Comparator.class), notNullValue());
+    assertThat(FunctionCallSupport.lambdaFactory(lookup, java.util.List.class), nullValue());
+  }
 }
@@ -14,11 +14,19 @@ import org.testng.annotations.Test;
 
 import java.lang.invoke.CallSite;
 import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.lang.invoke.MethodHandles.lookup;
+import static java.util.Arrays.asList;
 import static java.lang.invoke.MethodType.methodType;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -204,6 +212,85 @@ public class MethodInvocationSupportTest {
     assertThat(((String) handle.invokeWithArguments(list, 2)), is("c"));
   }
 
+  @Test
+  public void overloads_resolved_from_shared_candidate_tables() throws Throwable {
+    MethodCandidates indexOf = MethodCandidates.of(String.class, "indexOf");
+    assertThat(MethodCandidates.of(String.class, "indexOf"), sameInstance(indexOf));
+    assertThat(indexOf.publicMethods.length, is(4));
+    assertThat(indexOf.allMethods.length, greaterThan(4));
+    assertThat(MethodCandidates.of(String.class, "bogus"), sameInstance(MethodCandidates.NONE));
+
+    CallSite withString = MethodInvocationSupport.bootstrap(lookup(), "indexOf", methodType(Object.class, Object.class, Object.class), 0);
+    assertThat(((Integer) withString.dynamicInvoker().invokeWithArguments("golo", "l")), is(2));
+    CallSite withChar = MethodInvocationSupport.bootstrap(lookup(), "indexOf", methodType(Object.class, Object.class, Object.class), 0);
+    assertThat(((Integer) withChar.dynamicInvoker().invokeWithArguments("golo", (int) 'o')), is(1));
+  }
+
+  @Test
+  public void overload_selections_memoized_on_argument_classes() throws Throwable {
+    MethodCandidates append = MethodCandidates.of(StringBuilder.class, "append");
+    MethodCandidates.Candidate withString = append.select(StringBuilder.class, new Object[]{"a"});
+    assertThat(withString.parameterTypes[0].isAssignableFrom(String.class), is(true));
+    assertThat(append.select(StringBuilder.class, new Object[]{"b"}), sameInstance(withString));
+    MethodCandidates.Candidate withList = append.select(StringBuilder.class, new Object[]{new ArrayList<>()});
+    assertThat(withList.parameterTypes[0].isAssignableFrom(ArrayList.class), is(true));
+    assertThat(append.select(StringBuilder.class, new Object[]{null}), notNullValue());
+
+    CallSite site = MethodInvocationSupport.bootstrap(lookup(), "append", methodType(Object.class, Object.class, Object.class), 0);
+    StringBuilder builder = new StringBuilder();
+    site.dynamicInvoker().invokeWithArguments(builder, "golo");
+    site.dynamicInvoker().invokeWithArguments(builder, "lang");
+    assertThat(builder.toString(), is("gololang"));
+  }
+
+  @Test
+  public void overloaded_methods_guard_on_argument_classes() throws Throwable {
+    CallSite indexOf = MethodInvocationSupport.bootstrap(lookup(), "indexOf", methodType(Object.class, Object.class, Object.class), 0);
+    MethodHandle handle = indexOf.dynamicInvoker();
+    assertThat(((Integer) handle.invokeWithArguments("golo", "l")), is(2));
+    assertThat(((Integer) handle.invokeWithArguments("golo", (int) 'o')), is(1));
+    assertThat(((Integer) handle.invokeWithArguments("golo", "o")), is(1));
+    assertThat(((Integer) handle.invokeWithArguments("golo", (int) 'l')), is(2));
+
+    CallSite append = MethodInvocationSupport.bootstrap(lookup(), "append", methodType(Object.class, Object.class, Object.class), 0);
+    handle = append.dynamicInvoker();
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 3; i++) {
+      for (Object value : asList("a", 'b', 1, 2L, 3.0, true, new StringBuilder("c"), asList("d"))) {
+        handle.invokeWithArguments(builder, value);
+      }
+    }
+    assertThat(builder.toString(), is("ab123.0truec[d]" + "ab123.0truec[d]" + "ab123.0truec[d]"));
+  }
+
+  @Test
+  public void megamorphic_overloads_use_a_bounded_table() throws Throwable {
+    MethodInvocationSupport.InlineCache site = (MethodInvocationSupport.InlineCache) MethodInvocationSupport
+        .bootstrap(lookup(), "append", methodType(Object.class, Object.class, Object.class), 0);
+    MethodHandle append = lookup()
+        .findVirtual(StringBuilder.class, "append", methodType(StringBuilder.class, Object.class))
+        .asType(site.type());
+    StringBuilder builder = new StringBuilder();
+    MethodInvocationSupport.OverloadCache overloadCache =
+        new MethodInvocationSupport.OverloadCache(site, StringBuilder.class, new Object[]{builder, builder}, append);
+    MethodHandle handle = overloadCache.dynamicInvoker();
+
+    int shapes = MethodInvocationSupport.OverloadCache.MAX_OVERLOADS + 8;
+    for (int round = 0; round < 2; round++) {
+      for (int dimensions = 1; dimensions < shapes; dimensions++) {
+        handle.invokeWithArguments(builder, Array.newInstance(Object.class, new int[dimensions]));
+      }
+    }
+    assertThat(overloadCache.isMegaMorphic(), is(true));
+    assertThat(overloadCache.overloads.length, is(MethodInvocationSupport.OverloadCache.MAX_OVERLOADS));
+    assertThat(builder.toString().split("\\[").length - 1, is(2 * (shapes - 1) * shapes / 2));
+
+    builder.setLength(0);
+    handle.invokeWithArguments(builder, "golo");
+    handle.invokeWithArguments(builder, 'x');
+    assertThat(builder.toString(), is("golox"));
+  }
+
   @Test
   public void check_varags() throws Throwable {
     CallSite concat = MethodInvocationSupport.bootstrap(lookup(), "concat", methodType(Object.class, Object.class, Object.class, Object.class, Object.class, Object.class), 0);
@@ -301,6 +388,168 @@ public class MethodInvocationSupportTest {
     assertThat(invoker.invoke(null), nullValue());
   }
 
+  @Test
+  public void polymorphic_guards_sorted_by_hits() throws Throwable {
+    CallSite toString = MethodInvocationSupport.bootstrap(lookup(), "toString", methodType(Object.class, Object.class), 0);
+    MethodInvocationSupport.InlineCache pic = (MethodInvocationSupport.InlineCache) toString;
+    MethodHandle invoker = toString.dynamicInvoker();
+
+    assertThat((String) invoker.invoke("a"), is("a"));
+    assertThat((String) invoker.invoke(1), is("1"));
+    assertThat(pic.entries.get(0).receiverClass, is((Object) String.class));
+    assertThat(pic.misses, is(2));
+
+    for (int i = 0; i < MethodInvocationSupport.InlineCache.RESORT_PERIOD; i++) {
+      assertThat((String) invoker.invoke(i), is(String.valueOf(i)));
+    }
+    assertThat(pic.resorts, is(1));
+    assertThat(pic.entries.get(0).receiverClass, is((Object) Integer.class));
+    assertThat(pic.entries.get(1).receiverClass, is((Object) String.class));
+    assertThat(pic.misses, is(2));
+  }
+
+  @Test
+  public void polymorphic_guards_stop_profiling_when_stable() throws Throwable {
+    CallSite toString = MethodInvocationSupport.bootstrap(lookup(), "toString", methodType(Object.class, Object.class), 0);
+    MethodInvocationSupport.InlineCache pic = (MethodInvocationSupport.InlineCache) toString;
+    MethodHandle invoker = toString.dynamicInvoker();
+
+    int periods = MethodInvocationSupport.InlineCache.STABLE_RESORTS + 1;
+    for (int i = 0; i < MethodInvocationSupport.InlineCache.RESORT_PERIOD * periods; i++) {
+      invoker.invoke("a");
+    }
+    assertThat(pic.profiling, is(false));
+    assertThat(pic.depth, is(1));
+
+    assertThat((String) invoker.invoke(1), is("1"));
+    assertThat(pic.profiling, is(true));
+    assertThat(pic.depth, is(2));
+  }
+
+  @Test
+  public void megamorphic_vtable_dispatch() throws Throwable {
+    CallSite toString = MethodInvocationSupport.bootstrap(lookup(), "toString", methodType(Object.class, Object.class), 0);
+    MethodInvocationSupport.InlineCache pic = (MethodInvocationSupport.InlineCache) toString;
+    MethodHandle invoker = toString.dynamicInvoker();
+    Object[] receivers = new Object[]{
+        "a", 1, 2L, 3.0, 4.0f, 'c', new BigInteger("5"), Arrays.asList(6), julien()
+    };
+
+    for (int i = 0; i < 3; i++) {
+      for (Object receiver : receivers) {
+        assertThat(invoker.invoke(receiver), is((Object) receiver.toString()));
+      }
+    }
+    assertThat(pic.isMegaMorphic(), is(true));
+    assertThat(pic.entries.isEmpty(), is(true));
+    assertThat(pic.vtable.get(Integer.class).target, nullValue());
+    assertThat(pic.siteTargets.get(Integer.class), notNullValue());
+    assertThat(pic.vtable.get(Person.class).target, notNullValue());
+    assertThat(pic.siteTargets.containsKey(Person.class), is(false));
+    assertThat(pic.vtableMisses, is(receivers.length - MethodInvocationSupport.InlineCache.MEGAMORPHIC_THRESHOLD - 1));
+  }
+
+  @Test
+  public void megamorphic_vtable_dispatch_with_arguments() throws Throwable {
+    CallSite equals = MethodInvocationSupport.bootstrap(lookup(), "equals", methodType(Object.class, Object.class, Object.class), 0);
+    MethodInvocationSupport.InlineCache pic = (MethodInvocationSupport.InlineCache) equals;
+    MethodHandle invoker = equals.dynamicInvoker();
+    Object[] receivers = new Object[]{
+        "a", 1, 2L, 3.0, 4.0f, 'c', new BigInteger("5"), Arrays.asList(6), julien()
+    };
+
+    for (int i = 0; i < 3; i++) {
+      for (Object receiver : receivers) {
+        assertThat(invoker.invoke(receiver, receiver), is((Object) true));
+        assertThat(invoker.invoke(receiver, "plop"), is((Object) false));
+      }
+    }
+    assertThat(pic.isMegaMorphic(), is(true));
+
+    CallSite concat = MethodInvocationSupport.bootstrap(lookup(), "concat", methodType(Object.class, Object.class, Object.class, Object.class, Object.class), 0);
+    pic = (MethodInvocationSupport.InlineCache) concat;
+    pic.depth = MethodInvocationSupport.InlineCache.MEGAMORPHIC_THRESHOLD + 10;
+    assertThat((String) concat.dynamicInvoker().invoke(varargsChecking(), "-", "a", "b"), is("a-b"));
+    assertThat((String) concat.dynamicInvoker().invoke(varargsChecking(), "-", "a", "b"), is("a-b"));
+  }
+
+  private static void hammer(int threads, Callable<Void> work) throws Throwable {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          barrier.await();
+          return work.call();
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void concurrent_misses_do_not_duplicate_guards() throws Throwable {
+    CallSite toString = MethodInvocationSupport.bootstrap(lookup(), "toString", methodType(Object.class, Object.class), 0);
+    MethodInvocationSupport.InlineCache pic = (MethodInvocationSupport.InlineCache) toString;
+    MethodHandle invoker = toString.dynamicInvoker();
+
+    hammer(8, () -> {
+      for (int i = 0; i < 10_000; i++) {
+        try {
+          assertThat(invoker.invoke("a"), is((Object) "a"));
+          assertThat(invoker.invoke(i), is((Object) String.valueOf(i)));
+        } catch (Throwable t) {
+          throw new AssertionError(t);
+        }
+      }
+      return null;
+    });
+    assertThat(pic.isMegaMorphic(), is(false));
+    assertThat(pic.depth, is(2));
+    assertThat(pic.entries.size(), is(2));
+  }
+
+  @Test
+  public void concurrent_megamorphic_dispatch() throws Throwable {
+    CallSite toString = MethodInvocationSupport.bootstrap(lookup(), "toString", methodType(Object.class, Object.class), 0);
+    MethodInvocationSupport.InlineCache pic = (MethodInvocationSupport.InlineCache) toString;
+    MethodHandle invoker = toString.dynamicInvoker();
+    Object[] receivers = new Object[]{
+        "a", 1, 2L, 3.0, 4.0f, 'c', new BigInteger("5"), Arrays.asList(6), julien()
+    };
+    int threads = 16;
+
+    hammer(threads, () -> {
+      int offset = (int) (Thread.currentThread().getId() % receivers.length);
+      for (int i = 0; i < 20_000; i++) {
+        Object receiver = receivers[(offset + i) % receivers.length];
+        try {
+          assertThat(invoker.invoke(receiver), is((Object) receiver.toString()));
+        } catch (Throwable t) {
+          throw new AssertionError(t);
+        }
+      }
+      return null;
+    });
+    assertThat(pic.isMegaMorphic(), is(true));
+    assertThat(pic.entries.isEmpty(), is(true));
+    for (Object receiver : receivers) {
+      Class<?> receiverClass = receiver.getClass();
+      assertThat(pic.vtable.get(receiverClass).target != null || pic.siteTargets.containsKey(receiverClass), is(true));
+    }
+    int vtableMisses = pic.vtableMisses;
+    assertThat(vtableMisses, lessThanOrEqualTo(threads * receivers.length));
+    for (Object receiver : receivers) {
+      assertThat(invoker.invoke(receiver), is((Object) receiver.toString()));
+    }
+    assertThat(pic.vtableMisses, is(vtableMisses));
+  }
+
   @Test
   public void dynamic_object_smoke_tests() throws Throwable {
     DynamicObject a = new DynamicObject();
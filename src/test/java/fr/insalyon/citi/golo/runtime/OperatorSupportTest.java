@@ -11,11 +11,14 @@ package fr.insalyon.citi.golo.runtime;
 
 import org.testng.annotations.Test;
 
+import java.lang.invoke.CallSite;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodType;
 
 import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodType.methodType;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 
@@ -281,4 +284,55 @@ public class OperatorSupportTest {
     assertThat((String) orIfNull.invoke("a", "b"), is("a"));
     assertThat((String) orIfNull.invoke(null, "n/a"), is("n/a"));
   }
+
+  @Test
+  public void operator_sites_cache_several_type_pairs() throws Throwable {
+    CallSite callSite = OperatorSupport.bootstrap(lookup(), "plus", BINOP_TYPE, 2);
+    OperatorSupport.InlineCache inlineCache = (OperatorSupport.InlineCache) callSite;
+    MethodHandle plus = callSite.dynamicInvoker();
+
+    assertThat(plus.invoke(1, 2), is((Object) 3));
+    assertThat(plus.invoke(1L, 2), is((Object) 3L));
+    assertThat(plus.invoke(1, 2), is((Object) 3));
+    assertThat(plus.invoke(1L, 2), is((Object) 3L));
+    assertThat(inlineCache.depth, is(2));
+
+    assertThat(plus.invoke(1.0, 2), is((Object) 3.0));
+    assertThat(plus.invoke("a", "b"), is((Object) "ab"));
+    assertThat(inlineCache.depth, is(OperatorSupport.InlineCache.MAX_DEPTH));
+    assertThat(inlineCache.megamorphic, is(false));
+  }
+
+  @Test
+  public void operator_sites_go_megamorphic() throws Throwable {
+    CallSite callSite = OperatorSupport.bootstrap(lookup(), "minus", BINOP_TYPE, 2);
+    OperatorSupport.InlineCache inlineCache = (OperatorSupport.InlineCache) callSite;
+    MethodHandle minus = callSite.dynamicInvoker();
+    Object[][] operands = new Object[][]{
+        {3, 1, 2}, {3L, 1, 2L}, {3, 1L, 2L}, {3.0, 1, 2.0}, {3, 1.0f, 2.0f}, {'c', 1, 98}, {3L, 1L, 2L}
+    };
+
+    for (int i = 0; i < 3; i++) {
+      for (Object[] operand : operands) {
+        assertThat(minus.invoke(operand[0], operand[1]), is(operand[2]));
+      }
+    }
+    assertThat(inlineCache.megamorphic, is(true));
+    assertThat(inlineCache.depth, is(OperatorSupport.InlineCache.MAX_DEPTH));
+    assertThat(inlineCache.misses, is(OperatorSupport.InlineCache.MAX_DEPTH + 1));
+
+    try {
+      minus.invoke("a", "b");
+      throw new AssertionError("minus should not apply to strings");
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected.getMessage(), containsString("minus"));
+    }
+
+    CallSite not = OperatorSupport.bootstrap(lookup(), "not", UNOP_TYPE, 1);
+    inlineCache = (OperatorSupport.InlineCache) not;
+    inlineCache.depth = OperatorSupport.InlineCache.MAX_DEPTH;
+    assertThat(not.dynamicInvoker().invoke(true), is((Object) false));
+    assertThat(inlineCache.megamorphic, is(true));
+    assertThat(not.dynamicInvoker().invoke(false), is((Object) true));
+  }
 }
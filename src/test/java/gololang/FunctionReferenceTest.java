@@ -97,4 +97,31 @@ public class FunctionReferenceTest {
   public void andThen_bad_arity() throws Throwable {
     new FunctionReference(ping).andThen(new FunctionReference(collectN));
   }
+
+  @Test
+  public void captured_values() throws Throwable {
+    FunctionReference fun = new FunctionReference(collect);
+    FunctionReference captured = fun.insertArguments(0, "a", "b");
+    assertThat(captured.invoke("c"), is("abc"));
+    assertThat(captured.capturedFrom() == fun, is(true));
+    assertThat(captured.capturedValueCount(), is(2));
+    assertThat(captured.capturedValue(1), is("b"));
+    assertThat(fun.capturedFrom() == null, is(true));
+    assertThat(fun.capturedValueCount(), is(0));
+    assertThat(captured.insertArguments(0, "x").capturedFrom() == null, is(true));
+    assertThat(fun.insertArguments(1, "x").capturedFrom() == null, is(true));
+
+    FunctionReference varargs = new FunctionReference(collectN).insertArguments(0, "a").asVarargsCollector(Object[].class);
+    assertThat(varargs.invoke("b", "c"), is("abc"));
+    assertThat(varargs.capturedValueCount(), is(1));
+  }
+
+  @Test
+  public void varargs_collector_without_captured_values() throws Throwable {
+    FunctionReference fun = new FunctionReference(collectN).asFixedArity().asVarargsCollector(Object[].class);
+    assertThat(fun.isVarargsCollector(), is(true));
+    assertThat(fun.capturedFrom() == null, is(true));
+    assertThat(fun.capturedValueCount(), is(0));
+    assertThat(fun.invoke("a", "b", "c"), is("abc"));
+  }
 }